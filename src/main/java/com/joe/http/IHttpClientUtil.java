@@ -1,9 +1,13 @@
 package com.joe.http;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import com.joe.http.client.IHttpClient;
+import com.joe.http.client.RangeDownloader;
 import com.joe.http.config.IHttpConfig;
 import com.joe.http.request.IHttpGet;
 import com.joe.http.request.IHttpPost;
@@ -74,6 +78,53 @@ public class IHttpClientUtil {
         return executeAsStream(IHttpGet.builder(url));
     }
 
+    /**
+     * 执行GET请求获取一个实时输入流，响应不会全部缓冲到内存中，适合下载大文件，使用完毕后必须关闭该流
+     *
+     * @param url
+     *            请求地址
+     * @return 结果流，关闭后连接将释放回连接池
+     * @throws IOException
+     *             IO异常
+     */
+    public InputStream openGetStream(String url) throws IOException {
+        IHttpRequestBase.Builder<IHttpGet> builder = IHttpGet.builder(url);
+        builder.config(new IHttpConfig());
+        return client.execute(builder.build()).openStream();
+    }
+
+    /**
+     * 下载资源到文件，服务端支持范围请求时分段并行下载并且支持断点续传，详见{@link RangeDownloader}
+     *
+     * @param url
+     *            资源地址
+     * @param file
+     *            目标文件
+     * @return 文件大小
+     * @throws IOException
+     *             IO异常
+     */
+    public long download(String url, File file) throws IOException {
+        return download(url, file, RangeDownloader.DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * 下载资源到文件，服务端支持范围请求时分段并行下载并且支持断点续传，详见{@link RangeDownloader}
+     *
+     * @param url
+     *            资源地址
+     * @param file
+     *            目标文件
+     * @param segments
+     *            最大分段数，即最大并发连接数
+     * @return 文件大小
+     * @throws IOException
+     *             IO异常
+     */
+    public long download(String url, File file, int segments) throws IOException {
+        return new RangeDownloader(client, segments).download(url, file);
+    }
+
     /**
      * 执行GET请求
      *
@@ -184,6 +235,67 @@ public class IHttpClientUtil {
         return execute(builder, resultCharset);
     }
 
+    /**
+     * 异步执行GET请求
+     *
+     * @param url
+     *            请求地址
+     * @return 请求结果字符串的future
+     */
+    public CompletableFuture<String> executeGetAsync(String url) {
+        return executeGetAsync(url, null);
+    }
+
+    /**
+     * 异步执行GET请求
+     *
+     * @param url
+     *            请求地址
+     * @param resultCharset
+     *            请求结果编码
+     * @return 请求结果字符串的future
+     */
+    public CompletableFuture<String> executeGetAsync(String url, String resultCharset) {
+        return executeAsync(IHttpGet.builder(url).contentType(IHttpRequestBase.CONTENT_TYPE_JSON), resultCharset);
+    }
+
+    /**
+     * 异步执行POST请求
+     *
+     * @param url
+     *            请求地址
+     * @param data
+     *            请求body数据
+     * @return 请求结果字符串的future
+     */
+    public CompletableFuture<String> executePostAsync(String url, String data) {
+        return executePostAsync(url, data, null, null, null);
+    }
+
+    /**
+     * 异步执行POST请求
+     *
+     * @param url
+     *            请求地址
+     * @param data
+     *            请求body数据
+     * @param resultCharset
+     *            请求body数据编码
+     * @param requestCharset
+     *            请求结果编码
+     * @param contentType
+     *            请求content-type
+     * @return 请求结果字符串的future
+     */
+    public CompletableFuture<String> executePostAsync(String url, String data, String resultCharset,
+        String requestCharset, String contentType) {
+        IHttpRequestBase.Builder<IHttpPost> builder = IHttpPost.builder(url);
+        builder.entity(data);
+        builder.charset(StringUtils.isEmpty(requestCharset) ? IHttpRequestBase.CHARSET : requestCharset);
+        builder.contentType(StringUtils.isEmpty(contentType) ? IHttpRequestBase.CONTENT_TYPE_JSON : contentType);
+        return executeAsync(builder, resultCharset);
+    }
+
     /**
      * 执行HTTP请求
      *
@@ -217,6 +329,27 @@ public class IHttpClientUtil {
         return response.getResult(resultCharset);
     }
 
+    /**
+     * 异步执行HTTP请求
+     *
+     * @param builder
+     *            请求builder
+     * @param resultCharset
+     *            请求结果编码
+     * @return 请求结果字符串的future
+     */
+    public CompletableFuture<String> executeAsync(IHttpRequestBase.Builder<? extends IHttpRequestBase> builder,
+        String resultCharset) {
+        builder.config(new IHttpConfig());
+        return client.executeAsync(builder.build()).thenApply(response -> {
+            try {
+                return response.getResult(resultCharset);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
     /**
      * 关闭该工具类，同时会关闭传入该工具类中的Client，不会关闭默认client
      *
@@ -0,0 +1,111 @@
+package com.joe.http.client;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.conn.routing.HttpRoute;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.joe.http.config.IHttpClientConfig;
+
+/**
+ * 根据每个route获取连接的等待耗时以及上游耗时（连接占用时长）周期性的调整route的最大连接数：
+ * <ul>
+ * <li>上游耗时相比基线明显上升时认为上游过载，缩小连接数，避免继续加压；</li>
+ * <li>获取连接等待耗时超过阈值并且连接已经用满时认为连接数不够，扩大连接数；</li>
+ * <li>连接使用峰值不到上限的一半时逐步缩小连接数，但是不会小于初始配置。</li>
+ * </ul>
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 13:05 JoeKerouac Exp $
+ */
+class AdaptivePoolSizer implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptivePoolSizer.class);
+
+    /**
+     * 上游耗时超过基线的该倍数时缩小连接数
+     */
+    private static final double LATENCY_TOLERANCE = 1.5;
+
+    /**
+     * 基线的平滑系数
+     */
+    private static final double BASELINE_ALPHA = 0.1;
+
+    private final InstrumentedConnectionManager connManager;
+
+    private final int minPerRoute;
+
+    private final int maxPerRoute;
+
+    private final long leaseWaitThreshold;
+
+    AdaptivePoolSizer(InstrumentedConnectionManager connManager, IHttpClientConfig config) {
+        this.connManager = connManager;
+        this.minPerRoute = Math.max(1, config.getAdaptiveMinPerRoute());
+        this.maxPerRoute =
+            config.getAdaptiveMaxPerRoute() <= 0 ? config.getMaxTotal() : config.getAdaptiveMaxPerRoute();
+        this.leaseWaitThreshold = TimeUnit.MILLISECONDS.toNanos(config.getAdaptiveLeaseWaitThreshold());
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (Map.Entry<HttpRoute, RouteState> entry : connManager.getRouteStates().entrySet()) {
+                adjust(entry.getKey(), entry.getValue());
+            }
+        } catch (Throwable e) {
+            // 不能抛出异常，否则定时任务将会终止
+            log.warn("自适应调整连接池大小异常", e);
+        }
+    }
+
+    private void adjust(HttpRoute route, RouteState state) {
+        long leases = state.windowLeases.sumThenReset();
+        long leaseWait = state.windowLeaseWait.sumThenReset();
+        long releases = state.windowReleases.sumThenReset();
+        long hold = state.windowHold.sumThenReset();
+        long peakLeased = state.windowPeakLeased.getThenReset();
+        state.windowPeakLeased.accumulate(state.leased.get());
+
+        int current = connManager.getMaxPerRoute(route);
+        if (leases == 0 || releases == 0) {
+            // 窗口内没有请求，逐步缩小到初始配置
+            int target = Math.max(state.baseMax, (int)(current * 0.9));
+            if (target < current && peakLeased * 2 < current) {
+                connManager.setMaxPerRoute(route, target);
+            }
+            return;
+        }
+
+        double avgWait = (double)leaseWait / leases;
+        double avgHold = (double)hold / releases;
+        if (state.baselineHold <= 0) {
+            state.baselineHold = avgHold;
+        }
+
+        int target = current;
+        if (avgHold > state.baselineHold * LATENCY_TOLERANCE) {
+            // 上游变慢，缩小连接数
+            target = (int)(current * 0.8);
+        } else if (avgWait > leaseWaitThreshold && peakLeased >= current) {
+            // 连接不够用，扩大连接数
+            target = Math.max(current + 1, (int)Math.ceil(current * 1.25));
+        } else if (peakLeased * 2 < current) {
+            // 连接使用率低，逐步缩小到初始配置
+            target = Math.max(state.baseMax, (int)(current * 0.9));
+        }
+        target = Math.max(minPerRoute, Math.min(maxPerRoute, target));
+
+        // 基线慢速跟随上游耗时，使得上游耗时的长期变化能被接受
+        state.baselineHold = state.baselineHold * (1 - BASELINE_ALPHA) + avgHold * BASELINE_ALPHA;
+
+        if (target != current) {
+            log.debug("route[{}]最大连接数由{}调整为{}，平均等待连接耗时：{}ns，平均上游耗时：{}ns", route, current, target,
+                (long)avgWait, (long)avgHold);
+            connManager.setMaxPerRoute(route, target);
+        }
+    }
+}
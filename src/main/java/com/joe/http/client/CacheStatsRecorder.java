@@ -0,0 +1,56 @@
+package com.joe.http.client;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.http.client.cache.CacheResponseStatus;
+
+/**
+ * 响应缓存统计
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 15:30 JoeKerouac Exp $
+ */
+class CacheStatsRecorder {
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder validated = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder moduleResponses = new LongAdder();
+
+    /**
+     * 记录一次请求的缓存状态
+     *
+     * @param status
+     *            缓存状态，为null时不记录
+     */
+    void record(CacheResponseStatus status) {
+        if (status == null) {
+            return;
+        }
+        switch (status) {
+            case CACHE_HIT:
+                hits.increment();
+                break;
+            case VALIDATED:
+                validated.increment();
+                break;
+            case CACHE_MISS:
+                misses.increment();
+                break;
+            default:
+                moduleResponses.increment();
+        }
+    }
+
+    /**
+     * 获取统计快照
+     *
+     * @return 统计快照
+     */
+    IHttpCacheStats snapshot() {
+        return new IHttpCacheStats(hits.sum(), validated.sum(), misses.sum(), moduleResponses.sum());
+    }
+}
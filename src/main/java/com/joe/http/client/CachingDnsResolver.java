@@ -0,0 +1,279 @@
+package com.joe.http.client;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.util.InetAddressUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.joe.http.exception.NetException;
+
+/**
+ * 带缓存的DNS解析，支持成功、失败结果分别设置缓存时间，支持静态host配置；开启预刷新后缓存即将过期时如果被访问将在后台线程刷新，
+ * 请求线程继续使用旧的结果，不会阻塞
+ *
+ * DNS解析是阻塞的，可能耗时数秒，所以预刷新使用自己的有界线程池而不是client的后台维护线程，避免阻塞连接清理等定时任务；线程池
+ * 和队列都满时放弃本次预刷新，缓存过期后由请求线程重新解析
+ *
+ * PS:底层仍然通过{@link InetAddress}解析，JVM本身的DNS缓存（networkaddress.cache.ttl）仍然生效
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 14:20 JoeKerouac Exp $
+ */
+class CachingDnsResolver implements DnsResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(CachingDnsResolver.class);
+
+    /**
+     * 缓存数量超过该值时清理过期缓存
+     */
+    private static final int PURGE_THRESHOLD = 4096;
+
+    /**
+     * 缓存剩余时间低于TTL的该比例时触发预刷新
+     */
+    private static final double REFRESH_AHEAD_RATIO = 0.2;
+
+    /**
+     * 预刷新的最大线程数
+     */
+    private static final int REFRESH_THREADS = 4;
+
+    /**
+     * 预刷新的最大排队数
+     */
+    private static final int REFRESH_QUEUE_SIZE = 256;
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    /**
+     * 实际的DNS解析
+     */
+    private final DnsResolver delegate;
+
+    /**
+     * 静态host配置，优先级最高
+     */
+    private final Map<String, InetAddress[]> overrides;
+
+    /**
+     * 解析成功的缓存时间，单位纳秒
+     */
+    private final long ttl;
+
+    /**
+     * 解析失败的缓存时间，单位纳秒
+     */
+    private final long negativeTtl;
+
+    /**
+     * 预刷新使用的线程池，为null时不预刷新
+     */
+    private final ThreadPoolExecutor refresher;
+
+    /**
+     * 缓存
+     */
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder negativeHits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder refreshes = new LongAdder();
+
+    /**
+     * 构造器
+     *
+     * @param delegate
+     *            实际的DNS解析
+     * @param overrides
+     *            静态host配置，key为host，value为IP字面量列表
+     * @param ttl
+     *            解析成功的缓存时间，单位毫秒
+     * @param negativeTtl
+     *            解析失败的缓存时间，单位毫秒，小于等于0表示不缓存
+     * @param refreshAhead
+     *            缓存即将过期时是否在后台预刷新
+     */
+    CachingDnsResolver(DnsResolver delegate, Map<String, List<String>> overrides, long ttl, long negativeTtl,
+        boolean refreshAhead) {
+        this.delegate = delegate;
+        this.ttl = TimeUnit.MILLISECONDS.toNanos(ttl);
+        this.negativeTtl = TimeUnit.MILLISECONDS.toNanos(negativeTtl);
+        this.overrides = parseOverrides(overrides);
+        if (refreshAhead) {
+            int id = COUNTER.incrementAndGet();
+            AtomicInteger threads = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS, 60,
+                TimeUnit.SECONDS, new ArrayBlockingQueue<>(REFRESH_QUEUE_SIZE), runnable -> {
+                    Thread thread = new Thread(runnable, "IHttpClient-dns-" + id + "-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            // 空闲时不保留线程
+            executor.allowCoreThreadTimeOut(true);
+            this.refresher = executor;
+        } else {
+            this.refresher = null;
+        }
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        String key = host.toLowerCase();
+        InetAddress[] override = overrides.get(key);
+        if (override != null) {
+            return override.clone();
+        }
+
+        long now = System.nanoTime();
+        Entry entry = cache.get(key);
+        if (entry != null && now - entry.expireAt < 0) {
+            if (entry.addresses == null) {
+                negativeHits.increment();
+                throw new UnknownHostException(entry.error);
+            }
+            hits.increment();
+            if (refresher != null && now - entry.refreshAt >= 0 && entry.refreshing.compareAndSet(false, true)) {
+                try {
+                    refresher.execute(() -> refresh(key, entry));
+                } catch (RejectedExecutionException e) {
+                    // 预刷新积压或者已经关闭，放弃本次预刷新
+                    entry.refreshing.set(false);
+                }
+            }
+            return entry.addresses.clone();
+        }
+
+        misses.increment();
+        return load(key);
+    }
+
+    /**
+     * 获取统计数据
+     *
+     * @return 统计数据
+     */
+    IHttpDnsStats stats() {
+        return new IHttpDnsStats(hits.sum(), negativeHits.sum(), misses.sum(), refreshes.sum(), cache.size());
+    }
+
+    /**
+     * 关闭预刷新线程池，关闭后不再预刷新，缓存仍然可用
+     */
+    void close() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    private InetAddress[] load(String host) throws UnknownHostException {
+        if (cache.size() > PURGE_THRESHOLD) {
+            long now = System.nanoTime();
+            cache.values().removeIf(entry -> now - entry.expireAt >= 0);
+        }
+
+        try {
+            InetAddress[] addresses = delegate.resolve(host);
+            cache.put(host, new Entry(addresses, null, ttl));
+            return addresses.clone();
+        } catch (UnknownHostException e) {
+            if (negativeTtl > 0) {
+                cache.put(host, new Entry(null, e.getMessage(), negativeTtl));
+            }
+            throw e;
+        }
+    }
+
+    private void refresh(String host, Entry old) {
+        try {
+            InetAddress[] addresses = delegate.resolve(host);
+            cache.put(host, new Entry(addresses, null, ttl));
+            refreshes.increment();
+        } catch (Throwable e) {
+            // 刷新失败继续使用旧的结果直到过期，过期后由请求线程重新解析
+            log.debug("DNS预刷新失败，host：{}", host, e);
+            old.refreshing.set(false);
+        }
+    }
+
+    private static Map<String, InetAddress[]> parseOverrides(Map<String, List<String>> overrides) {
+        if (overrides == null || overrides.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, InetAddress[]> result = new HashMap<>();
+        overrides.forEach((host, ips) -> {
+            InetAddress[] addresses = new InetAddress[ips.size()];
+            for (int i = 0; i < ips.size(); i++) {
+                String ip = ips.get(i) == null ? null : ips.get(i).trim();
+                // 只接受IP字面量，getByName对IP字面量不会发起DNS查询，对域名会，所以要先校验
+                if (ip == null || !(InetAddressUtils.isIPv4Address(ip) || InetAddressUtils.isIPv6Address(ip))) {
+                    throw new NetException("静态host配置的值必须是IP：" + host + " -> " + ips.get(i));
+                }
+                try {
+                    addresses[i] = InetAddress.getByAddress(host, InetAddress.getByName(ip).getAddress());
+                } catch (UnknownHostException e) {
+                    throw new NetException("静态host配置不合法：" + host + " -> " + ips.get(i), e);
+                }
+            }
+            result.put(host.toLowerCase(), addresses);
+        });
+        return result;
+    }
+
+    /**
+     * 缓存项
+     */
+    private static final class Entry {
+
+        /**
+         * 解析结果，解析失败时为null
+         */
+        private final InetAddress[] addresses;
+
+        /**
+         * 解析失败的原因
+         */
+        private final String error;
+
+        /**
+         * 过期时间，System.nanoTime
+         */
+        private final long expireAt;
+
+        /**
+         * 预刷新时间，System.nanoTime
+         */
+        private final long refreshAt;
+
+        /**
+         * 是否正在刷新
+         */
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(InetAddress[] addresses, String error, long ttl) {
+            long now = System.nanoTime();
+            this.addresses = addresses;
+            this.error = error;
+            this.expireAt = now + ttl;
+            this.refreshAt = now + (long)(ttl * (1 - REFRESH_AHEAD_RATIO));
+        }
+    }
+}
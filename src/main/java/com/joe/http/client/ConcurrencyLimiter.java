@@ -0,0 +1,294 @@
+package com.joe.http.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.http.HttpHost;
+
+import com.joe.http.config.IHttpClientConfig;
+import com.joe.http.config.LimitAlgorithm;
+import com.joe.http.exception.ConcurrencyLimitException;
+
+/**
+ * 每个站点的自适应并发限制，位于连接池之前；根据请求耗时以及失败情况调整每个站点的并发限制，超过限制的请求等待一段时间或者
+ * 直接拒绝，避免上游变慢时大量线程堆积在连接池中
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 17:10 JoeKerouac Exp $
+ */
+class ConcurrencyLimiter {
+
+    /**
+     * 梯度算法长期平均耗时的平滑系数
+     */
+    private static final double LONG_RTT_ALPHA = 2.0 / 601;
+
+    /**
+     * 梯度算法调整限制时的平滑系数
+     */
+    private static final double SMOOTHING = 0.2;
+
+    /**
+     * 每个站点的限制，key为站点（scheme://host:port）
+     */
+    private final ConcurrentMap<String, HostLimit> limits = new ConcurrentHashMap<>();
+
+    private final LimitAlgorithm algorithm;
+
+    private final IHttpClientConfig config;
+
+    /**
+     * 每个route单独的最大连接数配置，key已经规范化
+     */
+    private final Map<String, Integer> maxPerRoute;
+
+    private final int initialLimit;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long latencyThresholdNanos;
+
+    private final double backoffRatio;
+
+    private final long queueTimeout;
+
+    ConcurrencyLimiter(IHttpClientConfig config) {
+        this.config = config;
+        this.maxPerRoute = InstrumentedConnectionManager.normalizeMaxPerRoute(config.getMaxPerRoute());
+        this.algorithm = config.getConcurrencyLimitAlgorithm();
+        this.minLimit = Math.max(1, config.getConcurrencyMinLimit());
+        this.maxLimit = Math.max(minLimit, config.getConcurrencyMaxLimit());
+        this.initialLimit = Math.min(maxLimit, Math.max(minLimit, config.getConcurrencyInitialLimit()));
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(config.getConcurrencyLatencyThreshold());
+        this.backoffRatio = config.getConcurrencyBackoffRatio();
+        this.queueTimeout = config.getConcurrencyQueueTimeout();
+    }
+
+    /**
+     * 获取指定站点的并发许可，获取成功后必须调用{@link Permit#release(boolean)}
+     *
+     * @param host
+     *            站点
+     * @return 许可
+     * @throws ConcurrencyLimitException
+     *             等待超时或者不等待时并发已经达到限制
+     */
+    Permit acquire(HttpHost host) {
+        String key = host.toURI();
+        HostLimit limit = limits.get(key);
+        if (limit == null) {
+            int max = maxLimit(host);
+            limit = limits.computeIfAbsent(key, k -> new HostLimit(Math.min(initialLimit, max), max));
+        }
+        boolean acquired;
+        if (queueTimeout <= 0) {
+            acquired = limit.semaphore.tryAcquire();
+        } else {
+            try {
+                acquired = limit.semaphore.tryAcquire(queueTimeout, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                acquired = false;
+            }
+        }
+
+        if (!acquired) {
+            limit.rejected.increment();
+            throw new ConcurrencyLimitException(key, (int)limit.limit);
+        }
+        limit.accepted.increment();
+        return new Permit(limit, limit.inFlight.incrementAndGet());
+    }
+
+    /**
+     * 获取统计快照
+     *
+     * @return 统计快照
+     */
+    IHttpConcurrencyStats stats() {
+        Map<String, IHttpConcurrencyStats.HostStats> hosts = new LinkedHashMap<>();
+        for (Map.Entry<String, HostLimit> entry : limits.entrySet()) {
+            HostLimit limit = entry.getValue();
+            hosts.put(entry.getKey(), new IHttpConcurrencyStats.HostStats((int)limit.limit, limit.inFlight.get(),
+                limit.semaphore.getQueueLength(), limit.accepted.sum(), limit.rejected.sum()));
+        }
+        return new IHttpConcurrencyStats(algorithm, hosts);
+    }
+
+    /**
+     * 根据一次请求的结果调整限制
+     *
+     * @param limit
+     *            站点限制
+     * @param rtt
+     *            请求耗时，单位纳秒
+     * @param inFlight
+     *            请求发出时的并发数
+     * @param dropped
+     *            请求是否失败
+     */
+    private void update(HostLimit limit, long rtt, int inFlight, boolean dropped) {
+        synchronized (limit) {
+            double current = limit.limit;
+            double next;
+            if (algorithm == LimitAlgorithm.AIMD) {
+                if (dropped || rtt > latencyThresholdNanos) {
+                    next = current * backoffRatio;
+                } else if (inFlight * 2 >= current) {
+                    next = current + 1;
+                } else {
+                    next = current;
+                }
+            } else {
+                limit.longRtt = limit.longRtt == 0 ? rtt : limit.longRtt * (1 - LONG_RTT_ALPHA) + rtt * LONG_RTT_ALPHA;
+                if (dropped) {
+                    next = current * backoffRatio;
+                } else if (inFlight * 2 < current) {
+                    // 并发远小于限制时耗时不能说明限制是否合适
+                    next = current;
+                } else {
+                    double gradient = Math.max(0.5, Math.min(1.0, limit.longRtt / Math.max(1, rtt)));
+                    double target = current * gradient + Math.sqrt(current);
+                    next = current * (1 - SMOOTHING) + target * SMOOTHING;
+                }
+            }
+            limit.setLimit(Math.min(limit.max, Math.max(minLimit, next)));
+        }
+    }
+
+    /**
+     * 计算站点的最大并发限制，超过该站点连接池最大连接数的请求只会在连接池中排队，所以最大并发限制不超过连接池的最大连接数
+     *
+     * @param host
+     *            站点
+     * @return 最大并发限制
+     */
+    private int maxLimit(HttpHost host) {
+        int poolMax;
+        if (config.isAdaptivePoolSizing()) {
+            poolMax =
+                config.getAdaptiveMaxPerRoute() <= 0 ? config.getMaxTotal() : config.getAdaptiveMaxPerRoute();
+        } else {
+            Integer max = InstrumentedConnectionManager.resolveMaxPerRoute(maxPerRoute, host);
+            poolMax = max == null ? config.getDefaultMaxPerRoute() : max;
+        }
+        return Math.max(minLimit, Math.min(maxLimit, poolMax));
+    }
+
+    /**
+     * 并发许可
+     */
+    final class Permit {
+
+        private final HostLimit limit;
+
+        private final int inFlight;
+
+        private final long start = System.nanoTime();
+
+        /**
+         * 响应body读取完毕、响应关闭、中止可能发生在不同的线程，许可只能释放一次
+         */
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(HostLimit limit, int inFlight) {
+            this.limit = limit;
+            this.inFlight = inFlight;
+        }
+
+        /**
+         * 释放许可并根据请求结果调整限制，重复调用时只有第一次生效
+         *
+         * @param dropped
+         *            请求是否失败（IO异常、5xx、429）
+         */
+        void release(boolean dropped) {
+            if (released.compareAndSet(false, true)) {
+                update(limit, System.nanoTime() - start, inFlight, dropped);
+                limit.inFlight.decrementAndGet();
+                limit.semaphore.release();
+            }
+        }
+
+        /**
+         * 释放许可，不调整限制，用于请求被主动中止的情况，重复调用时只有第一次生效
+         */
+        void cancel() {
+            if (released.compareAndSet(false, true)) {
+                limit.inFlight.decrementAndGet();
+                limit.semaphore.release();
+            }
+        }
+    }
+
+    /**
+     * 单个站点的限制
+     */
+    private static final class HostLimit {
+
+        private final AdjustableSemaphore semaphore;
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private final LongAdder accepted = new LongAdder();
+
+        private final LongAdder rejected = new LongAdder();
+
+        /**
+         * 最大限制
+         */
+        private final int max;
+
+        /**
+         * 当前限制，实际生效的是整数部分
+         */
+        private volatile double limit;
+
+        /**
+         * 长期平均耗时，单位纳秒，梯度算法使用
+         */
+        private double longRtt;
+
+        HostLimit(int limit, int max) {
+            this.max = max;
+            this.limit = limit;
+            this.semaphore = new AdjustableSemaphore(limit);
+        }
+
+        void setLimit(double limit) {
+            int delta = (int)limit - (int)this.limit;
+            this.limit = limit;
+            if (delta > 0) {
+                semaphore.release(delta);
+            } else if (delta < 0) {
+                semaphore.reducePermits(-delta);
+            }
+        }
+    }
+
+    /**
+     * 可以减少许可数的信号量，减少后正在使用的许可释放时才会生效
+     */
+    private static final class AdjustableSemaphore extends Semaphore {
+
+        private static final long serialVersionUID = -6539542740916102393L;
+
+        AdjustableSemaphore(int permits) {
+            super(permits);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.joe.http.client;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.http.client.CookieStore;
+import org.apache.http.cookie.Cookie;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 并发的CookieStore，按照domain和name建立索引，读取不加锁；同一个domain（name）的修改在ConcurrentHashMap的桶锁上串行，不同
+ * domain之间互不影响，适合一个client中有大量会话的场景；cookie的唯一标识与{@link org.apache.http.impl.client.BasicCookieStore}
+ * 相同，为name、domain（忽略大小写）、path
+ *
+ * IHttpClient发送请求时通过{@link #getCookies(String)}只读取目标host的cookie（见{@link RequestHostCookies}），不会每次请求都
+ * 复制整个CookieStore
+ *
+ * PS:过期cookie不会在读取时清理，需要调用{@link #clearExpired(Date)}，IHttpClient会在后台定时清理
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 18:50 JoeKerouac Exp $
+ */
+public class ConcurrentCookieStore implements CookieStore {
+
+    /**
+     * 所有cookie
+     */
+    private final ConcurrentHashMap<CookieKey, Cookie> cookies = new ConcurrentHashMap<>();
+
+    /**
+     * domain索引，key为去掉前导点的小写domain
+     */
+    private final ConcurrentHashMap<String, Map<CookieKey, Cookie>> domainIndex = new ConcurrentHashMap<>();
+
+    /**
+     * name索引
+     */
+    private final ConcurrentHashMap<String, Map<CookieKey, Cookie>> nameIndex = new ConcurrentHashMap<>();
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        if (cookie == null) {
+            return;
+        }
+        CookieKey key = CookieKey.of(cookie);
+        // 先在domain索引的桶锁内修改，保证同一个domain的修改是串行的，索引和主表不会出现不一致
+        domainIndex.compute(key.domain, (domain, index) -> {
+            Map<CookieKey, Cookie> result = index == null ? new ConcurrentHashMap<>() : index;
+            if (cookie.isExpired(new Date())) {
+                result.remove(key);
+                cookies.remove(key);
+                removeFromNameIndex(key);
+            } else {
+                result.put(key, cookie);
+                cookies.put(key, cookie);
+                nameIndex.compute(key.name, (name, nameCookies) -> {
+                    Map<CookieKey, Cookie> value = nameCookies == null ? new ConcurrentHashMap<>() : nameCookies;
+                    value.put(key, cookie);
+                    return value;
+                });
+            }
+            return result.isEmpty() ? null : result;
+        });
+    }
+
+    @Override
+    public List<Cookie> getCookies() {
+        return new ArrayList<>(cookies.values());
+    }
+
+    /**
+     * 获取指定name的cookie，有多个同名cookie（不同domain或者path）时返回其中任意一个
+     *
+     * @param name
+     *            cookie名
+     * @return cookie，不存在时返回null
+     */
+    public Cookie getCookie(String name) {
+        Map<CookieKey, Cookie> index = name == null ? null : nameIndex.get(name);
+        if (index == null) {
+            return null;
+        }
+        for (Cookie cookie : index.values()) {
+            return cookie;
+        }
+        return null;
+    }
+
+    /**
+     * 获取host可以使用的cookie，即domain为host本身或者host的上级域名的cookie，不校验path、secure以及是否过期
+     *
+     * @param host
+     *            host
+     * @return cookie列表
+     */
+    public List<Cookie> getCookies(String host) {
+        List<Cookie> result = new ArrayList<>();
+        if (host == null) {
+            return result;
+        }
+        String domain = normalize(host);
+        while (true) {
+            Map<CookieKey, Cookie> index = domainIndex.get(domain);
+            if (index != null) {
+                result.addAll(index.values());
+            }
+            int dot = domain.indexOf('.');
+            if (dot < 0) {
+                return result;
+            }
+            domain = domain.substring(dot + 1);
+        }
+    }
+
+    @Override
+    public boolean clearExpired(Date date) {
+        if (date == null) {
+            return false;
+        }
+        boolean removed = false;
+        for (Map.Entry<CookieKey, Cookie> entry : cookies.entrySet()) {
+            if (entry.getValue().isExpired(date)) {
+                removed |= remove(entry.getKey(), entry.getValue());
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        for (Map.Entry<CookieKey, Cookie> entry : cookies.entrySet()) {
+            remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * cookie数量
+     *
+     * @return cookie数量
+     */
+    public int size() {
+        return cookies.size();
+    }
+
+    @Override
+    public String toString() {
+        return cookies.values().toString();
+    }
+
+    /**
+     * 删除cookie，如果cookie已经被替换则不删除
+     *
+     * @param key
+     *            cookie的唯一标识
+     * @param cookie
+     *            要删除的cookie
+     * @return 是否删除
+     */
+    private boolean remove(CookieKey key, Cookie cookie) {
+        boolean[] removed = new boolean[1];
+        domainIndex.computeIfPresent(key.domain, (domain, index) -> {
+            if (index.remove(key, cookie)) {
+                cookies.remove(key, cookie);
+                removeFromNameIndex(key);
+                removed[0] = true;
+            }
+            return index.isEmpty() ? null : index;
+        });
+        return removed[0];
+    }
+
+    private void removeFromNameIndex(CookieKey key) {
+        nameIndex.computeIfPresent(key.name, (name, index) -> {
+            index.remove(key);
+            return index.isEmpty() ? null : index;
+        });
+    }
+
+    private static String normalize(String domain) {
+        if (domain == null) {
+            return "";
+        }
+        String result = domain.toLowerCase(Locale.ROOT);
+        return result.startsWith(".") ? result.substring(1) : result;
+    }
+
+    /**
+     * cookie的唯一标识
+     */
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class CookieKey {
+
+        private final String name;
+
+        private final String domain;
+
+        private final String path;
+
+        static CookieKey of(Cookie cookie) {
+            String path = cookie.getPath();
+            return new CookieKey(cookie.getName(), normalize(cookie.getDomain()), path == null ? "/" : path);
+        }
+    }
+}
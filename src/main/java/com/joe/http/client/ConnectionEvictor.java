@@ -0,0 +1,65 @@
+package com.joe.http.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 后台清理同步、异步连接池中过期以及空闲时间过长的连接，使得请求线程不需要在获取连接时校验连接；同时清理同步连接池中空闲时间
+ * 过长并且已经没有连接的route统计
+ *
+ * PS:不能持有IHttpClient的引用，否则用户没有关闭的IHttpClient将不能被回收
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 13:40 JoeKerouac Exp $
+ */
+class ConnectionEvictor implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(ConnectionEvictor.class);
+
+    /**
+     * 同步连接池，使用共享连接池时为null
+     */
+    private final InstrumentedConnectionManager connManager;
+
+    /**
+     * 异步连接池，异步client初始化后设置
+     */
+    private volatile PoolingNHttpClientConnectionManager asyncConnManager;
+
+    /**
+     * 最大空闲时间，单位毫秒
+     */
+    private final long maxIdleTime;
+
+    ConnectionEvictor(InstrumentedConnectionManager connManager, long maxIdleTime) {
+        this.connManager = connManager;
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    void setAsyncConnManager(PoolingNHttpClientConnectionManager asyncConnManager) {
+        this.asyncConnManager = asyncConnManager;
+    }
+
+    @Override
+    public void run() {
+        try {
+            if (connManager != null) {
+                connManager.closeExpiredConnections();
+                connManager.closeIdleConnections(maxIdleTime, TimeUnit.MILLISECONDS);
+                connManager.evictIdleRoutes(maxIdleTime);
+            }
+
+            PoolingNHttpClientConnectionManager asyncConnManager = this.asyncConnManager;
+            if (asyncConnManager != null) {
+                asyncConnManager.closeExpiredConnections();
+                asyncConnManager.closeIdleConnections(maxIdleTime, TimeUnit.MILLISECONDS);
+            }
+        } catch (Throwable e) {
+            // 不能抛出异常，否则定时任务将会终止
+            log.warn("清理连接异常", e);
+        }
+    }
+}
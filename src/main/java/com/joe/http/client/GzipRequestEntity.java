@@ -0,0 +1,177 @@
+package com.joe.http.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.protocol.HTTP;
+
+/**
+ * gzip流式压缩的请求body，同步请求通过{@link #writeTo(OutputStream)}边压缩边写出，异步请求通过{@link #getContent()}边读取边压缩，
+ * 都不会将完整的压缩结果放到内存中
+ *
+ * PS:httpclient自带的GzipCompressingEntity不支持getContent，不能用于异步请求
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 17:50 JoeKerouac Exp $
+ */
+class GzipRequestEntity extends HttpEntityWrapper {
+
+    private static final Header GZIP = new BasicHeader(HTTP.CONTENT_ENCODING, "gzip");
+
+    GzipRequestEntity(HttpEntity wrappedEntity) {
+        super(wrappedEntity);
+    }
+
+    @Override
+    public Header getContentEncoding() {
+        return GZIP;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public boolean isChunked() {
+        return true;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        return new GzipInputStream(wrappedEntity.getContent());
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        GzipOutputStream gzip = new GzipOutputStream(outStream);
+        try {
+            wrappedEntity.writeTo(gzip);
+            // 不能关闭底层的流，只写出gzip尾部
+            gzip.finish();
+        } finally {
+            // finish不会释放Deflater的native内存，不关闭流时需要手动释放
+            gzip.end();
+        }
+    }
+
+    /**
+     * 可以只释放Deflater而不关闭底层流的gzip输出流
+     */
+    private static final class GzipOutputStream extends GZIPOutputStream {
+
+        GzipOutputStream(OutputStream out) throws IOException {
+            super(out, 8 * 1024);
+        }
+
+        void end() {
+            def.end();
+        }
+    }
+
+    /**
+     * 读取时压缩的gzip流：头部 + deflate数据 + 尾部（CRC32、原始长度）
+     */
+    private static final class GzipInputStream extends InputStream {
+
+        private static final byte[] HEADER = {0x1f, (byte)0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte)0xff};
+
+        private final CheckedInputStream source;
+
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+        private final DeflaterInputStream deflated;
+
+        private final byte[] single = new byte[1];
+
+        private byte[] trailer;
+
+        /**
+         * 头部或者尾部当前读取位置
+         */
+        private int position;
+
+        /**
+         * 0：头部，1：deflate数据，2：尾部，3：结束
+         */
+        private int stage;
+
+        GzipInputStream(InputStream source) {
+            this.source = new CheckedInputStream(source, new CRC32());
+            this.deflated = new DeflaterInputStream(this.source, deflater, 8 * 1024);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (true) {
+                switch (stage) {
+                    case 0:
+                        if (position < HEADER.length) {
+                            int n = Math.min(len, HEADER.length - position);
+                            System.arraycopy(HEADER, position, b, off, n);
+                            position += n;
+                            return n;
+                        }
+                        stage = 1;
+                        break;
+                    case 1:
+                        int n = deflated.read(b, off, len);
+                        if (n != -1) {
+                            return n;
+                        }
+                        trailer = trailer(source.getChecksum().getValue(), deflater.getBytesRead());
+                        position = 0;
+                        stage = 2;
+                        break;
+                    case 2:
+                        if (position < trailer.length) {
+                            int count = Math.min(len, trailer.length - position);
+                            System.arraycopy(trailer, position, b, off, count);
+                            position += count;
+                            return count;
+                        }
+                        stage = 3;
+                        break;
+                    default:
+                        return -1;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                deflated.close();
+            } finally {
+                deflater.end();
+            }
+        }
+
+        private static byte[] trailer(long crc, long size) {
+            byte[] trailer = new byte[8];
+            for (int i = 0; i < 4; i++) {
+                trailer[i] = (byte)(crc >>> (i * 8));
+                trailer[i + 4] = (byte)(size >>> (i * 8));
+            }
+            return trailer;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.joe.http.client;
+
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * 连接保活策略，优先使用服务器响应的Keep-Alive头中的timeout，服务器没有指定时使用默认保活时间
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 13:40 JoeKerouac Exp $
+ */
+class HeaderKeepAliveStrategy implements ConnectionKeepAliveStrategy {
+
+    /**
+     * 服务器没有指定时的默认保活时间，单位毫秒，小于等于0表示不限制
+     */
+    private final long defaultKeepAlive;
+
+    HeaderKeepAliveStrategy(long defaultKeepAlive) {
+        this.defaultKeepAlive = defaultKeepAlive;
+    }
+
+    @Override
+    public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+        HeaderElementIterator iterator = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+        while (iterator.hasNext()) {
+            HeaderElement element = iterator.nextElement();
+            String value = element.getValue();
+            if (value != null && "timeout".equalsIgnoreCase(element.getName())) {
+                try {
+                    return Long.parseLong(value.trim()) * 1000;
+                } catch (NumberFormatException ignore) {
+                    // 服务器响应的timeout不合法，使用默认值
+                }
+            }
+        }
+        return defaultKeepAlive > 0 ? defaultKeepAlive : -1;
+    }
+}
@@ -0,0 +1,434 @@
+package com.joe.http.client;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.joe.http.config.HttpBaseConfig;
+import com.joe.http.metrics.HistogramSnapshot;
+import com.joe.http.metrics.LatencyHistogram;
+
+/**
+ * 对冲请求：请求在指定时间内没有响应时再发出一个相同的请求（使用另外一个连接），先响应的请求胜出，另外一个请求将被中止并释放
+ * 连接；只能用于幂等请求
+ *
+ * 原始请求在调用线程上执行，对冲请求在单独的有界线程池中执行；对冲请求受预算限制，每个可以对冲的请求存入hedgeBudgetRatio个令牌，
+ * 每个对冲请求消耗一个令牌，令牌不足或者线程池已满时不发出对冲请求，避免上游整体变慢时对冲请求成倍放大负载
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 16:40 JoeKerouac Exp $
+ */
+class Hedger {
+
+    private static final Logger log = LoggerFactory.getLogger(Hedger.class);
+
+    /**
+     * 统计窗口，使用上一个窗口的耗时分布计算对冲延迟
+     */
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * 窗口内请求数小于该值时耗时分布不可信，使用固定的对冲延迟
+     */
+    private static final long MIN_SAMPLES = 100;
+
+    /**
+     * 对冲预算令牌的定点数精度
+     */
+    private static final long TOKEN = 1000;
+
+    /**
+     * 对冲预算最多累积的令牌数，即空闲之后最多可以连续发出的对冲请求数
+     */
+    private static final long MAX_TOKENS = 10 * TOKEN;
+
+    /**
+     * 定时器，用于在延迟到达后提交对冲请求
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * 对冲请求执行线程池，第一次对冲时创建
+     */
+    private volatile ExecutorService executor;
+
+    /**
+     * 对冲请求的最大并发数
+     */
+    private final int maxConcurrency;
+
+    /**
+     * 每个请求存入的令牌数（定点数），小于等于0表示不限制对冲请求数
+     */
+    private final long deposit;
+
+    /**
+     * 当前的令牌数（定点数），初始为满
+     */
+    private final AtomicLong tokens = new AtomicLong(MAX_TOKENS);
+
+    /**
+     * 当前窗口的耗时分布
+     */
+    private volatile LatencyHistogram window = new LatencyHistogram();
+
+    /**
+     * 当前窗口开始时间
+     */
+    private volatile long windowStart = System.nanoTime();
+
+    /**
+     * 上一个窗口的耗时分布，还没有完整窗口时为null
+     */
+    private volatile HistogramSnapshot lastWindow;
+
+    /**
+     * 可以对冲的请求数
+     */
+    private final LongAdder requests = new LongAdder();
+
+    /**
+     * 发出的对冲请求数
+     */
+    private final LongAdder sent = new LongAdder();
+
+    /**
+     * 对冲请求胜出的次数
+     */
+    private final LongAdder won = new LongAdder();
+
+    /**
+     * 由于预算不足或者线程池已满没有发出的对冲请求数
+     */
+    private final LongAdder skipped = new LongAdder();
+
+    /**
+     * 构造器
+     *
+     * @param scheduler
+     *            定时器
+     * @param maxConcurrency
+     *            对冲请求的最大并发数
+     * @param budgetRatio
+     *            每个请求存入的令牌数，即对冲请求数占请求数的最大比例，小于等于0表示不限制
+     */
+    Hedger(ScheduledExecutorService scheduler, int maxConcurrency, double budgetRatio) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("对冲请求的最大并发数必须大于0：" + maxConcurrency);
+        }
+        this.scheduler = scheduler;
+        this.maxConcurrency = maxConcurrency;
+        this.deposit = budgetRatio <= 0 ? 0 : Math.max(1, (long)(budgetRatio * TOKEN));
+    }
+
+    /**
+     * 计算对冲延迟
+     *
+     * @param config
+     *            请求配置
+     * @return 对冲延迟，单位毫秒，小于等于0表示不对冲
+     */
+    long delay(HttpBaseConfig config) {
+        double percentile = config.getHedgePercentile();
+        if (percentile <= 0) {
+            return config.getHedgeDelay();
+        }
+
+        long now = System.nanoTime();
+        if (now - windowStart >= WINDOW_NANOS) {
+            rotate(now);
+        }
+        HistogramSnapshot snapshot = lastWindow;
+        if (snapshot == null || snapshot.getCount() < MIN_SAMPLES) {
+            return config.getHedgeDelay();
+        }
+        return Math.max(1, snapshot.getPercentile(percentile, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * 执行请求，原始请求在delay毫秒内没有响应时发出对冲请求
+     *
+     * @param primary
+     *            原始请求
+     * @param hedgeBuilder
+     *            对冲请求构建器
+     * @param call
+     *            实际执行请求的逻辑
+     * @param delay
+     *            对冲延迟，单位毫秒
+     * @return 先响应的请求的响应
+     * @throws IOException
+     *             两个请求都失败时抛出原始请求的异常，原始请求的非受检异常原样抛出
+     */
+    CloseableHttpResponse execute(HttpRequestBase primary, Supplier<HttpRequestBase> hedgeBuilder, Call call,
+        long delay) throws IOException {
+        requests.increment();
+        deposit();
+        long start = System.nanoTime();
+        Race race = new Race(primary);
+        ScheduledFuture<?> timer =
+            scheduler.schedule(() -> submitHedge(race, hedgeBuilder, call, start), delay, TimeUnit.MILLISECONDS);
+
+        Throwable primaryError;
+        try {
+            CloseableHttpResponse response = call.execute(primary);
+            if (race.win(Race.PRIMARY_WON)) {
+                timer.cancel(false);
+                race.abortHedge();
+                window.recordNanos(System.nanoTime() - start);
+                return response;
+            }
+            // 对冲请求已经胜出
+            response.close();
+            primaryError = null;
+        } catch (IOException | RuntimeException | Error e) {
+            primaryError = e;
+        }
+
+        if (primaryError != null && timer.cancel(false)) {
+            // 对冲请求还没有发出
+            throw rethrow(primaryError);
+        }
+
+        try {
+            return race.hedgeResult.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            race.abortHedge();
+            throw primaryError == null ? new IOException("等待对冲请求结果时被中断", e) : rethrow(primaryError);
+        } catch (ExecutionException e) {
+            if (primaryError == null) {
+                throw rethrow(e.getCause());
+            }
+            primaryError.addSuppressed(e.getCause());
+            throw rethrow(primaryError);
+        }
+    }
+
+    /**
+     * 原样抛出IO异常以及非受检异常，其他异常包装为IO异常
+     *
+     * @param e
+     *            异常
+     * @return 包装后的IO异常，调用方需要将其抛出
+     */
+    private static IOException rethrow(Throwable e) {
+        if (e instanceof IOException) {
+            return (IOException)e;
+        } else if (e instanceof RuntimeException) {
+            throw (RuntimeException)e;
+        } else if (e instanceof Error) {
+            throw (Error)e;
+        }
+        return new IOException(e);
+    }
+
+    /**
+     * 获取统计快照
+     *
+     * @return 统计快照
+     */
+    IHttpHedgeStats stats() {
+        return new IHttpHedgeStats(requests.sum(), sent.sum(), won.sum(), skipped.sum());
+    }
+
+    /**
+     * 关闭对冲请求线程池
+     */
+    void shutdown() {
+        ExecutorService executor = this.executor;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void submitHedge(Race race, Supplier<HttpRequestBase> hedgeBuilder, Call call, long start) {
+        if (race.decided()) {
+            race.hedgeResult.completeExceptionally(new IOException("原始请求已经完成"));
+            return;
+        }
+        if (!tryAcquire()) {
+            skipped.increment();
+            race.hedgeResult.completeExceptionally(new IOException("对冲预算不足，没有发出对冲请求"));
+            return;
+        }
+        try {
+            getExecutor().execute(() -> runHedge(race, hedgeBuilder, call, start));
+        } catch (RejectedExecutionException e) {
+            // 对冲请求没有发出，归还令牌
+            refund();
+            skipped.increment();
+            race.hedgeResult.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 每个可以对冲的请求存入令牌，最多累积{@link #MAX_TOKENS}
+     */
+    private void deposit() {
+        if (deposit <= 0) {
+            return;
+        }
+        long current;
+        do {
+            current = tokens.get();
+            if (current >= MAX_TOKENS) {
+                return;
+            }
+        } while (!tokens.compareAndSet(current, Math.min(MAX_TOKENS, current + deposit)));
+    }
+
+    /**
+     * 获取一个对冲请求的令牌
+     *
+     * @return 令牌足够时返回true
+     */
+    private boolean tryAcquire() {
+        if (deposit <= 0) {
+            return true;
+        }
+        long current;
+        do {
+            current = tokens.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!tokens.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    private void refund() {
+        if (deposit > 0) {
+            tokens.addAndGet(TOKEN);
+        }
+    }
+
+    private void runHedge(Race race, Supplier<HttpRequestBase> hedgeBuilder, Call call, long start) {
+        if (race.decided()) {
+            race.hedgeResult.completeExceptionally(new IOException("原始请求已经完成"));
+            return;
+        }
+
+        sent.increment();
+        try {
+            HttpRequestBase hedge = hedgeBuilder.get();
+            race.hedge = hedge;
+            // 设置后再检查一次，防止原始请求在设置前胜出导致对冲请求没有被中止
+            if (race.decided()) {
+                hedge.abort();
+            }
+            log.debug("请求[{}]在对冲延迟内没有响应，发出对冲请求", hedge.getURI());
+            CloseableHttpResponse response = call.execute(hedge);
+            if (race.win(Race.HEDGE_WON)) {
+                won.increment();
+                window.recordNanos(System.nanoTime() - start);
+                race.hedgeResult.complete(response);
+                race.primary.abort();
+            } else {
+                response.close();
+                race.hedgeResult.completeExceptionally(new IOException("原始请求已经胜出"));
+            }
+        } catch (Throwable e) {
+            race.hedgeResult.completeExceptionally(e);
+        }
+    }
+
+    private synchronized void rotate(long now) {
+        if (now - windowStart < WINDOW_NANOS) {
+            return;
+        }
+        lastWindow = window.snapshot();
+        window = new LatencyHistogram();
+        windowStart = now;
+    }
+
+    private ExecutorService getExecutor() {
+        if (executor == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    AtomicInteger counter = new AtomicInteger();
+                    // 不排队，对冲请求只有在延迟到达时立即发出才有意义，线程池满时直接放弃对冲
+                    executor = new ThreadPoolExecutor(0, maxConcurrency, 60, TimeUnit.SECONDS,
+                        new SynchronousQueue<>(), runnable -> {
+                            Thread thread = new Thread(runnable, "IHttpClient-hedge-" + counter.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * 实际执行请求的逻辑
+     */
+    interface Call {
+
+        /**
+         * 执行请求
+         *
+         * @param request
+         *            请求
+         * @return 响应
+         * @throws IOException
+         *             IO异常
+         */
+        CloseableHttpResponse execute(HttpRequestBase request) throws IOException;
+    }
+
+    /**
+     * 原始请求与对冲请求的竞争状态
+     */
+    private static final class Race {
+
+        static final int RUNNING = 0;
+
+        static final int PRIMARY_WON = 1;
+
+        static final int HEDGE_WON = 2;
+
+        private final AtomicInteger state = new AtomicInteger(RUNNING);
+
+        private final HttpRequestBase primary;
+
+        private final CompletableFuture<CloseableHttpResponse> hedgeResult = new CompletableFuture<>();
+
+        private volatile HttpRequestBase hedge;
+
+        Race(HttpRequestBase primary) {
+            this.primary = primary;
+        }
+
+        boolean win(int winner) {
+            return state.compareAndSet(RUNNING, winner);
+        }
+
+        boolean decided() {
+            return state.get() != RUNNING;
+        }
+
+        void abortHedge() {
+            HttpRequestBase hedge = this.hedge;
+            if (hedge != null) {
+                hedge.abort();
+            }
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.joe.http.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.client.CookieStore;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.protocol.RequestAcceptEncoding;
+import org.apache.http.client.protocol.RequestAddCookies;
+import org.apache.http.client.protocol.ResponseContentEncoding;
+import org.apache.http.client.protocol.ResponseProcessCookies;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CookieSpecRegistries;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.util.EntityUtils;
+
+import com.joe.http.config.IHttpClientConfig;
+
+/**
+ * HTTP/2传输，基于httpclient5的HTTP/2客户端，https通过ALPN协商h2，http使用h2c prior knowledge；请求、响应与httpclient 4.x
+ * 相互转换，对外仍然是{@link HttpRequestBase}和{@link CloseableHttpResponse}，所以合并、对冲、并发限制等逻辑不需要区分传输协议
+ *
+ * PS:请求body会先完整读取到内存中再发送，响应body也会完整读取到内存中；cookie仍然使用IHttpClient的CookieStore
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 18:20 JoeKerouac Exp $
+ */
+class Http2Transport implements AutoCloseable {
+
+    private static final ProtocolVersion HTTP_2 = new ProtocolVersion("HTTP", 2, 0);
+
+    private static final RequestAddCookies REQUEST_ADD_COOKIES = new RequestAddCookies();
+
+    private static final ResponseProcessCookies RESPONSE_PROCESS_COOKIES = new ResponseProcessCookies();
+
+    private static final RequestAcceptEncoding REQUEST_ACCEPT_ENCODING = new RequestAcceptEncoding();
+
+    private static final ResponseContentEncoding RESPONSE_CONTENT_ENCODING = new ResponseContentEncoding();
+
+    private final CloseableHttpAsyncClient client;
+
+    private final CookieStore cookieStore;
+
+    private final boolean contentCompression;
+
+    Http2Transport(IHttpClientConfig config, SSLContext sslcontext, DnsResolver dnsResolver, CookieStore cookieStore,
+        boolean noRedirect) {
+        this.cookieStore = cookieStore;
+        this.contentCompression = config.isContentCompressionEnabled();
+
+        IOReactorConfig ioReactorConfig = IOReactorConfig.custom().setIoThreadCount(config.getIoThreadCount())
+            .setSoTimeout(Timeout.ofMilliseconds(config.getSocketTimeout())).setTcpNoDelay(true).setSoKeepAlive(true)
+            .setSndBufSize(config.getSndBufSize()).setRcvBufSize(config.getRcvBufSize()).build();
+
+        AtomicInteger counter = new AtomicInteger();
+        H2AsyncClientBuilder builder = H2AsyncClientBuilder.create().setIOReactorConfig(ioReactorConfig)
+            .setTlsStrategy(ClientTlsStrategyBuilder.create().setSslContext(sslcontext).build())
+            .setDnsResolver(new DnsResolverAdapter(dnsResolver)).setUserAgent(config.getUserAgent())
+            .disableCookieManagement().setThreadFactory(runnable -> {
+                Thread thread = new Thread(runnable, "IHttpClient-h2-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        if (config.getMaxIdleTime() > 0) {
+            builder.evictIdleConnections(TimeValue.ofMilliseconds(config.getMaxIdleTime()));
+        }
+        if (noRedirect) {
+            builder.disableRedirectHandling();
+        }
+        this.client = builder.build();
+        this.client.start();
+    }
+
+    /**
+     * 同步执行请求
+     *
+     * @param request
+     *            请求
+     * @return 响应，body已经读取到内存中
+     * @throws IOException
+     *             IO异常
+     */
+    CloseableHttpResponse execute(HttpRequestBase request) throws IOException {
+        CompletableFuture<CloseableHttpResponse> future = executeAsync(request);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("请求被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 异步执行请求，取消返回的future或者中止请求都会取消实际的请求
+     *
+     * @param request
+     *            请求
+     * @return 响应的future
+     */
+    CompletableFuture<CloseableHttpResponse> executeAsync(HttpRequestBase request) {
+        CompletableFuture<CloseableHttpResponse> result = new CompletableFuture<>();
+        HttpClientContext context = HttpClientContext.create();
+        SimpleHttpRequest http2Request;
+        try {
+            http2Request = convert(request, context);
+        } catch (Throwable e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        Future<SimpleHttpResponse> future = client.execute(http2Request, new FutureCallback<SimpleHttpResponse>() {
+            @Override
+            public void completed(SimpleHttpResponse response) {
+                try {
+                    result.complete(convert(response, context));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                result.completeExceptionally(ex);
+            }
+
+            @Override
+            public void cancelled() {
+                result.cancel(false);
+            }
+        });
+        // 中止请求或者取消future时取消实际请求
+        request.setCancellable(() -> future.cancel(true));
+        result.whenComplete((response, e) -> {
+            if (result.isCancelled()) {
+                future.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void close() {
+        client.close(CloseMode.GRACEFUL);
+    }
+
+    /**
+     * 将httpclient 4.x的请求转换为HTTP/2请求
+     *
+     * @param request
+     *            4.x请求
+     * @param context
+     *            4.x上下文，用于处理cookie
+     * @return HTTP/2请求
+     * @throws Exception
+     *             处理cookie或者读取body异常
+     */
+    private SimpleHttpRequest convert(HttpRequestBase request, HttpClientContext context) throws Exception {
+        URI uri = request.getURI();
+        HttpHost target = URIUtils.extractHost(uri);
+        if (target.getPort() < 0) {
+            target = new HttpHost(target.getHostName(), "https".equalsIgnoreCase(target.getSchemeName()) ? 443 : 80,
+                target.getSchemeName());
+        }
+        context.setCookieStore(cookieStore);
+        context.setCookieSpecRegistry(CookieSpecRegistries.createDefault());
+        context.setAttribute(HttpClientContext.HTTP_ROUTE,
+            new HttpRoute(target, null, "https".equalsIgnoreCase(target.getSchemeName())));
+        context.setAttribute(HttpClientContext.HTTP_TARGET_HOST, target);
+        RequestHostCookies.INSTANCE.process(request, context);
+        REQUEST_ADD_COOKIES.process(request, context);
+        if (contentCompression) {
+            REQUEST_ACCEPT_ENCODING.process(request, context);
+        }
+
+        SimpleHttpRequest http2Request = SimpleHttpRequest.create(request.getMethod(), uri);
+        for (Header header : request.getAllHeaders()) {
+            if (!isConnectionHeader(header.getName())) {
+                http2Request.addHeader(header.getName(), header.getValue());
+            }
+        }
+
+        RequestConfig config = request.getConfig();
+        if (config != null) {
+            http2Request.setConfig(org.apache.hc.client5.http.config.RequestConfig.custom()
+                .setConnectTimeout(config.getConnectTimeout(), TimeUnit.MILLISECONDS)
+                .setConnectionRequestTimeout(config.getConnectionRequestTimeout(), TimeUnit.MILLISECONDS)
+                .setResponseTimeout(config.getSocketTimeout(), TimeUnit.MILLISECONDS).build());
+        }
+
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntity entity = ((HttpEntityEnclosingRequest)request).getEntity();
+            if (entity != null) {
+                Header contentType = entity.getContentType();
+                Header contentEncoding = entity.getContentEncoding();
+                if (contentEncoding != null && !request.containsHeader(HTTP.CONTENT_ENCODING)) {
+                    http2Request.addHeader(contentEncoding.getName(), contentEncoding.getValue());
+                }
+                http2Request.setBody(EntityUtils.toByteArray(entity),
+                    contentType == null ? null : ContentType.parse(contentType.getValue()));
+            }
+        }
+        return http2Request;
+    }
+
+    /**
+     * 将HTTP/2响应转换为httpclient 4.x的响应
+     *
+     * @param response
+     *            HTTP/2响应
+     * @param context
+     *            4.x上下文，用于处理cookie
+     * @return 4.x响应
+     * @throws Exception
+     *             处理cookie或者解压异常
+     */
+    private CloseableHttpResponse convert(SimpleHttpResponse response, HttpClientContext context) throws Exception {
+        Http2Response result =
+            new Http2Response(new BasicStatusLine(HTTP_2, response.getCode(), response.getReasonPhrase()));
+        for (org.apache.hc.core5.http.Header header : response.getHeaders()) {
+            result.addHeader(header.getName(), header.getValue());
+        }
+        byte[] body = response.getBodyBytes();
+        if (body != null) {
+            ByteArrayEntity entity = new ByteArrayEntity(body);
+            entity.setContentType(result.getFirstHeader(HTTP.CONTENT_TYPE));
+            entity.setContentEncoding(result.getFirstHeader(HTTP.CONTENT_ENCODING));
+            result.setEntity(entity);
+        }
+        RESPONSE_PROCESS_COOKIES.process(result, context);
+        if (contentCompression) {
+            RESPONSE_CONTENT_ENCODING.process(result, context);
+        }
+        return result;
+    }
+
+    /**
+     * HTTP/2禁止连接相关的请求头
+     *
+     * @param name
+     *            请求头
+     * @return 是否是连接相关的请求头
+     */
+    private static boolean isConnectionHeader(String name) {
+        return HTTP.CONN_DIRECTIVE.equalsIgnoreCase(name) || HTTP.CONN_KEEP_ALIVE.equalsIgnoreCase(name)
+            || HTTP.TRANSFER_ENCODING.equalsIgnoreCase(name) || HTTP.TARGET_HOST.equalsIgnoreCase(name)
+            || HTTP.CONTENT_LEN.equalsIgnoreCase(name) || "Upgrade".equalsIgnoreCase(name)
+            || "Proxy-Connection".equalsIgnoreCase(name);
+    }
+
+    /**
+     * body已经在内存中的响应
+     */
+    private static final class Http2Response extends BasicHttpResponse implements CloseableHttpResponse {
+
+        Http2Response(BasicStatusLine statusLine) {
+            super(statusLine);
+        }
+
+        @Override
+        public void close() throws IOException {
+            EntityUtils.consume(getEntity());
+        }
+    }
+
+    /**
+     * 将httpclient 4.x的DNS解析器适配为httpclient5的DNS解析器
+     */
+    private static final class DnsResolverAdapter implements org.apache.hc.client5.http.DnsResolver {
+
+        private final DnsResolver dnsResolver;
+
+        DnsResolverAdapter(DnsResolver dnsResolver) {
+            this.dnsResolver = dnsResolver;
+        }
+
+        @Override
+        public InetAddress[] resolve(String host) throws UnknownHostException {
+            return dnsResolver.resolve(host);
+        }
+
+        @Override
+        public String resolveCanonicalHostname(String host) throws UnknownHostException {
+            InetAddress[] addresses = dnsResolver.resolve(host);
+            return addresses.length == 0 ? host : addresses[0].getCanonicalHostName();
+        }
+    }
+}
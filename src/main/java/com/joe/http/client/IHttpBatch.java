@@ -0,0 +1,337 @@
+package com.joe.http.client;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import com.joe.http.config.BatchOrder;
+import com.joe.http.config.IHttpBatchConfig;
+import com.joe.http.exception.NetException;
+import com.joe.http.request.IHttpRequestBase;
+import com.joe.http.response.IHttpResponse;
+
+/**
+ * 一批正在执行的请求，请求通过{@link IHttpClient#executeAsync(IHttpRequestBase)}发送，同时最多有maxConcurrency个请求在执行，
+ * 一个请求完成后在完成回调中提交下一个请求，所以不需要额外的线程，并发数与连接池大小一致时可以刚好占满连接池而不会让请求在连接池
+ * 中排队；每个请求都有且只有一个结果，可以通过{@link #iterator()}按照配置的顺序边完成边获取
+ *
+ * PS:异步请求的响应body已经完整读取到内存中，没有读取的结果不需要关闭
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 22:10 JoeKerouac Exp $
+ */
+public final class IHttpBatch implements Iterable<IHttpBatchResult> {
+
+    private final IHttpRequestBase[] requests;
+
+    private final Function<IHttpRequestBase, CompletableFuture<IHttpResponse>> executor;
+
+    private final int maxConcurrency;
+
+    private final boolean failFast;
+
+    private final boolean ordered;
+
+    /**
+     * 已经提交的请求的future，用于停止时取消
+     */
+    private final AtomicReferenceArray<CompletableFuture<IHttpResponse>> futures;
+
+    /**
+     * 按照提交顺序存放的结果，没有完成时为null
+     */
+    private final IHttpBatchResult[] results;
+
+    /**
+     * 按照完成顺序存放的结果
+     */
+    private final List<IHttpBatchResult> completed;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition resultArrived = lock.newCondition();
+
+    /**
+     * 提交请求的互斥计数，保证同时只有一个线程在提交请求，请求同步完成时不会递归提交
+     */
+    private final AtomicInteger wip = new AtomicInteger();
+
+    /**
+     * 下一个要提交的请求的下标
+     */
+    private int next;
+
+    /**
+     * 正在执行的请求数
+     */
+    private int running;
+
+    /**
+     * 停止原因，停止后没有提交的请求和被取消的请求都使用该异常作为结果，没有停止时为null
+     */
+    private Throwable stopCause;
+
+    /**
+     * 第一个失败的请求的异常
+     */
+    private Throwable firstError;
+
+    /**
+     * 截止时间定时任务，没有截止时间时为null
+     */
+    private volatile ScheduledFuture<?> deadlineTask;
+
+    IHttpBatch(List<IHttpRequestBase> requests, IHttpBatchConfig config, int defaultConcurrency,
+        Function<IHttpRequestBase, CompletableFuture<IHttpResponse>> executor) {
+        this.requests = requests.toArray(new IHttpRequestBase[0]);
+        this.executor = executor;
+        this.maxConcurrency = config.getMaxConcurrency() > 0 ? config.getMaxConcurrency() : defaultConcurrency;
+        this.failFast = config.isFailFast();
+        this.ordered = config.getOrder() == BatchOrder.SUBMISSION;
+        this.futures = new AtomicReferenceArray<>(this.requests.length);
+        this.results = new IHttpBatchResult[this.requests.length];
+        this.completed = new ArrayList<>(this.requests.length);
+    }
+
+    /**
+     * 开始执行
+     *
+     * @param maintainer
+     *            截止时间的定时线程
+     * @param deadline
+     *            截止时间，单位毫秒，小于等于0表示没有截止时间
+     */
+    void start(ScheduledExecutorService maintainer, long deadline) {
+        if (deadline > 0 && requests.length > 0) {
+            deadlineTask = maintainer.schedule(() -> stop(new TimeoutException("批量请求超过截止时间" + deadline + "ms")),
+                deadline, TimeUnit.MILLISECONDS);
+        }
+        drain();
+    }
+
+    /**
+     * 批次中的请求数
+     *
+     * @return 请求数
+     */
+    public int size() {
+        return requests.length;
+    }
+
+    /**
+     * 批次中的请求是否全部完成
+     *
+     * @return 全部完成时返回true
+     */
+    public boolean isDone() {
+        lock.lock();
+        try {
+            return completed.size() == requests.length;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 取消批次，没有提交的请求不再提交，正在执行的请求将被中止，它们的结果为{@link CancellationException}
+     */
+    public void cancel() {
+        stop(new CancellationException("批量请求已取消"));
+    }
+
+    /**
+     * 等待所有请求完成
+     *
+     * @return 所有请求的结果，顺序与配置的顺序一致
+     * @throws NetException
+     *             等待时线程被中断，或者开启了快速失败并且有请求失败时抛出，快速失败时cause为第一个失败的请求的异常
+     */
+    public List<IHttpBatchResult> await() {
+        List<IHttpBatchResult> list = new ArrayList<>(requests.length);
+        for (IHttpBatchResult result : this) {
+            list.add(result);
+        }
+        if (failFast && firstError != null) {
+            throw new NetException("批量请求失败", firstError);
+        }
+        return list;
+    }
+
+    /**
+     * 获取结果的迭代器，{@link Iterator#next()}将阻塞直到下一个结果可用，可以多次迭代
+     *
+     * @return 结果的迭代器，迭代时线程被中断将抛出{@link NetException}
+     */
+    @Override
+    public Iterator<IHttpBatchResult> iterator() {
+        return new Iterator<IHttpBatchResult>() {
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                return position < requests.length;
+            }
+
+            @Override
+            public IHttpBatchResult next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                lock.lock();
+                try {
+                    IHttpBatchResult result;
+                    while ((result = ordered ? results[position] : position < completed.size()
+                        ? completed.get(position) : null) == null) {
+                        resultArrived.await();
+                    }
+                    position++;
+                    return result;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new NetException("等待批量请求结果时线程被中断", e);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        };
+    }
+
+    /**
+     * 在并发数允许的范围内提交请求
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            for (;;) {
+                int index;
+                lock.lock();
+                try {
+                    if (stopCause != null || next == requests.length || running >= maxConcurrency) {
+                        break;
+                    }
+                    index = next++;
+                    running++;
+                } finally {
+                    lock.unlock();
+                }
+                submit(index);
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void submit(int index) {
+        // executeAsync不会抛出异常，所有异常都通过future返回
+        CompletableFuture<IHttpResponse> future = executor.apply(requests[index]);
+        futures.set(index, future);
+        future.whenComplete((response, e) -> complete(index, response, e));
+
+        boolean stopped;
+        lock.lock();
+        try {
+            stopped = stopCause != null;
+        } finally {
+            lock.unlock();
+        }
+        // 提交的同时批次被停止了，stop可能没有看到该future
+        if (stopped) {
+            future.cancel(true);
+        }
+    }
+
+    private void complete(int index, IHttpResponse response, Throwable error) {
+        boolean stop = false;
+        boolean finished;
+        lock.lock();
+        try {
+            if (error instanceof CancellationException && stopCause != null) {
+                error = stopCause;
+            } else if (error != null && firstError == null) {
+                firstError = error;
+                stop = failFast;
+            }
+            running--;
+            finished = add(new IHttpBatchResult(index, requests[index], error == null ? response : null, error));
+        } finally {
+            lock.unlock();
+        }
+
+        futures.set(index, null);
+        if (stop) {
+            stop(new CancellationException("批量请求中有请求失败，取消该请求"));
+        } else if (finished) {
+            cancelDeadline();
+        } else {
+            drain();
+        }
+    }
+
+    /**
+     * 停止批次，没有提交的请求直接以停止原因作为结果，正在执行的请求将被取消
+     *
+     * @param cause
+     *            停止原因
+     */
+    private void stop(Throwable cause) {
+        boolean finished = false;
+        lock.lock();
+        try {
+            if (stopCause != null) {
+                return;
+            }
+            stopCause = cause;
+            while (next < requests.length) {
+                int index = next++;
+                finished = add(new IHttpBatchResult(index, requests[index], null, cause));
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (int i = 0; i < futures.length(); i++) {
+            CompletableFuture<IHttpResponse> future = futures.get(i);
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+        if (finished) {
+            cancelDeadline();
+        }
+    }
+
+    /**
+     * 添加结果，调用方必须持有锁
+     *
+     * @param result
+     *            结果
+     * @return 添加后所有请求都已经有结果时返回true
+     */
+    private boolean add(IHttpBatchResult result) {
+        results[result.getIndex()] = result;
+        completed.add(result);
+        resultArrived.signalAll();
+        return completed.size() == requests.length;
+    }
+
+    private void cancelDeadline() {
+        ScheduledFuture<?> task = deadlineTask;
+        if (task != null) {
+            task.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.joe.http.client;
+
+import com.joe.http.request.IHttpRequestBase;
+import com.joe.http.response.IHttpResponse;
+
+import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 批量请求中一个请求的结果，response和error有且只有一个不为null
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 22:10 JoeKerouac Exp $
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class IHttpBatchResult {
+
+    /**
+     * 请求在批次中的下标（提交顺序）
+     */
+    private final int index;
+
+    /**
+     * 请求
+     */
+    private final IHttpRequestBase request;
+
+    /**
+     * 响应，请求失败时为null
+     */
+    private final IHttpResponse response;
+
+    /**
+     * 请求异常，请求被取消时为{@link java.util.concurrent.CancellationException}，超过截止时间时为
+     * {@link java.util.concurrent.TimeoutException}；请求成功时为null
+     */
+    private final Throwable error;
+
+    /**
+     * 请求是否成功（收到了响应，不论状态码）
+     *
+     * @return 收到响应时返回true
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
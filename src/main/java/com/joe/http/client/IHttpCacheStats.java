@@ -0,0 +1,47 @@
+package com.joe.http.client;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 响应缓存统计快照，不可变，计数都是累计值
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 15:30 JoeKerouac Exp $
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public final class IHttpCacheStats {
+
+    /**
+     * 直接使用缓存响应的次数
+     */
+    private final long hits;
+
+    /**
+     * 缓存过期后向服务器校验通过（304）并使用缓存响应的次数
+     */
+    private final long validated;
+
+    /**
+     * 未命中缓存的次数
+     */
+    private final long misses;
+
+    /**
+     * 缓存模块直接生成响应的次数，例如only-if-cached请求没有缓存时返回的504
+     */
+    private final long moduleResponses;
+
+    /**
+     * 获取缓存命中率，校验通过的请求也算作命中
+     *
+     * @return 命中率，没有请求时返回0
+     */
+    public double getHitRatio() {
+        long total = hits + validated + misses + moduleResponses;
+        return total == 0 ? 0 : (double)(hits + validated) / total;
+    }
+}
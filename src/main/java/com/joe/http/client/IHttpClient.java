@@ -1,26 +1,47 @@
 package com.joe.http.client;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.nio.charset.Charset;
 import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLContext;
 
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.ProtocolException;
 import org.apache.http.client.CookieStore;
 import org.apache.http.client.RedirectStrategy;
+import org.apache.http.client.cache.HttpCacheContext;
 import org.apache.http.client.config.AuthSchemes;
 import org.apache.http.client.config.CookieSpecs;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.*;
+import org.apache.http.client.protocol.RequestAcceptEncoding;
+import org.apache.http.client.protocol.ResponseContentEncoding;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.config.*;
 import org.apache.http.conn.DnsResolver;
 import org.apache.http.conn.HttpConnectionFactory;
@@ -30,19 +51,33 @@ import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.cookie.Cookie;
-import org.apache.http.entity.ContentType;
+import org.apache.http.entity.AbstractHttpEntity;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.client.cache.CacheConfig;
+import org.apache.http.impl.client.cache.CachingHttpClientBuilder;
+import org.apache.http.impl.client.cache.CachingHttpClients;
+import org.apache.http.impl.client.cache.ManagedHttpCacheStorage;
 import org.apache.http.impl.conn.DefaultHttpResponseParserFactory;
 import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.impl.conn.SystemDefaultDnsResolver;
 import org.apache.http.impl.io.DefaultHttpRequestWriterFactory;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
 import org.apache.http.io.HttpMessageParserFactory;
 import org.apache.http.io.HttpMessageWriterFactory;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.protocol.HTTP;
 import org.apache.http.protocol.HttpContext;
 import org.apache.http.ssl.SSLContexts;
@@ -50,17 +85,24 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.joe.http.config.HttpBaseConfig;
+import com.joe.http.config.IHttpBatchConfig;
 import com.joe.http.config.HttpProxy;
+import com.joe.http.config.HttpTransport;
 import com.joe.http.config.IHttpClientConfig;
 import com.joe.http.exception.NetException;
+import com.joe.http.metrics.MetricsExporter;
+import com.joe.http.metrics.MetricsRegistry;
+import com.joe.http.metrics.MetricsSnapshot;
 import com.joe.http.request.IHttpGet;
 import com.joe.http.request.IHttpPost;
 import com.joe.http.request.IHttpRequestBase;
 import com.joe.http.response.IHttpResponse;
+import com.joe.utils.common.Assert;
 import com.joe.utils.common.string.StringFormater;
 import com.joe.utils.common.string.StringUtils;
 
 import lombok.Builder;
+import lombok.Singular;
 
 /**
  * HttpClient，默认用户代理为火狐
@@ -73,6 +115,14 @@ public class IHttpClient implements AutoCloseable {
      * 不自动重定向
      */
     private static final RedirectStrategy NOREDIRECT;
+    /**
+     * 自定义DNS，localhost直接解析为127.0.0.1
+     */
+    private static final DnsResolver LOCALHOST_DNS_RESOLVER;
+    /**
+     * 响应解压，异步请求使用
+     */
+    private static final ResponseContentEncoding RESPONSE_CONTENT_ENCODING = new ResponseContentEncoding();
     /**
      * 默认客户端
      */
@@ -92,6 +142,18 @@ public class IHttpClient implements AutoCloseable {
                 return null;
             }
         };
+        LOCALHOST_DNS_RESOLVER = new SystemDefaultDnsResolver() {
+
+            @Override
+            public InetAddress[] resolve(final String host) throws UnknownHostException {
+                if ("localhost".equalsIgnoreCase(host)) {
+                    return new InetAddress[] {InetAddress.getByAddress(new byte[] {127, 0, 0, 1})};
+                } else {
+                    return super.resolve(host);
+                }
+            }
+
+        };
         DEFAULT_CLIENT = IHttpClient.builder().build();
     }
 
@@ -111,6 +173,116 @@ public class IHttpClient implements AutoCloseable {
      * 配置
      */
     private IHttpClientConfig config;
+    /**
+     * 连接池
+     */
+    private InstrumentedConnectionManager connManager;
+    /**
+     * 异步HttpClient，基于NIO，第一次调用{@link #executeAsync(IHttpRequestBase)}时初始化
+     */
+    private volatile CloseableHttpAsyncClient asyncClient;
+    /**
+     * 异步连接池，与asyncClient一起初始化
+     */
+    private volatile PoolingNHttpClientConnectionManager asyncConnManager;
+    /**
+     * 异步client初始化锁
+     */
+    private final Object asyncLock = new Object();
+    /**
+     * DNS解析器，同步client和异步client共用
+     */
+    private DnsResolver dnsResolver;
+    /**
+     * 连接配置，同步client和异步client共用
+     */
+    private ConnectionConfig connectionConfig;
+    /**
+     * 全局请求配置，同步client和异步client共用
+     */
+    private RequestConfig defaultRequestConfig;
+    /**
+     * sslcontext
+     */
+    private SSLContext sslcontext;
+    /**
+     * 是否不自动重定向
+     */
+    private boolean noRedirect;
+    /**
+     * 后台维护线程，用于清理连接、自适应调整连接池等后台任务，没有后台任务时为null；后台任务不能持有当前client的引用，否则
+     * 用户没有关闭的client将不能被回收；只有一个线程，只能执行短小的非阻塞任务，DNS解析等阻塞操作不能放在该线程上；由asyncLock
+     * 保护，client关闭后不能再创建
+     */
+    private ScheduledExecutorService maintainer;
+    /**
+     * 后台连接清理，没有开启时为null
+     */
+    private ConnectionEvictor evictor;
+    /**
+     * 响应缓存存储，没有开启响应缓存时为null
+     */
+    private ManagedHttpCacheStorage cacheStorage;
+    /**
+     * 响应缓存的磁盘存储，没有开启磁盘缓存时为null
+     */
+    private MappedSegmentStore cacheDiskStore;
+    /**
+     * 响应缓存统计，没有开启响应缓存时为null
+     */
+    private CacheStatsRecorder cacheStats;
+    /**
+     * GET请求合并，没有开启时为null
+     */
+    private SingleFlight singleFlight;
+    /**
+     * 每个站点的自适应并发限制，没有开启时为null
+     */
+    private ConcurrencyLimiter concurrencyLimiter;
+    /**
+     * 每个站点的令牌桶限速，没有开启时为null
+     */
+    private RateLimiter rateLimiter;
+    /**
+     * 对冲请求，第一次对冲时创建
+     */
+    private volatile Hedger hedger;
+    /**
+     * HTTP/2传输，传输协议不是HTTP/2时为null
+     */
+    private Http2Transport http2;
+    /**
+     * 按照超时配置缓存的请求配置
+     */
+    private final RequestConfigCache requestConfigCache = new RequestConfigCache();
+    /**
+     * 预先编码的User-Agent请求头，没有配置User-Agent时为null
+     */
+    private Header userAgentHeader;
+    /**
+     * 请求阶段事件监听
+     */
+    private List<IHttpEventListener> eventListeners;
+    /**
+     * 是否记录同步请求各个阶段的耗时，注册了事件监听或者配置开启时为true
+     */
+    private boolean timingEnabled;
+    /**
+     * 请求统计，没有开启统计时为null
+     */
+    private MetricsRegistry metrics;
+    /**
+     * 请求统计导出
+     */
+    private MetricsExporter metricsExporter;
+    /**
+     * 共享连接池，为null时使用client自己的连接池
+     */
+    private IHttpConnectionPool connectionPool;
+    /**
+     * 当前client是否已经关闭
+     */
+    private volatile boolean closed;
 
     /**
      * 指定client配置和cookieStore
@@ -123,11 +295,28 @@ public class IHttpClient implements AutoCloseable {
      *            sslcontext
      * @param noRedirect
      *            如果为true表示客户端将不会自动重定向
+     * @param eventListeners
+     *            请求阶段事件监听
+     * @param metricsExporter
+     *            请求统计导出，为null时不导出，设置后自动开启请求统计
+     * @param connectionPool
+     *            共享连接池，为null时使用client自己的连接池；使用共享连接池时连接池相关的配置以连接池的配置为准，关闭client
+     *            不会关闭共享连接池；指定的sslcontext与连接池的不一致时抛出NetException，连接数配置不一致时打印警告
      */
     @Builder
-    private IHttpClient(IHttpClientConfig config, CookieStore cookieStore, SSLContext sslcontext, boolean noRedirect) {
+    private IHttpClient(IHttpClientConfig config, CookieStore cookieStore, SSLContext sslcontext, boolean noRedirect,
+        @Singular List<IHttpEventListener> eventListeners, MetricsExporter metricsExporter,
+        IHttpConnectionPool connectionPool) {
         this.config = config == null ? new IHttpClientConfig() : config;
-        cookieStore = cookieStore == null ? new BasicCookieStore() : cookieStore;
+        this.eventListeners = eventListeners == null ? Collections.emptyList() : eventListeners;
+        this.metricsExporter = metricsExporter;
+        this.connectionPool = connectionPool;
+        cookieStore = cookieStore == null ? new ConcurrentCookieStore() : cookieStore;
+        if (connectionPool != null) {
+            connectionPool.checkCompatible(this.config, sslcontext,
+                metricsExporter != null || this.config.isMetricsEnabled(),
+                !this.eventListeners.isEmpty() || this.config.isTimingEnabled());
+        }
         sslcontext = sslcontext == null ? SSLContexts.createSystemDefault() : sslcontext;
         this.init(this.config, cookieStore, sslcontext, noRedirect);
     }
@@ -145,21 +334,251 @@ public class IHttpClient implements AutoCloseable {
             log.error("request不能为null");
             return null;
         }
-        HttpRequestBase requestBase;
-        // 构建请求
-        if (request instanceof IHttpGet) {
-            requestBase = build((IHttpGet)request);
-        } else if (request instanceof IHttpPost) {
-            requestBase = build((IHttpPost)request);
-        } else {
-            throw new NetException(StringFormater.simpleFormat("不支持的请求类型：[{0}]", request.getClass()));
+        HttpRequestBase requestBase = build(request);
+        if (metrics == null) {
+            return call(request, requestBase);
+        }
+
+        long start = System.nanoTime();
+        try {
+            IHttpResponse response = call(request, requestBase);
+            metrics.record(requestBase.getURI(), response.getStatus(), System.nanoTime() - start);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            metrics.recordError(requestBase.getURI(), e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    /**
+     * 执行HTTP请求
+     *
+     * @param request
+     *            请求体
+     * @param requestBase
+     *            构建好的HTTP请求
+     * @return 响应
+     * @throws IOException
+     *             IO异常
+     */
+    private IHttpResponse call(IHttpRequestBase request, HttpRequestBase requestBase) throws IOException {
+        if (timingEnabled) {
+            return executeTimed(request, requestBase);
+        }
+        // 相同的GET请求合并，范围请求通常是大响应的一部分，不合并
+        if (singleFlight != null && requestBase instanceof HttpGet && !requestBase.containsHeader(HttpHeaders.RANGE)) {
+            return new IHttpResponse(singleFlight.execute(requestBase, () -> send(request, requestBase)));
         }
-        // 配置请求
-        configure(requestBase, request);
-        // 发起请求
-        CloseableHttpResponse closeableHttpResponse = this.httpClient.execute(requestBase);
         // 设置响应
-        return new IHttpResponse(closeableHttpResponse);
+        return new IHttpResponse(send(request, requestBase));
+    }
+
+    /**
+     * 执行HTTP请求并记录各个阶段的耗时
+     *
+     * @param request
+     *            请求体
+     * @param requestBase
+     *            构建好的HTTP请求
+     * @return 响应，带有耗时记录
+     * @throws IOException
+     *             IO异常
+     */
+    private IHttpResponse executeTimed(IHttpRequestBase request, HttpRequestBase requestBase) throws IOException {
+        IHttpTiming timing = new IHttpTiming(requestBase.getMethod(), requestBase.getURI(), eventListeners);
+        TimingHooks.begin(timing);
+        try {
+            HttpResponse response;
+            if (singleFlight != null && requestBase instanceof HttpGet
+                && !requestBase.containsHeader(HttpHeaders.RANGE)) {
+                response = singleFlight.execute(requestBase, () -> send(request, requestBase));
+            } else {
+                response = send(request, requestBase);
+            }
+            TimingHooks.watch(response, timing);
+            return new IHttpResponse(response, timing);
+        } catch (IOException | RuntimeException | Error e) {
+            timing.record(IHttpEvent.CALL_FAILED);
+            throw e;
+        } finally {
+            TimingHooks.end();
+        }
+    }
+
+    /**
+     * 异步执行HTTP请求，请求将通过NIO发送，不会阻塞调用线程，少量IO线程即可支撑大量并发请求；异步请求有自己单独的连接池，
+     * 配置与同步请求的连接池一致，第一次调用时初始化
+     *
+     * PS:异步请求的响应body在回调前已经完整读取到内存中
+     *
+     * @param request
+     *            请求体
+     * @return 请求结果的future，取消该future将会中止请求；该方法不会抛出异常，构建请求失败、client已经关闭等异常都通过future返回
+     */
+    public CompletableFuture<IHttpResponse> executeAsync(IHttpRequestBase request) {
+        CompletableFuture<IHttpResponse> result = new CompletableFuture<>();
+        if (request == null) {
+            log.error("request不能为null");
+            result.complete(null);
+            return result;
+        }
+
+        HttpRequestBase requestBase;
+        try {
+            requestBase = build(request);
+        } catch (Throwable e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        if (metrics != null) {
+            long start = System.nanoTime();
+            result.whenComplete((response, e) -> {
+                if (e == null) {
+                    metrics.record(requestBase.getURI(), response.getStatus(), System.nanoTime() - start);
+                } else {
+                    metrics.recordError(requestBase.getURI(), e, System.nanoTime() - start);
+                }
+            });
+        }
+
+        if (rateLimiter != null) {
+            long wait;
+            try {
+                wait = rateLimiter.reserve(URIUtils.extractHost(requestBase.getURI()));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+                return result;
+            }
+            if (wait > 0) {
+                // 令牌不足时延迟发送，不阻塞调用线程
+                ScheduledFuture<?> task;
+                try {
+                    task = getMaintainer().schedule(() -> {
+                        if (result.isDone()) {
+                            return;
+                        }
+                        try {
+                            dispatchAsync(requestBase, result);
+                        } catch (Throwable e) {
+                            result.completeExceptionally(e);
+                        }
+                    }, wait, TimeUnit.NANOSECONDS);
+                } catch (NetException | RejectedExecutionException e) {
+                    // client已经关闭
+                    result.completeExceptionally(e);
+                    return result;
+                }
+                result.whenComplete((response, e) -> task.cancel(false));
+                return result;
+            }
+        }
+
+        try {
+            dispatchAsync(requestBase, result);
+        } catch (Throwable e) {
+            // client已经关闭
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * 通过HTTP/2或者NIO发送异步请求
+     *
+     * @param requestBase
+     *            请求
+     * @param result
+     *            请求结果
+     * @throws NetException
+     *             client已经关闭
+     */
+    private void dispatchAsync(HttpRequestBase requestBase, CompletableFuture<IHttpResponse> result) {
+        if (http2 != null) {
+            http2.executeAsync(requestBase).whenComplete((response, e) -> {
+                if (e == null) {
+                    result.complete(new IHttpResponse(response));
+                } else {
+                    result.completeExceptionally(e);
+                }
+            });
+            // 用户取消时中止请求
+            result.whenComplete((response, e) -> {
+                if (result.isCancelled()) {
+                    requestBase.abort();
+                }
+            });
+            return;
+        }
+
+        Future<HttpResponse> future = getAsyncClient().execute(requestBase, new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse response) {
+                if (config.isContentCompressionEnabled()) {
+                    try {
+                        RESPONSE_CONTENT_ENCODING.process(response, new BasicHttpContext());
+                    } catch (Throwable e) {
+                        result.completeExceptionally(e);
+                        return;
+                    }
+                }
+                result.complete(new IHttpResponse(response));
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                result.completeExceptionally(ex);
+            }
+
+            @Override
+            public void cancelled() {
+                result.cancel(false);
+            }
+        });
+
+        // 用户取消时中止请求
+        result.whenComplete((response, e) -> {
+            if (result.isCancelled()) {
+                future.cancel(true);
+            }
+        });
+    }
+
+    /**
+     * 批量执行请求，使用默认配置：最大并发数为每个站点的最大连接数，没有截止时间，不快速失败，按照完成顺序返回结果
+     *
+     * @param requests
+     *            请求
+     * @return 正在执行的批次
+     */
+    public IHttpBatch executeAll(Collection<? extends IHttpRequestBase> requests) {
+        return executeAll(requests, new IHttpBatchConfig());
+    }
+
+    /**
+     * 批量执行请求，请求通过{@link #executeAsync(IHttpRequestBase)}发送，同时执行的请求数不超过配置的最大并发数，不会为每个请求
+     * 占用一个线程；本方法立即返回，通过返回的批次按照配置的顺序获取结果
+     *
+     * @param requests
+     *            请求，不能包含null
+     * @param batchConfig
+     *            批量请求配置
+     * @return 正在执行的批次
+     */
+    public IHttpBatch executeAll(Collection<? extends IHttpRequestBase> requests, IHttpBatchConfig batchConfig) {
+        Assert.notNull(requests, "requests不能为null");
+        Assert.notNull(batchConfig, "batchConfig不能为null");
+        List<IHttpRequestBase> list = new ArrayList<>(requests);
+        for (IHttpRequestBase request : list) {
+            Assert.notNull(request, "requests不能包含null");
+        }
+        if (closed) {
+            throw new NetException("client已经关闭");
+        }
+
+        IHttpBatch batch = new IHttpBatch(list, batchConfig, config.getDefaultMaxPerRoute(), this::executeAsync);
+        batch.start(getMaintainer(), batchConfig.getDeadline());
+        return batch;
     }
 
     public CookieStore getCookieManager() {
@@ -184,6 +603,9 @@ public class IHttpClient implements AutoCloseable {
      * @return cookie存在时返回cookie，不存在时返回null
      */
     public Cookie getCookie(String name) {
+        if (cookieStore instanceof ConcurrentCookieStore) {
+            return ((ConcurrentCookieStore)cookieStore).getCookie(name);
+        }
         List<Cookie> cookies = cookieStore.getCookies();
         for (Cookie cookie : cookies) {
             if (cookie.getName().equals(name)) {
@@ -203,6 +625,102 @@ public class IHttpClient implements AutoCloseable {
         cookieStore.addCookie(cookie);
     }
 
+    /**
+     * 获取同步连接池的统计快照，包括总的以及每个route的租用、空闲、等待连接数，以及获取连接的等待耗时分布；获取快照开销很小，
+     * 可以每秒采集
+     *
+     * @return 连接池统计快照
+     */
+    public IHttpPoolStats getPoolStats() {
+        return connManager.snapshot();
+    }
+
+    /**
+     * 获取DNS缓存统计快照
+     *
+     * @return DNS缓存统计快照，没有开启DNS缓存时返回null
+     */
+    public IHttpDnsStats getDnsStats() {
+        return dnsResolver instanceof CachingDnsResolver ? ((CachingDnsResolver)dnsResolver).stats() : null;
+    }
+
+    /**
+     * 获取响应缓存统计快照
+     *
+     * @return 响应缓存统计快照，没有开启响应缓存时返回null
+     */
+    public IHttpCacheStats getCacheStats() {
+        return cacheStats == null ? null : cacheStats.snapshot();
+    }
+
+    /**
+     * 获取请求统计快照，包括所有请求以及每个route的请求数、错误数、收发字节数和耗时分布
+     *
+     * @return 请求统计快照，没有开启请求统计时返回null
+     */
+    public MetricsSnapshot getMetrics() {
+        return metrics == null ? null : metrics.snapshot();
+    }
+
+    /**
+     * 获取GET请求合并统计快照
+     *
+     * @return GET请求合并统计快照，没有开启请求合并时返回null
+     */
+    public IHttpSingleFlightStats getSingleFlightStats() {
+        return singleFlight == null ? null : singleFlight.stats();
+    }
+
+    /**
+     * 获取自适应并发限制统计快照
+     *
+     * @return 自适应并发限制统计快照，没有开启并发限制时返回null
+     */
+    public IHttpConcurrencyStats getConcurrencyStats() {
+        return concurrencyLimiter == null ? null : concurrencyLimiter.stats();
+    }
+
+    /**
+     * 获取站点限速统计快照
+     *
+     * @return 站点限速统计快照，没有开启限速时返回null
+     */
+    public IHttpRateLimitStats getRateLimitStats() {
+        return rateLimiter == null ? null : rateLimiter.stats();
+    }
+
+    /**
+     * 获取对冲请求统计快照
+     *
+     * @return 对冲请求统计快照，还没有请求开启对冲时返回null
+     */
+    public IHttpHedgeStats getHedgeStats() {
+        Hedger hedger = this.hedger;
+        return hedger == null ? null : hedger.stats();
+    }
+
+    /**
+     * 获取异步连接池的统计快照，不包含获取连接的等待耗时
+     *
+     * @return 异步连接池统计快照，异步client还未初始化时返回null
+     */
+    public IHttpPoolStats getAsyncPoolStats() {
+        PoolingNHttpClientConnectionManager connManager = this.asyncConnManager;
+        if (connManager == null) {
+            return null;
+        }
+
+        Map<String, IHttpPoolStats.RouteStats> routes = new LinkedHashMap<>();
+        for (HttpRoute route : connManager.getRoutes()) {
+            PoolStats stats = connManager.getStats(route);
+            routes.put(route.getTargetHost().toURI(), new IHttpPoolStats.RouteStats(stats.getLeased(),
+                stats.getAvailable(), stats.getPending(), stats.getMax(), null));
+        }
+        PoolStats total = connManager.getTotalStats();
+        return new IHttpPoolStats(total.getLeased(), total.getAvailable(), total.getPending(), total.getMax(), 0, null,
+            routes);
+    }
+
     /**
      * 获取httpClient的ID
      *
@@ -214,7 +732,39 @@ public class IHttpClient implements AutoCloseable {
 
     @Override
     public void close() throws IOException {
+        if (!closed && metricsExporter != null && metrics != null) {
+            // 关闭前导出最后一次统计
+            exportMetrics(metricsExporter, id, metrics);
+        }
+        ScheduledExecutorService maintainer;
+        Hedger hedger;
+        synchronized (asyncLock) {
+            closed = true;
+            if (asyncClient != null) {
+                asyncClient.close();
+            }
+            maintainer = this.maintainer;
+            hedger = this.hedger;
+        }
+        if (maintainer != null) {
+            maintainer.shutdownNow();
+        }
+        if (hedger != null) {
+            hedger.shutdown();
+        }
+        if (dnsResolver instanceof CachingDnsResolver) {
+            ((CachingDnsResolver)dnsResolver).close();
+        }
         httpClient.close();
+        if (http2 != null) {
+            http2.close();
+        }
+        if (cacheStorage != null) {
+            cacheStorage.shutdown();
+        }
+        if (cacheDiskStore != null) {
+            cacheDiskStore.close();
+        }
     }
 
     @Override
@@ -225,34 +775,116 @@ public class IHttpClient implements AutoCloseable {
     }
 
     /**
-     * 执行GET请求
+     * 发起请求，幂等请求开启对冲时发出对冲请求
      *
      * @param request
      *            请求体
+     * @param requestBase
+     *            请求
+     * @return 响应
+     * @throws IOException
+     *             IO异常
      */
-    private HttpRequestBase build(IHttpGet request) {
-        HttpGet get = new HttpGet(buildUrl(request));
-        log.debug("要请求的地址为：{}", get.getURI());
-        return get;
+    private CloseableHttpResponse send(IHttpRequestBase request, HttpRequestBase requestBase) throws IOException {
+        HttpBaseConfig config = request.getHttpConfig() == null ? this.config : request.getHttpConfig();
+        if (!(requestBase instanceof HttpGet) || requestBase.containsHeader(HttpHeaders.RANGE)
+            || (config.getHedgeDelay() <= 0 && config.getHedgePercentile() <= 0)) {
+            return doExecute(requestBase);
+        }
 
+        Hedger hedger = getHedger();
+        long delay = hedger.delay(config);
+        if (delay <= 0) {
+            return doExecute(requestBase);
+        }
+        return hedger.execute(requestBase, () -> build(request), this::doExecute, delay);
     }
 
     /**
-     * 从请求中构建URL（因为请求可能包含query参数）
+     * 发起请求
      *
-     * @param request
+     * @param requestBase
      *            请求
-     * @return 构建完成的URL
-     */
-    private String buildUrl(IHttpRequestBase request) {
-        Map<String, String> query = request.getQueryParams();
-        if (query != null && !query.isEmpty()) {
-            StringBuilder sb = new StringBuilder();
-            query.forEach((key, value) -> sb.append("&" + key + "=" + value));
-            return request.getUrl() + "?" + sb.toString().substring(1);
+     * @return 响应
+     * @throws IOException
+     *             IO异常
+     */
+    private CloseableHttpResponse doExecute(HttpRequestBase requestBase) throws IOException {
+        if (rateLimiter != null) {
+            // 先限速再获取并发许可，等待令牌时不占用并发许可
+            rateLimiter.acquire(URIUtils.extractHost(requestBase.getURI()));
+        }
+        if (concurrencyLimiter == null) {
+            return exchange(requestBase);
+        }
+
+        ConcurrencyLimiter.Permit permit =
+            concurrencyLimiter.acquire(URIUtils.extractHost(requestBase.getURI()));
+        CloseableHttpResponse response;
+        try {
+            response = exchange(requestBase);
+        } catch (IOException | RuntimeException | Error e) {
+            LimitedResponse.release(requestBase, permit, true);
+            throw e;
+        }
+        // 读取body期间仍然占用上游的资源，许可在body读取完毕或者响应关闭时才释放
+        return LimitedResponse.hold(response, requestBase, permit);
+    }
+
+    /**
+     * 发起请求，开启响应缓存时记录缓存状态
+     *
+     * @param requestBase
+     *            请求
+     * @return 响应
+     * @throws IOException
+     *             IO异常
+     */
+    private CloseableHttpResponse exchange(HttpRequestBase requestBase) throws IOException {
+        if (http2 != null) {
+            return http2.execute(requestBase);
+        }
+        if (cacheStats == null) {
+            return this.httpClient.execute(requestBase);
+        }
+        HttpCacheContext context = HttpCacheContext.create();
+        CloseableHttpResponse response = this.httpClient.execute(requestBase, context);
+        cacheStats.record(context.getCacheResponseStatus());
+        return response;
+    }
+
+    /**
+     * 构建并配置实际的HTTP请求
+     *
+     * @param request
+     *            请求体
+     * @return 构建好的HTTP请求
+     */
+    private HttpRequestBase build(IHttpRequestBase request) {
+        HttpRequestBase requestBase;
+        // 构建请求
+        if (request instanceof IHttpGet) {
+            requestBase = build((IHttpGet)request);
+        } else if (request instanceof IHttpPost) {
+            requestBase = build((IHttpPost)request);
         } else {
-            return request.getUrl();
+            throw new NetException(StringFormater.simpleFormat("不支持的请求类型：[{0}]", request.getClass()));
         }
+        // 配置请求
+        configure(requestBase, request);
+        return requestBase;
+    }
+
+    /**
+     * 执行GET请求
+     *
+     * @param request
+     *            请求体
+     */
+    private HttpRequestBase build(IHttpGet request) {
+        HttpGet get = new HttpGet(request.buildUri());
+        log.debug("要请求的地址为：{}", get.getURI());
+        return get;
     }
 
     /**
@@ -262,16 +894,56 @@ public class IHttpClient implements AutoCloseable {
      *            请求体
      */
     private HttpRequestBase build(IHttpPost request) {
-        HttpPost post = new HttpPost(buildUrl(request));
+        HttpPost post = new HttpPost(request.buildUri());
+        if (request.getBody() != null) {
+            HttpEntity body = request.getBody();
+            if (body instanceof AbstractHttpEntity && !StringUtils.isEmpty(request.getContentType())) {
+                ((AbstractHttpEntity)body).setContentType(request.getContentType());
+            }
+            post.setEntity(compress(body, request));
+            if (log.isDebugEnabled()) {
+                log.debug("要请求的地址为：{}；要发送的内容为二进制数据，长度为：{}", post.getURI(), body.getContentLength());
+            }
+            return post;
+        }
         StringEntity entity = new StringEntity(request.getEntity(), request.getCharset());
         if (!StringUtils.isEmpty(request.getContentType())) {
             entity.setContentType(request.getContentType());
         }
-        post.setEntity(entity);
-        log.debug("要请求的地址为：{}；要发送的内容为：{}", request.getUrl(), request.getEntity());
+        post.setEntity(compress(entity, request));
+        log.debug("要请求的地址为：{}；要发送的内容为：{}", post.getURI(), request.getEntity());
         return post;
     }
 
+    /**
+     * 请求body超过压缩阈值时使用gzip流式压缩，已经指定了Content-Encoding的body不压缩
+     *
+     * @param entity
+     *            请求body
+     * @param request
+     *            请求
+     * @return 压缩后的请求body，不需要压缩时返回原body
+     */
+    private HttpEntity compress(HttpEntity entity, IHttpRequestBase request) {
+        int threshold = config.getRequestCompressionThreshold();
+        if (threshold <= 0 || entity.getContentEncoding() != null) {
+            return entity;
+        }
+        long length = entity.getContentLength();
+        if (length >= 0 && length <= threshold) {
+            return entity;
+        }
+        if (request.hasHeaders()) {
+            for (String name : request.getHeaders().keySet()) {
+                if (HTTP.CONTENT_ENCODING.equalsIgnoreCase(name)) {
+                    return entity;
+                }
+            }
+        }
+        log.debug("请求body长度为：{}，超过压缩阈值：{}，使用gzip压缩", length, threshold);
+        return new GzipRequestEntity(entity);
+    }
+
     /**
      * 配置HTTP请求（根据iRequest配置request）
      *
@@ -284,44 +956,35 @@ public class IHttpClient implements AutoCloseable {
         // 设置
         HttpBaseConfig config = iRequest.getHttpConfig() == null ? this.config : iRequest.getHttpConfig();
 
-        // 请求配置
-        request.setConfig(buildRequestConfig(config.getSocketTimeout(), config.getConnectTimeout(),
+        // 请求配置，相同超时配置的请求共用一个RequestConfig
+        request.setConfig(requestConfigCache.get(config.getSocketTimeout(), config.getConnectTimeout(),
             config.getConnectionRequestTimeout()));
 
-        log.debug("请求socketTimeout为：{}；connectTimeout为：{}；connectionRequestTimeout为：{}", config.getSocketTimeout(),
-            config.getConnectTimeout(), config.getConnectionRequestTimeout());
+        if (log.isDebugEnabled()) {
+            log.debug("请求socketTimeout为：{}；connectTimeout为：{}；connectionRequestTimeout为：{}",
+                config.getSocketTimeout(), config.getConnectTimeout(), config.getConnectionRequestTimeout());
+        }
         // 设置请求头
-        Map<String, String> headers = iRequest.getHeaders();
-        for (Map.Entry<String, String> entity : headers.entrySet()) {
-            request.addHeader(entity.getKey(), entity.getValue());
+        if (iRequest.hasHeaders()) {
+            for (Map.Entry<String, String> entity : iRequest.getHeaders().entrySet()) {
+                request.addHeader(entity.getKey(), entity.getValue());
+            }
+        }
+        // 用户没有指定User-Agent时使用预先编码的User-Agent，发送时不需要再格式化
+        if (userAgentHeader != null && !request.containsHeader(HTTP.USER_AGENT)) {
+            request.addHeader(userAgentHeader);
         }
         // 设置content-type
         if (!StringUtils.isEmpty(iRequest.getContentType())) {
-            request.addHeader(HTTP.CONTENT_TYPE,
-                ContentType.create(iRequest.getContentType(), iRequest.getCharset()).toString());
+            // 二进制body不需要字符集
+            request.addHeader(PreEncodedHeaders.contentType(iRequest.getContentType(),
+                iRequest.getBody() == null ? iRequest.getCharset() : null));
+        }
+        // getHeaders会为没有请求头的请求创建map，只在需要打印时调用
+        if (log.isDebugEnabled()) {
+            log.debug("请求content-type为：{}；请求头集合为：{}", iRequest.getContentType(),
+                iRequest.hasHeaders() ? iRequest.getHeaders() : Collections.emptyMap());
         }
-        log.debug("请求content-type为：{}；请求头集合为：{}", iRequest.getContentType(), iRequest.getHeaders());
-    }
-
-    /**
-     * 构建HttpClient请求配置
-     *
-     * @param socketTimeout
-     *            传输超时（单位：毫秒）
-     * @param connectTimeout
-     *            连接超时（单位：毫秒）
-     * @param connectionRequestTimeout
-     *            请求超时（单位：毫秒）
-     * @return
-     */
-    private RequestConfig buildRequestConfig(int socketTimeout, int connectTimeout, int connectionRequestTimeout) {
-        log.debug("构建请求配置");
-        log.debug("请求socket超时时间为：" + socketTimeout + "ms；connect超时时间为：" + connectTimeout + "ms；connectionRequest超时时间为："
-            + connectionRequestTimeout + "ms");
-        RequestConfig requestConfig = RequestConfig.custom().setSocketTimeout(socketTimeout)
-            .setConnectTimeout(connectTimeout).setConnectionRequestTimeout(connectionRequestTimeout).build();
-        log.debug("请求配置构建成功");
-        return requestConfig;
     }
 
     /**
@@ -332,7 +995,197 @@ public class IHttpClient implements AutoCloseable {
      */
     private void init(IHttpClientConfig config, CookieStore cookieStore, SSLContext sslcontext, boolean noRedirect) {
         log.debug("正在初始化HttpClient");
+        if (config.getTransport() == HttpTransport.HTTP_2 && config.getProxy() != null) {
+            throw new NetException("HTTP/2传输不支持代理");
+        }
+        if (config.getTransport() == HttpTransport.HTTP_2 && connectionPool != null) {
+            throw new NetException("HTTP/2传输不支持共享连接池");
+        }
         CloseableHttpClient httpclient;
+        this.timingEnabled = !eventListeners.isEmpty() || config.isTimingEnabled();
+        if (timingEnabled) {
+            log.debug("开启请求阶段耗时记录，事件监听：{}", eventListeners);
+        }
+        if (metricsExporter != null || config.isMetricsEnabled()) {
+            this.metrics = new MetricsRegistry();
+        }
+        dnsResolver = buildDnsResolver(config);
+        connectionConfig = buildConnectionConfig(config);
+
+        InstrumentedConnectionManager connManager;
+        if (connectionPool == null) {
+            connManager = buildConnManager(config, sslcontext, dnsResolver, connectionConfig, timingEnabled);
+            if (metrics != null) {
+                connManager.setMetrics(metrics);
+            }
+
+            if (config.getEvictionInterval() > 0) {
+                log.debug("开启后台连接清理，清理周期：{}ms，最大空闲时间：{}ms", config.getEvictionInterval(),
+                    config.getMaxIdleTime());
+                evictor = new ConnectionEvictor(connManager, config.getMaxIdleTime());
+                getMaintainer().scheduleWithFixedDelay(evictor, config.getEvictionInterval(),
+                    config.getEvictionInterval(), TimeUnit.MILLISECONDS);
+            }
+
+            if (config.isAdaptivePoolSizing()) {
+                log.debug("开启自适应连接数，调整周期：{}ms", config.getAdaptiveInterval());
+                getMaintainer().scheduleWithFixedDelay(new AdaptivePoolSizer(connManager, config),
+                    config.getAdaptiveInterval(), config.getAdaptiveInterval(), TimeUnit.MILLISECONDS);
+            }
+        } else {
+            // 共享连接池的清理、自适应调整由连接池自己负责，这里只清理当前client的异步连接池
+            log.debug("使用共享连接池：{}", connectionPool);
+            connManager = connectionPool.getConnManager();
+            if (config.getEvictionInterval() > 0) {
+                evictor = new ConnectionEvictor(null, config.getMaxIdleTime());
+                getMaintainer().scheduleWithFixedDelay(evictor, config.getEvictionInterval(),
+                    config.getEvictionInterval(), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (config.getCookiePurgeInterval() > 0) {
+            log.debug("开启后台过期cookie清理，清理周期：{}ms", config.getCookiePurgeInterval());
+            getMaintainer().scheduleWithFixedDelay(() -> {
+                try {
+                    cookieStore.clearExpired(new Date());
+                } catch (Throwable e) {
+                    log.warn("清理过期cookie异常", e);
+                }
+            }, config.getCookiePurgeInterval(), config.getCookiePurgeInterval(), TimeUnit.MILLISECONDS);
+        }
+
+        // Create global request configuration
+        defaultRequestConfig =
+            RequestConfig.custom().setCookieSpec(CookieSpecs.DEFAULT).setExpectContinueEnabled(true)
+                .setTargetPreferredAuthSchemes(Arrays.asList(AuthSchemes.NTLM, AuthSchemes.DIGEST))
+                .setProxyPreferredAuthSchemes(Arrays.asList(AuthSchemes.BASIC)).build();
+
+        // 根据配置构建httpClient
+        HttpClientBuilder builder =
+            config.isResponseCacheEnabled() ? buildCachingClientBuilder(config) : HttpClients.custom();
+        HttpProxy proxy = config.getProxy();
+        if (proxy != null) {
+            builder.setProxy(new HttpHost(proxy.getHost(), proxy.getPort()));
+        }
+
+        if (noRedirect) {
+            log.debug("用户设置不重定向，客户端将不会重定向");
+            builder.setRedirectStrategy(NOREDIRECT);
+        }
+
+        if (!config.isContentCompressionEnabled()) {
+            log.debug("用户关闭响应压缩");
+            builder.disableContentCompression();
+        }
+
+        if (timingEnabled) {
+            builder.setRequestExecutor(new TimingHooks.RequestExecutor());
+        }
+
+        // 添加cookie时只读取目标host的cookie，不复制整个CookieStore
+        builder.addInterceptorFirst(RequestHostCookies.INSTANCE);
+
+        httpclient = builder.setConnectionManager(connManager).setConnectionManagerShared(connectionPool != null)
+            .setKeepAliveStrategy(new HeaderKeepAliveStrategy(config.getDefaultKeepAlive()))
+            .setDefaultCookieStore(cookieStore)
+            .setDefaultRequestConfig(defaultRequestConfig).setUserAgent(config.getUserAgent()).build();
+        log.debug("用户代理为：{}", config.getUserAgent());
+        if (!StringUtils.isEmpty(config.getUserAgent())) {
+            this.userAgentHeader = PreEncodedHeaders.of(HTTP.USER_AGENT, config.getUserAgent());
+        }
+        if (config.isRateLimitEnabled()) {
+            log.debug("开启站点限速，默认每秒请求数：{}，突发请求数：{}", config.getRateLimitPermitsPerSecond(),
+                config.getRateLimitBurst());
+            this.rateLimiter = new RateLimiter(config);
+        }
+        if (config.isConcurrencyLimitEnabled()) {
+            log.debug("开启自适应并发限制，算法：{}，初始限制：{}", config.getConcurrencyLimitAlgorithm(),
+                config.getConcurrencyInitialLimit());
+            this.concurrencyLimiter = new ConcurrencyLimiter(config);
+        }
+        if (config.isSingleFlightEnabled()) {
+            log.debug("开启GET请求合并，等待超时时间：{}ms", config.getSingleFlightWaitTimeout());
+            this.singleFlight = new SingleFlight(config.getSingleFlightWaitTimeout(),
+                config.getSingleFlightIgnoredHeaders());
+        }
+        if (config.getTransport() == HttpTransport.HTTP_2) {
+            if (config.isResponseCacheEnabled()) {
+                log.warn("HTTP/2传输模式下响应缓存不生效");
+            }
+            log.debug("使用HTTP/2传输");
+            this.http2 = new Http2Transport(config, sslcontext, dnsResolver, cookieStore, noRedirect);
+        }
+        this.httpClient = httpclient;
+        this.connManager = connManager;
+        this.cookieStore = cookieStore;
+        this.sslcontext = sslcontext;
+        this.noRedirect = noRedirect;
+        this.id = String.valueOf(System.currentTimeMillis());
+        if (metrics != null && metricsExporter != null && config.getMetricsExportInterval() > 0) {
+            log.debug("开启请求统计导出，导出周期：{}ms", config.getMetricsExportInterval());
+            // 注意这里不能持有当前client的引用
+            MetricsExporter exporter = metricsExporter;
+            MetricsRegistry registry = metrics;
+            String clientId = id;
+            getMaintainer().scheduleWithFixedDelay(() -> exportMetrics(exporter, clientId, registry),
+                config.getMetricsExportInterval(), config.getMetricsExportInterval(), TimeUnit.MILLISECONDS);
+        }
+        log.debug("HttpClient初始化完毕");
+    }
+
+    /**
+     * 构建DNS解析器
+     *
+     * @param config
+     *            配置
+     * @return DNS解析器
+     */
+    static DnsResolver buildDnsResolver(IHttpClientConfig config) {
+        if (config.isDnsCacheEnabled()) {
+            log.debug("开启DNS缓存，缓存时间：{}ms，失败结果缓存时间：{}ms", config.getDnsCacheTtl(),
+                config.getDnsNegativeCacheTtl());
+            return new CachingDnsResolver(LOCALHOST_DNS_RESOLVER, config.getHostOverrides(), config.getDnsCacheTtl(),
+                config.getDnsNegativeCacheTtl(), config.isDnsRefreshAhead());
+        }
+        return LOCALHOST_DNS_RESOLVER;
+    }
+
+    /**
+     * 构建连接配置
+     *
+     * @param config
+     *            配置
+     * @return 连接配置
+     */
+    static ConnectionConfig buildConnectionConfig(IHttpClientConfig config) {
+        // 消息容器，初始化消息容器以及消息容器的配置，设置最多200个请求头，请求行长度最大为2000
+        MessageConstraints messageConstraints =
+            MessageConstraints.custom().setMaxHeaderCount(200).setMaxLineLength(2000).build();
+
+        Charset charset = config.getCharset();
+        log.debug("默认连接编码配置为：{}", charset);
+        return ConnectionConfig.custom().setMalformedInputAction(CodingErrorAction.IGNORE)
+            .setUnmappableInputAction(CodingErrorAction.IGNORE).setCharset(charset)
+            .setMessageConstraints(messageConstraints).build();
+    }
+
+    /**
+     * 构建同步连接池
+     *
+     * @param config
+     *            配置
+     * @param sslcontext
+     *            sslcontext
+     * @param dnsResolver
+     *            DNS解析器
+     * @param connectionConfig
+     *            连接配置
+     * @param timing
+     *            是否记录DNS、连接、TLS握手、获取连接的耗时
+     * @return 连接池
+     */
+    static InstrumentedConnectionManager buildConnManager(IHttpClientConfig config, SSLContext sslcontext,
+        DnsResolver dnsResolver, ConnectionConfig connectionConfig, boolean timing) {
         // 自定义解析，选择默认解析
         HttpMessageParserFactory<HttpResponse> responseParserFactory = new DefaultHttpResponseParserFactory();
         HttpMessageWriterFactory<HttpRequest> requestWriterFactory = new DefaultHttpRequestWriterFactory();
@@ -341,28 +1194,19 @@ public class IHttpClient implements AutoCloseable {
         HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> connFactory =
             new ManagedHttpClientConnectionFactory(requestWriterFactory, responseParserFactory);
 
-        // 注册协议
-        Registry<ConnectionSocketFactory> socketFactoryRegistry =
-            RegistryBuilder.<ConnectionSocketFactory>create().register("http", PlainConnectionSocketFactory.INSTANCE)
+        // 注册协议，记录耗时时使用带埋点的实现
+        Registry<ConnectionSocketFactory> socketFactoryRegistry = timing
+            ? RegistryBuilder.<ConnectionSocketFactory>create().register("http", new TimingHooks.PlainSocketFactory())
+                .register("https", new TimingHooks.SslSocketFactory(sslcontext)).build()
+            : RegistryBuilder.<ConnectionSocketFactory>create().register("http", PlainConnectionSocketFactory.INSTANCE)
                 .register("https", new SSLConnectionSocketFactory(sslcontext)).build();
 
-        // 自定义DNS
-        DnsResolver dnsResolver = new SystemDefaultDnsResolver() {
-
-            @Override
-            public InetAddress[] resolve(final String host) throws UnknownHostException {
-                if ("localhost".equalsIgnoreCase(host)) {
-                    return new InetAddress[] {InetAddress.getByAddress(new byte[] {127, 0, 0, 1})};
-                } else {
-                    return super.resolve(host);
-                }
-            }
-
-        };
-
         // 连接池管理
-        PoolingHttpClientConnectionManager connManager =
-            new PoolingHttpClientConnectionManager(socketFactoryRegistry, connFactory, dnsResolver);
+        InstrumentedConnectionManager connManager = new InstrumentedConnectionManager(socketFactoryRegistry,
+            connFactory, timing ? new TimingHooks.Dns(dnsResolver) : dnsResolver, config);
+        if (timing) {
+            connManager.enableTiming();
+        }
 
         int sndBufSize = config.getSndBufSize();
         int rcvBufSize = config.getRcvBufSize();
@@ -372,52 +1216,194 @@ public class IHttpClient implements AutoCloseable {
         log.debug("soket默认设置：sendBufferSize:{};receiveBufferSize:{}", sndBufSize, rcvBufSize);
         // 将socket配置设置为连接池默认配置
         connManager.setDefaultSocketConfig(socketConfig);
-        // 暂停活动1S后验证连接
-        connManager.setValidateAfterInactivity(1000);
-
-        // 消息容器，初始化消息容器以及消息容器的配置，设置最多200个请求头，请求行长度最大为2000
-        MessageConstraints messageConstraints =
-            MessageConstraints.custom().setMaxHeaderCount(200).setMaxLineLength(2000).build();
-
-        Charset charset = config.getCharset();
-
-        // Create connection configuration
-        ConnectionConfig connectionConfig = ConnectionConfig.custom().setMalformedInputAction(CodingErrorAction.IGNORE)
-            .setUnmappableInputAction(CodingErrorAction.IGNORE).setCharset(charset)
-            .setMessageConstraints(messageConstraints).build();
-        log.debug("默认连接编码配置为：{}", charset);
+        // 空闲连接的校验会阻塞请求线程，默认由后台线程清理过期、空闲连接
+        connManager.setValidateAfterInactivity(config.getValidateAfterInactivity());
         // 设置默认的连接配置
         connManager.setDefaultConnectionConfig(connectionConfig);
 
         // 设置连接池能够保存的最大连接数量以及对每个站点保持最大的连接数量
-        // 当前设置：每个站点最大保持300个连接，连接池总共可以保持3000个连接
         connManager.setMaxTotal(config.getMaxTotal());
         connManager.setDefaultMaxPerRoute(config.getDefaultMaxPerRoute());
+        return connManager;
+    }
 
-        // Create global request configuration
-        RequestConfig defaultRequestConfig =
-            RequestConfig.custom().setCookieSpec(CookieSpecs.DEFAULT).setExpectContinueEnabled(true)
-                .setTargetPreferredAuthSchemes(Arrays.asList(AuthSchemes.NTLM, AuthSchemes.DIGEST))
-                .setProxyPreferredAuthSchemes(Arrays.asList(AuthSchemes.BASIC)).build();
+    /**
+     * 构建带响应缓存的httpClient构建器，小响应缓存在内存中，大响应（开启磁盘缓存时）缓存在内存映射的段文件中
+     *
+     * @param config
+     *            client配置信息
+     * @return httpClient构建器
+     */
+    private HttpClientBuilder buildCachingClientBuilder(IHttpClientConfig config) {
+        log.debug("开启响应缓存，最大缓存条数：{}，最大缓存响应大小：{}", config.getCacheMaxEntries(), config.getCacheMaxObjectSize());
+        // 客户端缓存是私有缓存，可以缓存带认证信息的响应
+        CacheConfig cacheConfig = CacheConfig.custom().setMaxCacheEntries(config.getCacheMaxEntries())
+            .setMaxObjectSize(config.getCacheMaxObjectSize()).setSharedCache(false).build();
 
-        // 根据配置构建httpClient
-        HttpClientBuilder builder = HttpClients.custom();
+        if (config.getCacheDiskDirectory() != null) {
+            log.debug("开启磁盘缓存，目录：{}，段文件大小：{}", config.getCacheDiskDirectory(), config.getCacheDiskSegmentSize());
+            cacheDiskStore = new MappedSegmentStore(new File(config.getCacheDiskDirectory()),
+                config.getCacheDiskSegmentSize(), config.getCacheDiskMaxSize());
+        }
+
+        ManagedHttpCacheStorage storage = new ManagedHttpCacheStorage(cacheConfig);
+        // 淘汰的缓存资源由后台释放，注意这里不能持有当前client的引用
+        getMaintainer().scheduleWithFixedDelay(storage::cleanResources, config.getCacheCleanInterval(),
+            config.getCacheCleanInterval(), TimeUnit.MILLISECONDS);
+        cacheStorage = storage;
+        cacheStats = new CacheStatsRecorder();
+
+        CachingHttpClientBuilder builder = CachingHttpClients.custom();
+        builder.setCacheConfig(cacheConfig).setHttpCacheStorage(storage)
+            .setResourceFactory(new TieredResourceFactory(config.getCacheMemoryThreshold(), cacheDiskStore));
+        return builder;
+    }
+
+    /**
+     * 获取异步client，不存在时初始化
+     *
+     * @return 异步client
+     */
+    private CloseableHttpAsyncClient getAsyncClient() {
+        if (asyncClient != null) {
+            return asyncClient;
+        }
+
+        synchronized (asyncLock) {
+            if (closed) {
+                throw new NetException("client已经关闭");
+            }
+            if (asyncClient == null) {
+                CloseableHttpAsyncClient client = initAsync(this.config);
+                // 先启动再发布，避免其他线程拿到未启动的client
+                client.start();
+                asyncClient = client;
+            }
+            return asyncClient;
+        }
+    }
+
+    /**
+     * 初始化异步httpClient，与同步httpClient共用cookieStore、DNS解析、连接配置等，但是使用单独的连接池
+     *
+     * @param config
+     *            client配置信息
+     * @return 异步httpClient，未启动
+     */
+    private CloseableHttpAsyncClient initAsync(IHttpClientConfig config) {
+        log.debug("正在初始化异步HttpClient");
+        IOReactorConfig ioReactorConfig = IOReactorConfig.custom().setIoThreadCount(config.getIoThreadCount())
+            .setConnectTimeout(config.getConnectTimeout()).setSoTimeout(config.getSocketTimeout()).setTcpNoDelay(true)
+            .setSoKeepAlive(true).setSndBufSize(config.getSndBufSize()).setRcvBufSize(config.getRcvBufSize()).build();
+
+        DefaultConnectingIOReactor ioReactor;
+        try {
+            ioReactor = new DefaultConnectingIOReactor(ioReactorConfig);
+        } catch (IOReactorException e) {
+            throw new NetException("异步client IO reactor初始化失败", e);
+        }
+
+        // 注册协议
+        Registry<SchemeIOSessionStrategy> sessionStrategyRegistry =
+            RegistryBuilder.<SchemeIOSessionStrategy>create().register("http", NoopIOSessionStrategy.INSTANCE)
+                .register("https", new SSLIOSessionStrategy(sslcontext)).build();
+
+        // 连接池管理，与同步连接池配置一致
+        PoolingNHttpClientConnectionManager connManager =
+            new RouteLimitedNConnectionManager(ioReactor, sessionStrategyRegistry, dnsResolver, config);
+        connManager.setDefaultConnectionConfig(connectionConfig);
+        connManager.setMaxTotal(config.getMaxTotal());
+        connManager.setDefaultMaxPerRoute(config.getDefaultMaxPerRoute());
+        this.asyncConnManager = connManager;
+        if (evictor != null) {
+            evictor.setAsyncConnManager(connManager);
+        }
+
+        HttpAsyncClientBuilder builder = HttpAsyncClients.custom();
         HttpProxy proxy = config.getProxy();
         if (proxy != null) {
             builder.setProxy(new HttpHost(proxy.getHost(), proxy.getPort()));
         }
 
         if (noRedirect) {
-            log.debug("用户设置不重定向，客户端将不会重定向");
             builder.setRedirectStrategy(NOREDIRECT);
         }
 
-        httpclient = builder.setConnectionManager(connManager).setDefaultCookieStore(cookieStore)
+        // 异步client默认不支持压缩，这里与同步client保持一致；异步client执行响应拦截器时body还没有读取，所以响应的解压在
+        // 回调中处理
+        if (config.isContentCompressionEnabled()) {
+            builder.addInterceptorLast(new RequestAcceptEncoding());
+        }
+        builder.addInterceptorFirst(RequestHostCookies.INSTANCE);
+
+        CloseableHttpAsyncClient client = builder.setConnectionManager(connManager)
+            .setKeepAliveStrategy(new HeaderKeepAliveStrategy(config.getDefaultKeepAlive()))
+            .setDefaultCookieStore(cookieStore)
             .setDefaultRequestConfig(defaultRequestConfig).setUserAgent(config.getUserAgent()).build();
-        log.debug("用户代理为：{}", config.getUserAgent());
-        this.httpClient = httpclient;
-        this.cookieStore = cookieStore;
-        this.id = String.valueOf(System.currentTimeMillis());
-        log.debug("HttpClient初始化完毕");
+        log.debug("异步HttpClient初始化完毕，IO线程数：{}", config.getIoThreadCount());
+        return client;
+    }
+
+    /**
+     * 导出请求统计
+     *
+     * @param exporter
+     *            导出
+     * @param clientId
+     *            client的ID
+     * @param registry
+     *            请求统计
+     */
+    private static void exportMetrics(MetricsExporter exporter, String clientId, MetricsRegistry registry) {
+        try {
+            exporter.export(clientId, registry.snapshot());
+        } catch (Throwable e) {
+            log.warn("导出请求统计异常", e);
+        }
+    }
+
+    /**
+     * 获取后台维护线程，不存在时创建
+     *
+     * @return 后台维护线程
+     * @throws NetException
+     *             client已经关闭
+     */
+    private ScheduledExecutorService getMaintainer() {
+        synchronized (asyncLock) {
+            if (closed) {
+                throw new NetException("client已经关闭");
+            }
+            if (maintainer == null) {
+                ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                    Thread thread = new Thread(runnable, "IHttpClient-maintainer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                // 对冲请求的定时任务大多会被取消，取消后立即移除
+                executor.setRemoveOnCancelPolicy(true);
+                maintainer = executor;
+            }
+            return maintainer;
+        }
+    }
+
+    /**
+     * 获取对冲请求处理器，不存在时创建
+     *
+     * @return 对冲请求处理器
+     */
+    private Hedger getHedger() {
+        if (hedger == null) {
+            synchronized (asyncLock) {
+                if (closed) {
+                    throw new NetException("client已经关闭");
+                }
+                if (hedger == null) {
+                    hedger = new Hedger(getMaintainer(), config.getHedgeMaxConcurrency(), config.getHedgeBudgetRatio());
+                }
+            }
+        }
+        return hedger;
     }
 }
@@ -0,0 +1,65 @@
+package com.joe.http.client;
+
+import java.util.Map;
+
+import com.joe.http.config.LimitAlgorithm;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 自适应并发限制统计快照，不可变，计数都是累计值
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 17:10 JoeKerouac Exp $
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public final class IHttpConcurrencyStats {
+
+    /**
+     * 限制算法
+     */
+    private final LimitAlgorithm algorithm;
+
+    /**
+     * 每个站点的统计，key为站点（scheme://host:port）
+     */
+    private final Map<String, HostStats> hosts;
+
+    /**
+     * 单个站点的统计
+     */
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static final class HostStats {
+
+        /**
+         * 当前并发限制
+         */
+        private final int limit;
+
+        /**
+         * 当前并发数
+         */
+        private final int inFlight;
+
+        /**
+         * 当前等待许可的请求数
+         */
+        private final int waiting;
+
+        /**
+         * 获取到许可的请求数
+         */
+        private final long accepted;
+
+        /**
+         * 被拒绝的请求数
+         */
+        private final long rejected;
+    }
+}
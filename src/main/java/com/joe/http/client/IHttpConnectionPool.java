@@ -0,0 +1,202 @@
+package com.joe.http.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.ssl.SSLContexts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.joe.http.config.IHttpClientConfig;
+import com.joe.http.exception.NetException;
+
+/**
+ * 可以在多个{@link IHttpClient}之间共享的同步连接池，多个cookie、配置不同的client通过
+ * {@link IHttpClient.IHttpClientBuilder#connectionPool(IHttpConnectionPool)}使用同一个连接池，连接总数受该连接池的配置限制，
+ * 相同站点的连接可以在这些client之间复用
+ *
+ * 连接池相关的配置（maxTotal、defaultMaxPerRoute、maxPerRoute、自适应连接数、连接清理、socket缓冲、编码、DNS）以创建连接池时
+ * 的配置为准，client的配置中这些项不生效；其他配置（超时、重定向、cookie、代理、限速等）仍然以client的配置为准
+ *
+ * PS:关闭client不会关闭共享连接池，连接池需要在所有client都不再使用后由创建者关闭；共享连接池不统计收发字节数，DNS、连接、TLS
+ * 握手、获取连接阶段的耗时只有连接池的配置开启timingEnabled时才会记录；异步请求仍然使用每个client自己的连接池；client指定的
+ * sslcontext与连接池的不一致时client创建失败，连接数配置与连接池的不一致时打印警告
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 23:10 JoeKerouac Exp $
+ */
+public final class IHttpConnectionPool implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(IHttpConnectionPool.class);
+
+    private final InstrumentedConnectionManager connManager;
+
+    private final DnsResolver dnsResolver;
+
+    /**
+     * 后台维护线程，用于清理连接、自适应调整连接池，没有后台任务时为null
+     */
+    private final ScheduledExecutorService maintainer;
+
+    private final SSLContext sslcontext;
+
+    /**
+     * 创建连接池时的连接数配置，用于检查client的配置是否与连接池冲突
+     */
+    private final int maxTotal;
+
+    private final int defaultMaxPerRoute;
+
+    private final Map<String, Integer> maxPerRoute;
+
+    private final boolean timingEnabled;
+
+    /**
+     * 使用默认配置创建连接池
+     */
+    public IHttpConnectionPool() {
+        this(new IHttpClientConfig());
+    }
+
+    /**
+     * 使用指定配置创建连接池
+     *
+     * @param config
+     *            配置，只有连接池相关的配置生效
+     */
+    public IHttpConnectionPool(IHttpClientConfig config) {
+        this(config, null);
+    }
+
+    /**
+     * 使用指定配置创建连接池
+     *
+     * @param config
+     *            配置，只有连接池相关的配置生效
+     * @param sslcontext
+     *            sslcontext，为null时使用系统默认
+     */
+    public IHttpConnectionPool(IHttpClientConfig config, SSLContext sslcontext) {
+        config = config == null ? new IHttpClientConfig() : config;
+        sslcontext = sslcontext == null ? SSLContexts.createSystemDefault() : sslcontext;
+        this.sslcontext = sslcontext;
+        this.maxTotal = config.getMaxTotal();
+        this.defaultMaxPerRoute = config.getDefaultMaxPerRoute();
+        this.maxPerRoute = InstrumentedConnectionManager.normalizeMaxPerRoute(config.getMaxPerRoute());
+        this.timingEnabled = config.isTimingEnabled();
+
+        boolean needMaintainer = config.getEvictionInterval() > 0 || config.isAdaptivePoolSizing();
+        if (needMaintainer) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "IHttpConnectionPool-maintainer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            this.maintainer = executor;
+        } else {
+            this.maintainer = null;
+        }
+
+        this.dnsResolver = IHttpClient.buildDnsResolver(config);
+        this.connManager = IHttpClient.buildConnManager(config, sslcontext, dnsResolver,
+            IHttpClient.buildConnectionConfig(config), config.isTimingEnabled());
+
+        if (config.getEvictionInterval() > 0) {
+            log.debug("共享连接池开启后台连接清理，清理周期：{}ms，最大空闲时间：{}ms", config.getEvictionInterval(),
+                config.getMaxIdleTime());
+            maintainer.scheduleWithFixedDelay(new ConnectionEvictor(connManager, config.getMaxIdleTime()),
+                config.getEvictionInterval(), config.getEvictionInterval(), TimeUnit.MILLISECONDS);
+        }
+        if (config.isAdaptivePoolSizing()) {
+            log.debug("共享连接池开启自适应连接数，调整周期：{}ms", config.getAdaptiveInterval());
+            maintainer.scheduleWithFixedDelay(new AdaptivePoolSizer(connManager, config),
+                config.getAdaptiveInterval(), config.getAdaptiveInterval(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 获取连接池统计快照，包含所有使用该连接池的client
+     *
+     * @return 连接池统计快照
+     */
+    public IHttpPoolStats getPoolStats() {
+        return connManager.snapshot();
+    }
+
+    /**
+     * 获取DNS缓存统计快照
+     *
+     * @return DNS缓存统计快照，没有开启DNS缓存时返回null
+     */
+    public IHttpDnsStats getDnsStats() {
+        return dnsResolver instanceof CachingDnsResolver ? ((CachingDnsResolver)dnsResolver).stats() : null;
+    }
+
+    InstrumentedConnectionManager getConnManager() {
+        return connManager;
+    }
+
+    /**
+     * 检查client的配置是否与连接池冲突，共享连接池时client的这些配置不生效
+     *
+     * @param config
+     *            client的配置
+     * @param sslcontext
+     *            client指定的sslcontext，没有指定时为null
+     * @param metrics
+     *            client是否开启了请求统计
+     * @param timing
+     *            client是否开启了耗时记录
+     * @throws NetException
+     *             client指定的sslcontext与连接池的不一致，同步请求将使用与预期不同的TLS配置
+     */
+    void checkCompatible(IHttpClientConfig config, SSLContext sslcontext, boolean metrics, boolean timing) {
+        if (sslcontext != null && sslcontext != this.sslcontext) {
+            throw new NetException("client指定的sslcontext与共享连接池的不一致，需要在创建连接池时指定sslcontext");
+        }
+
+        List<String> ignored = new ArrayList<>();
+        if (config.getMaxTotal() != maxTotal) {
+            ignored.add("maxTotal=" + config.getMaxTotal());
+        }
+        if (config.getDefaultMaxPerRoute() != defaultMaxPerRoute) {
+            ignored.add("defaultMaxPerRoute=" + config.getDefaultMaxPerRoute());
+        }
+        Map<String, Integer> routes = InstrumentedConnectionManager.normalizeMaxPerRoute(config.getMaxPerRoute());
+        if (!Objects.equals(routes, maxPerRoute)) {
+            ignored.add("maxPerRoute=" + routes);
+        }
+        if (metrics) {
+            ignored.add("metricsEnabled（同步请求不统计收发字节数）");
+        }
+        if (timing && !timingEnabled) {
+            ignored.add("timingEnabled（同步请求不记录DNS、连接、TLS握手、获取连接阶段的耗时）");
+        }
+        if (!ignored.isEmpty()) {
+            log.warn("使用共享连接池，client的以下配置对同步请求不生效，以连接池的配置为准：{}", ignored);
+        }
+    }
+
+    /**
+     * 关闭连接池，所有连接将被关闭，使用该连接池的client将不能再发起同步请求
+     */
+    @Override
+    public void close() {
+        if (maintainer != null) {
+            maintainer.shutdownNow();
+        }
+        if (dnsResolver instanceof CachingDnsResolver) {
+            ((CachingDnsResolver)dnsResolver).close();
+        }
+        connManager.shutdown();
+    }
+}
@@ -0,0 +1,42 @@
+package com.joe.http.client;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * DNS缓存统计快照，不可变，计数都是累计值
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 14:20 JoeKerouac Exp $
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public final class IHttpDnsStats {
+
+    /**
+     * 命中缓存（解析成功的缓存）次数
+     */
+    private final long hits;
+
+    /**
+     * 命中解析失败缓存的次数
+     */
+    private final long negativeHits;
+
+    /**
+     * 未命中缓存次数
+     */
+    private final long misses;
+
+    /**
+     * 后台预刷新成功次数
+     */
+    private final long refreshes;
+
+    /**
+     * 当前缓存数量
+     */
+    private final int size;
+}
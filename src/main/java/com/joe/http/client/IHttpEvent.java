@@ -0,0 +1,80 @@
+package com.joe.http.client;
+
+/**
+ * 同步请求执行过程中的各个阶段事件，按照正常请求的发生顺序排列；复用连接时没有DNS、连接、TLS事件，http请求没有TLS事件
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 21:10 JoeKerouac Exp $
+ */
+public enum IHttpEvent {
+
+    /**
+     * 开始执行请求
+     */
+    CALL_START,
+
+    /**
+     * 开始从连接池获取连接
+     */
+    LEASE_START,
+
+    /**
+     * 从连接池获取到连接
+     */
+    LEASE_END,
+
+    /**
+     * 开始DNS解析
+     */
+    DNS_START,
+
+    /**
+     * DNS解析完成
+     */
+    DNS_END,
+
+    /**
+     * 开始建立TCP连接
+     */
+    CONNECT_START,
+
+    /**
+     * TCP连接建立完成
+     */
+    CONNECT_END,
+
+    /**
+     * 开始TLS握手
+     */
+    TLS_START,
+
+    /**
+     * TLS握手完成
+     */
+    TLS_END,
+
+    /**
+     * 开始发送请求
+     */
+    REQUEST_START,
+
+    /**
+     * 请求（包括body）发送完成
+     */
+    REQUEST_END,
+
+    /**
+     * 收到响应头，即首字节时间
+     */
+    RESPONSE_HEADERS,
+
+    /**
+     * 响应body读取完毕或者响应被关闭
+     */
+    RESPONSE_END,
+
+    /**
+     * 请求失败，响应头之前发生异常
+     */
+    CALL_FAILED
+}
@@ -0,0 +1,25 @@
+package com.joe.http.client;
+
+/**
+ * 请求阶段事件监听，同步请求执行到各个阶段时回调，通过{@link IHttpClient.IHttpClientBuilder#eventListener(IHttpEventListener)}
+ * 注册；没有注册监听并且没有开启{@link com.joe.http.config.IHttpClientConfig#isTimingEnabled()}时不会记录任何事件
+ *
+ * PS:回调在执行请求的线程中同步执行（{@link IHttpEvent#RESPONSE_END}在读取响应的线程中执行），实现必须足够轻量并且不能阻塞；
+ * 回调抛出的异常将被忽略
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 21:10 JoeKerouac Exp $
+ */
+@FunctionalInterface
+public interface IHttpEventListener {
+
+    /**
+     * 事件回调
+     *
+     * @param event
+     *            事件
+     * @param timing
+     *            当前请求的耗时记录，事件的时间戳可以通过{@link IHttpTiming#getNanos(IHttpEvent)}获取
+     */
+    void onEvent(IHttpEvent event, IHttpTiming timing);
+}
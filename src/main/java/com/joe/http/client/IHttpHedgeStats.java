@@ -0,0 +1,37 @@
+package com.joe.http.client;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 对冲请求统计快照，不可变，计数都是累计值
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 16:40 JoeKerouac Exp $
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public final class IHttpHedgeStats {
+
+    /**
+     * 开启了对冲的请求数
+     */
+    private final long requests;
+
+    /**
+     * 发出的对冲请求数
+     */
+    private final long sent;
+
+    /**
+     * 对冲请求先于原始请求响应的次数
+     */
+    private final long won;
+
+    /**
+     * 到达对冲延迟但是由于对冲预算不足或者对冲线程池已满没有发出的对冲请求数
+     */
+    private final long skipped;
+}
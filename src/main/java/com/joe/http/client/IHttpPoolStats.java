@@ -0,0 +1,107 @@
+package com.joe.http.client;
+
+import java.util.Collections;
+import java.util.Map;
+
+import com.joe.http.metrics.HistogramSnapshot;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 连接池统计快照，不可变
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 12:20 JoeKerouac Exp $
+ */
+@Getter
+@ToString
+public final class IHttpPoolStats {
+
+    /**
+     * 快照时间
+     */
+    private final long timestamp;
+
+    /**
+     * 已经租用（正在使用）的连接数
+     */
+    private final int leased;
+
+    /**
+     * 空闲的连接数
+     */
+    private final int available;
+
+    /**
+     * 等待获取连接的请求数
+     */
+    private final int pending;
+
+    /**
+     * 连接池最大连接数
+     */
+    private final int max;
+
+    /**
+     * 获取连接超时次数（累计）
+     */
+    private final long leaseTimeouts;
+
+    /**
+     * 获取连接的等待耗时（累计），异步连接池不统计，为null
+     */
+    private final HistogramSnapshot leaseWait;
+
+    /**
+     * 每个route（key为目标主机，例如http://127.0.0.1:80）的统计
+     */
+    private final Map<String, RouteStats> routes;
+
+    IHttpPoolStats(int leased, int available, int pending, int max, long leaseTimeouts, HistogramSnapshot leaseWait,
+        Map<String, RouteStats> routes) {
+        this.timestamp = System.currentTimeMillis();
+        this.leased = leased;
+        this.available = available;
+        this.pending = pending;
+        this.max = max;
+        this.leaseTimeouts = leaseTimeouts;
+        this.leaseWait = leaseWait;
+        this.routes = Collections.unmodifiableMap(routes);
+    }
+
+    /**
+     * 单个route的统计
+     */
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static final class RouteStats {
+
+        /**
+         * 已经租用（正在使用）的连接数
+         */
+        private final int leased;
+
+        /**
+         * 空闲的连接数
+         */
+        private final int available;
+
+        /**
+         * 等待获取连接的请求数
+         */
+        private final int pending;
+
+        /**
+         * 该route的最大连接数
+         */
+        private final int max;
+
+        /**
+         * 获取连接的等待耗时（累计），异步连接池不统计，为null
+         */
+        private final HistogramSnapshot leaseWait;
+    }
+}
@@ -0,0 +1,68 @@
+package com.joe.http.client;
+
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 站点限速统计快照，不可变，计数都是累计值
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 22:40 JoeKerouac Exp $
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public final class IHttpRateLimitStats {
+
+    /**
+     * 每个站点的统计，key为站点（scheme://host:port）
+     */
+    private final Map<String, HostStats> hosts;
+
+    /**
+     * 单个站点的统计
+     */
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static final class HostStats {
+
+        /**
+         * 每秒允许的请求数
+         */
+        private final double permitsPerSecond;
+
+        /**
+         * 令牌桶容量，即允许的突发请求数
+         */
+        private final int burst;
+
+        /**
+         * 当前可用的令牌数
+         */
+        private final int available;
+
+        /**
+         * 没有等待直接获取到令牌的请求数
+         */
+        private final long acquired;
+
+        /**
+         * 等待后获取到令牌的请求数
+         */
+        private final long throttled;
+
+        /**
+         * 被拒绝的请求数
+         */
+        private final long rejected;
+
+        /**
+         * 等待令牌的总耗时，单位纳秒
+         */
+        private final long throttledNanos;
+    }
+}
@@ -0,0 +1,37 @@
+package com.joe.http.client;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 请求合并统计快照，不可变，计数都是累计值
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 16:10 JoeKerouac Exp $
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public final class IHttpSingleFlightStats {
+
+    /**
+     * 实际发出的请求数
+     */
+    private final long executions;
+
+    /**
+     * 被合并（没有实际发出，等待相同请求结果）的请求数
+     */
+    private final long collapsed;
+
+    /**
+     * 等待相同请求结果超时的请求数
+     */
+    private final long timeouts;
+
+    /**
+     * 当前正在进行中的请求数
+     */
+    private final int inFlight;
+}
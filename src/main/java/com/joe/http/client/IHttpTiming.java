@@ -0,0 +1,205 @@
+package com.joe.http.client;
+
+import java.net.URI;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 一次同步请求各个阶段的耗时记录，时间戳为{@link System#nanoTime()}，耗时单位为纳秒，对应阶段没有发生时耗时为-1；请求被重定向、
+ * 重试时记录的是最后一次的值
+ *
+ * PS:开启对冲请求时只记录原始请求，合并的GET请求只有发起实际请求的调用方有连接相关的记录
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 21:10 JoeKerouac Exp $
+ */
+public final class IHttpTiming {
+
+    private static final Logger log = LoggerFactory.getLogger(IHttpTiming.class);
+
+    private static final IHttpEvent[] EVENTS = IHttpEvent.values();
+
+    private final String method;
+
+    private final URI uri;
+
+    private final List<IHttpEventListener> listeners;
+
+    /**
+     * 每个事件的时间戳，下标为事件的ordinal，0表示没有发生
+     */
+    private final long[] nanos = new long[EVENTS.length];
+
+    IHttpTiming(String method, URI uri, List<IHttpEventListener> listeners) {
+        this.method = method;
+        this.uri = uri;
+        this.listeners = listeners;
+    }
+
+    /**
+     * 记录事件并通知监听
+     *
+     * @param event
+     *            事件
+     */
+    void record(IHttpEvent event) {
+        nanos[event.ordinal()] = System.nanoTime();
+        for (int i = 0; i < listeners.size(); i++) {
+            try {
+                listeners.get(i).onEvent(event, this);
+            } catch (Throwable e) {
+                log.warn("请求事件监听[{}]处理事件[{}]异常", listeners.get(i), event, e);
+            }
+        }
+    }
+
+    /**
+     * 请求方法
+     *
+     * @return 请求方法
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * 请求地址
+     *
+     * @return 请求地址
+     */
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * 获取事件发生的时间戳
+     *
+     * @param event
+     *            事件
+     * @return 事件发生时的{@link System#nanoTime()}，没有发生时返回0
+     */
+    public long getNanos(IHttpEvent event) {
+        return nanos[event.ordinal()];
+    }
+
+    /**
+     * 两个事件之间的耗时
+     *
+     * @param start
+     *            开始事件
+     * @param end
+     *            结束事件
+     * @return 耗时，任意一个事件没有发生时返回-1
+     */
+    public long between(IHttpEvent start, IHttpEvent end) {
+        long startNanos = nanos[start.ordinal()];
+        long endNanos = nanos[end.ordinal()];
+        return startNanos == 0 || endNanos == 0 ? -1 : endNanos - startNanos;
+    }
+
+    /**
+     * 等待连接池连接的耗时
+     *
+     * @return 耗时
+     */
+    public long getLeaseNanos() {
+        return between(IHttpEvent.LEASE_START, IHttpEvent.LEASE_END);
+    }
+
+    /**
+     * DNS解析耗时
+     *
+     * @return 耗时
+     */
+    public long getDnsNanos() {
+        return between(IHttpEvent.DNS_START, IHttpEvent.DNS_END);
+    }
+
+    /**
+     * TCP连接耗时
+     *
+     * @return 耗时
+     */
+    public long getConnectNanos() {
+        return between(IHttpEvent.CONNECT_START, IHttpEvent.CONNECT_END);
+    }
+
+    /**
+     * TLS握手耗时
+     *
+     * @return 耗时
+     */
+    public long getTlsNanos() {
+        return between(IHttpEvent.TLS_START, IHttpEvent.TLS_END);
+    }
+
+    /**
+     * 发送请求耗时
+     *
+     * @return 耗时
+     */
+    public long getRequestNanos() {
+        return between(IHttpEvent.REQUEST_START, IHttpEvent.REQUEST_END);
+    }
+
+    /**
+     * 服务端处理耗时，即请求发送完毕到收到响应头的耗时
+     *
+     * @return 耗时
+     */
+    public long getServerNanos() {
+        return between(IHttpEvent.REQUEST_END, IHttpEvent.RESPONSE_HEADERS);
+    }
+
+    /**
+     * 首字节耗时，即开始执行请求到收到响应头的耗时
+     *
+     * @return 耗时
+     */
+    public long getTimeToFirstByteNanos() {
+        return between(IHttpEvent.CALL_START, IHttpEvent.RESPONSE_HEADERS);
+    }
+
+    /**
+     * 读取响应body的耗时
+     *
+     * @return 耗时
+     */
+    public long getBodyNanos() {
+        return between(IHttpEvent.RESPONSE_HEADERS, IHttpEvent.RESPONSE_END);
+    }
+
+    /**
+     * 总耗时，即开始执行请求到响应读取完毕（或者请求失败）的耗时
+     *
+     * @return 耗时
+     */
+    public long getTotalNanos() {
+        long total = between(IHttpEvent.CALL_START, IHttpEvent.RESPONSE_END);
+        return total < 0 ? between(IHttpEvent.CALL_START, IHttpEvent.CALL_FAILED) : total;
+    }
+
+    /**
+     * 是否复用了连接池中的连接
+     *
+     * @return 获取到连接并且没有新建连接时返回true
+     */
+    public boolean isConnectionReused() {
+        return nanos[IHttpEvent.LEASE_END.ordinal()] != 0 && nanos[IHttpEvent.CONNECT_START.ordinal()] == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "IHttpTiming(" + method + " " + uri + ", lease=" + millis(getLeaseNanos()) + ", dns="
+            + millis(getDnsNanos()) + ", connect=" + millis(getConnectNanos()) + ", tls=" + millis(getTlsNanos())
+            + ", request=" + millis(getRequestNanos()) + ", server=" + millis(getServerNanos()) + ", ttfb="
+            + millis(getTimeToFirstByteNanos()) + ", body=" + millis(getBodyNanos()) + ", total="
+            + millis(getTotalNanos()) + ", reused=" + isConnectionReused() + ")";
+    }
+
+    private static String millis(long nanos) {
+        return nanos < 0 ? "-" : String.format("%.3fms", nanos / 1000000.0);
+    }
+}
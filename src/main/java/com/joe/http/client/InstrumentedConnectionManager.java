@@ -0,0 +1,315 @@
+package com.joe.http.client;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpConnectionMetrics;
+import org.apache.http.HttpHost;
+import org.apache.http.config.Registry;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.HttpConnectionFactory;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+import com.joe.http.config.IHttpClientConfig;
+import com.joe.http.metrics.MetricsRegistry;
+
+/**
+ * 带统计的连接池，记录每次从连接池获取连接的等待耗时以及连接的占用时长，并在第一次使用某个route时应用该route的连接数配置；
+ * 长时间没有使用并且已经没有连接的route由后台清理任务通过{@link #evictIdleRoutes(long)}移除
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 12:20 JoeKerouac Exp $
+ */
+class InstrumentedConnectionManager extends PoolingHttpClientConnectionManager {
+
+    /**
+     * client配置
+     */
+    private final IHttpClientConfig config;
+
+    /**
+     * 每个route单独的最大连接数配置，key已经规范化
+     */
+    private final Map<String, Integer> maxPerRoute;
+
+    /**
+     * 所有route的统计
+     */
+    private final RouteState totalState = new RouteState(0);
+
+    /**
+     * 每个route的统计
+     */
+    private final Map<HttpRoute, RouteState> routeStates = new ConcurrentHashMap<>();
+
+    /**
+     * 当前租用中的连接以及对应的route统计、租用时间
+     */
+    private final Map<HttpClientConnection, Lease> leases = new ConcurrentHashMap<>();
+
+    /**
+     * 获取连接超时次数
+     */
+    private final LongAdder leaseTimeouts = new LongAdder();
+
+    /**
+     * 是否记录请求阶段耗时
+     */
+    private boolean timing;
+
+    /**
+     * 请求统计，连接归还时记录该连接收发的字节数，为null时不记录
+     */
+    private MetricsRegistry metrics;
+
+    InstrumentedConnectionManager(Registry<ConnectionSocketFactory> socketFactoryRegistry,
+        HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> connFactory, DnsResolver dnsResolver,
+        IHttpClientConfig config) {
+        super(socketFactoryRegistry, connFactory, dnsResolver);
+        this.config = config;
+        this.maxPerRoute = normalizeMaxPerRoute(config.getMaxPerRoute());
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        RouteState routeState = routeStates.computeIfAbsent(route, this::initRoute);
+        routeState.lastUsed = System.nanoTime();
+        ConnectionRequest request = super.requestConnection(route, state);
+        return new ConnectionRequest() {
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                if (timing) {
+                    TimingHooks.record(IHttpEvent.LEASE_START);
+                }
+                long start = System.nanoTime();
+                try {
+                    HttpClientConnection connection = request.get(timeout, unit);
+                    if (timing) {
+                        TimingHooks.record(IHttpEvent.LEASE_END);
+                    }
+                    long now = System.nanoTime();
+                    leases.put(connection, new Lease(routeState, now));
+                    routeState.leased(now - start);
+                    totalState.leased(now - start);
+                    return connection;
+                } catch (ConnectionPoolTimeoutException e) {
+                    leaseTimeouts.increment();
+                    throw e;
+                } finally {
+                    long wait = System.nanoTime() - start;
+                    routeState.leaseWait.recordNanos(wait);
+                    totalState.leaseWait.recordNanos(wait);
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+        };
+    }
+
+    @Override
+    public void releaseConnection(HttpClientConnection managedConn, Object state, long keepalive, TimeUnit unit) {
+        Lease lease = leases.remove(managedConn);
+        if (lease != null) {
+            long hold = System.nanoTime() - lease.start;
+            lease.routeState.released(hold);
+            totalState.released(hold);
+            if (metrics != null) {
+                recordBytes(managedConn, lease.routeState);
+            }
+        }
+        super.releaseConnection(managedConn, state, keepalive, unit);
+    }
+
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        // 关闭时还在租用中的连接不会再归还
+        leases.clear();
+    }
+
+    /**
+     * 移除超过指定时间没有使用并且连接池中已经没有该route的连接的route统计，同时恢复该route的最大连接数配置（自适应调整过的
+     * 连接数不再保留），下次使用该route时重新初始化；访问过大量不同站点时route统计不会一直增长
+     *
+     * @param idleTime
+     *            route没有使用的时间，单位毫秒
+     */
+    void evictIdleRoutes(long idleTime) {
+        long now = System.nanoTime();
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(idleTime);
+        for (Map.Entry<HttpRoute, RouteState> entry : routeStates.entrySet()) {
+            HttpRoute route = entry.getKey();
+            RouteState state = entry.getValue();
+            if (now - state.lastUsed < idleNanos || state.leased.get() > 0) {
+                continue;
+            }
+            PoolStats stats = getStats(route);
+            if (stats.getLeased() + stats.getPending() + stats.getAvailable() > 0) {
+                continue;
+            }
+            // 与computeIfAbsent互斥，避免移除后重新初始化的route的连接数配置被覆盖
+            routeStates.computeIfPresent(route, (key, current) -> {
+                if (current != state) {
+                    return current;
+                }
+                // 小于0时移除该route单独的最大连接数，使用默认值
+                setMaxPerRoute(key, -1);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * 开启请求阶段耗时记录，获取连接时记录{@link IHttpEvent#LEASE_START}、{@link IHttpEvent#LEASE_END}，需要在使用前调用
+     */
+    void enableTiming() {
+        this.timing = true;
+    }
+
+    /**
+     * 设置请求统计，需要在使用前调用
+     *
+     * @param metrics
+     *            请求统计
+     */
+    void setMetrics(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * 记录连接本次租用期间收发的字节数，记录后重置连接的统计
+     *
+     * @param connection
+     *            连接
+     * @param routeState
+     *            route统计
+     */
+    private void recordBytes(HttpClientConnection connection, RouteState routeState) {
+        try {
+            HttpConnectionMetrics connectionMetrics = connection.getMetrics();
+            metrics.recordBytes(routeState.metrics, connectionMetrics.getSentBytesCount(),
+                connectionMetrics.getReceivedBytesCount());
+            connectionMetrics.reset();
+        } catch (RuntimeException e) {
+            // 连接已经关闭、分离时无法获取统计
+        }
+    }
+
+    /**
+     * 第一次使用route时应用该route的连接数配置
+     *
+     * @param route
+     *            route
+     * @return route统计
+     */
+    private RouteState initRoute(HttpRoute route) {
+        Integer max = resolveMaxPerRoute(maxPerRoute, route.getTargetHost());
+        if (max != null) {
+            setMaxPerRoute(route, max);
+        }
+        RouteState state = new RouteState(getMaxPerRoute(route));
+        if (metrics != null) {
+            HttpHost target = route.getTargetHost();
+            state.metrics = metrics.route(target.getSchemeName(), target.getHostName(), target.getPort());
+        }
+        return state;
+    }
+
+    /**
+     * 规范化maxPerRoute配置，key（host或者host:port）转为小写并去掉首尾空白，只需要在创建时执行一次
+     *
+     * @param maxPerRoute
+     *            maxPerRoute配置，可以为null
+     * @return 规范化后的配置
+     */
+    static Map<String, Integer> normalizeMaxPerRoute(Map<String, Integer> maxPerRoute) {
+        Map<String, Integer> result = new HashMap<>();
+        if (maxPerRoute != null) {
+            maxPerRoute.forEach((key, max) -> {
+                if (key != null && max != null) {
+                    result.put(key.trim().toLowerCase(Locale.ROOT), max);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * 从规范化后的配置中查找站点的最大连接数，先按照host:port查找，然后按照host查找；站点没有端口时使用协议的默认端口
+     *
+     * @param maxPerRoute
+     *            规范化后的配置，见{@link #normalizeMaxPerRoute(Map)}
+     * @param target
+     *            站点
+     * @return 站点的最大连接数，没有单独配置时返回null
+     */
+    static Integer resolveMaxPerRoute(Map<String, Integer> maxPerRoute, HttpHost target) {
+        if (maxPerRoute.isEmpty()) {
+            return null;
+        }
+        String host = target.getHostName().toLowerCase(Locale.ROOT);
+        int port = target.getPort() < 0 ? ("https".equalsIgnoreCase(target.getSchemeName()) ? 443 : 80)
+            : target.getPort();
+        Integer max = maxPerRoute.get(host + ":" + port);
+        return max == null ? maxPerRoute.get(host) : max;
+    }
+
+    /**
+     * 获取所有route的统计，供自适应调整使用
+     *
+     * @return 所有route的统计
+     */
+    Map<HttpRoute, RouteState> getRouteStates() {
+        return routeStates;
+    }
+
+    /**
+     * 获取连接池当前统计快照
+     *
+     * @return 统计快照
+     */
+    IHttpPoolStats snapshot() {
+        Map<String, IHttpPoolStats.RouteStats> routes = new LinkedHashMap<>();
+        for (HttpRoute route : getRoutes()) {
+            PoolStats stats = getStats(route);
+            RouteState state = routeStates.get(route);
+            routes.put(route.getTargetHost().toURI(), new IHttpPoolStats.RouteStats(stats.getLeased(),
+                stats.getAvailable(), stats.getPending(), stats.getMax(), state == null ? null : state.snapshot()));
+        }
+        PoolStats total = getTotalStats();
+        return new IHttpPoolStats(total.getLeased(), total.getAvailable(), total.getPending(), total.getMax(),
+            leaseTimeouts.sum(), totalState.snapshot(), routes);
+    }
+
+    /**
+     * 一次连接租用
+     */
+    private static final class Lease {
+
+        private final RouteState routeState;
+
+        private final long start;
+
+        Lease(RouteState routeState, long start) {
+            this.routeState = routeState;
+            this.start = start;
+        }
+    }
+}
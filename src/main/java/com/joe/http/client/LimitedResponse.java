@@ -0,0 +1,130 @@
+package com.joe.http.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.EofSensorInputStream;
+import org.apache.http.conn.EofSensorWatcher;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.message.BasicHttpResponse;
+
+/**
+ * 持有并发许可的响应，响应body读取完毕、响应关闭或者中止时才释放许可；请求在读取body期间仍然占用连接，只在响应头到达时释放许可
+ * 会让并发限制低估实际的并发数
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 23:20 JoeKerouac Exp $
+ */
+final class LimitedResponse extends BasicHttpResponse implements CloseableHttpResponse {
+
+    private final CloseableHttpResponse response;
+
+    private final HttpRequestBase request;
+
+    private final ConcurrencyLimiter.Permit permit;
+
+    /**
+     * 5xx、429的响应说明上游过载
+     */
+    private final boolean dropped;
+
+    private LimitedResponse(CloseableHttpResponse response, HttpRequestBase request, ConcurrencyLimiter.Permit permit,
+        boolean dropped) {
+        super(response.getStatusLine());
+        this.response = response;
+        this.request = request;
+        this.permit = permit;
+        this.dropped = dropped;
+        setHeaders(response.getAllHeaders());
+        setLocale(response.getLocale());
+        setEntity(new PermitEntity(response.getEntity()));
+    }
+
+    /**
+     * 将许可绑定到响应上，没有body的响应直接释放许可
+     *
+     * @param response
+     *            响应
+     * @param request
+     *            请求
+     * @param permit
+     *            许可
+     * @return 持有许可的响应
+     */
+    static CloseableHttpResponse hold(CloseableHttpResponse response, HttpRequestBase request,
+        ConcurrencyLimiter.Permit permit) {
+        int status = response.getStatusLine().getStatusCode();
+        boolean dropped = status >= 500 || status == 429;
+        if (response.getEntity() == null) {
+            release(request, permit, dropped);
+            return response;
+        }
+        return new LimitedResponse(response, request, permit, dropped);
+    }
+
+    /**
+     * 释放许可，主动中止（例如对冲请求失败方）的请求不能说明上游的状态，不调整限制
+     */
+    static void release(HttpRequestBase request, ConcurrencyLimiter.Permit permit, boolean dropped) {
+        if (request.isAborted()) {
+            permit.cancel();
+        } else {
+            permit.release(dropped);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            response.close();
+        } finally {
+            release(request, permit, dropped);
+        }
+    }
+
+    /**
+     * 读取到body末尾、关闭或者中止body流时释放许可
+     */
+    private final class PermitEntity extends HttpEntityWrapper implements EofSensorWatcher {
+
+        PermitEntity(HttpEntity wrappedEntity) {
+            super(wrappedEntity);
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return new EofSensorInputStream(super.getContent(), this);
+        }
+
+        @Override
+        public void writeTo(OutputStream outStream) throws IOException {
+            try {
+                super.writeTo(outStream);
+            } finally {
+                release(request, permit, dropped);
+            }
+        }
+
+        @Override
+        public boolean eofDetected(InputStream wrapped) {
+            release(request, permit, dropped);
+            return true;
+        }
+
+        @Override
+        public boolean streamClosed(InputStream wrapped) {
+            release(request, permit, dropped);
+            return true;
+        }
+
+        @Override
+        public boolean streamAbort(InputStream wrapped) {
+            release(request, permit, dropped);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,478 @@
+package com.joe.http.client;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 基于内存映射文件的存储，数据顺序追加写入固定大小的段文件，段内数据全部释放后删除段文件；所有段文件总大小有上限，超过上限后
+ * 将不再接受写入
+ *
+ * 段文件删除后，没有正在写入和读取的空间时立即解除映射，否则在最后一个写入确认或者读取流关闭（读取完毕）时解除映射；没有关闭的
+ * 读取流会让映射保留到buffer被回收
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 15:00 JoeKerouac Exp $
+ */
+class MappedSegmentStore implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedSegmentStore.class);
+
+    /**
+     * 解除映射的方法，当前JVM不支持时为null，此时映射在buffer被回收后才会解除
+     */
+    private static final Unmapper UNMAPPER = Unmapper.resolve();
+
+    /**
+     * 段文件目录
+     */
+    private final File directory;
+
+    /**
+     * 段大小
+     */
+    private final int segmentSize;
+
+    /**
+     * 最大段数量
+     */
+    private final int maxSegments;
+
+    /**
+     * 所有存活的段
+     */
+    private final List<Segment> segments = new ArrayList<>();
+
+    /**
+     * 当前追加写入的段
+     */
+    private Segment current;
+
+    /**
+     * 段文件序号
+     */
+    private long sequence;
+
+    private boolean closed;
+
+    /**
+     * 构造器
+     *
+     * @param directory
+     *            段文件目录
+     * @param segmentSize
+     *            段大小
+     * @param maxSize
+     *            所有段文件的最大总大小
+     */
+    MappedSegmentStore(File directory, int segmentSize, long maxSize) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("目录不存在并且无法创建：" + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = (int)Math.max(1, maxSize / segmentSize);
+    }
+
+    /**
+     * 分配一块空间，空间大小为length，实际写入后需要调用{@link #commit(Slot, int)}确认实际使用的大小，确认之前该段不会解除映射
+     *
+     * @param length
+     *            最多写入的数据长度
+     * @return 分配的空间，存储已满时返回null
+     * @throws IOException
+     *             段文件创建失败
+     */
+    synchronized Slot allocate(int length) throws IOException {
+        if (closed || length > segmentSize) {
+            return null;
+        }
+        if (current == null || segmentSize - current.position < length) {
+            if (segments.size() >= maxSegments) {
+                return null;
+            }
+            if (current != null) {
+                current.sealed = true;
+                current.releaseIfEmpty();
+            }
+            current = newSegment();
+        }
+        Slot slot = new Slot(current, current.position, length);
+        current.position += length;
+        current.live += length;
+        current.users++;
+        return slot;
+    }
+
+    /**
+     * 扩大一块还没有确认的空间，只有该空间是当前段最后分配的空间并且段内剩余空间足够时才能扩大
+     *
+     * @param slot
+     *            分配的空间
+     * @param length
+     *            扩大后的大小
+     * @return 扩大成功返回true
+     */
+    synchronized boolean grow(Slot slot, int length) {
+        Segment segment = slot.segment;
+        int delta = length - slot.length;
+        if (closed || segment != current || segment.position != slot.offset + slot.length
+            || segmentSize - segment.position < delta) {
+            return false;
+        }
+        segment.position += delta;
+        segment.live += delta;
+        slot.length = length;
+        return true;
+    }
+
+    /**
+     * 确认实际写入的大小，如果该空间是最后分配的空间那么多余的部分将会回收，否则多余的部分直接释放
+     *
+     * @param slot
+     *            分配的空间
+     * @param used
+     *            实际写入的大小
+     */
+    synchronized void commit(Slot slot, int used) {
+        Segment segment = slot.segment;
+        int unused = slot.length - used;
+        if (segment == current && segment.position == slot.offset + slot.length) {
+            segment.position -= unused;
+        }
+        segment.live -= unused;
+        slot.length = used;
+        segment.release();
+    }
+
+    /**
+     * 释放一块空间
+     *
+     * @param slot
+     *            空间
+     */
+    synchronized void free(Slot slot) {
+        slot.segment.live -= slot.length;
+        slot.segment.releaseIfEmpty();
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (Segment segment : new ArrayList<>(segments)) {
+            segment.delete();
+        }
+        current = null;
+    }
+
+    private Segment newSegment() throws IOException {
+        File file = new File(directory, "segment-" + System.identityHashCode(this) + "-" + (sequence++) + ".dat");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(segmentSize);
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            Segment segment = new Segment(file, buffer);
+            segments.add(segment);
+            return segment;
+        } catch (IOException e) {
+            if (!file.delete()) {
+                log.warn("段文件删除失败：{}", file);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 段文件
+     */
+    private final class Segment {
+
+        private final File file;
+
+        private final MappedByteBuffer buffer;
+
+        /**
+         * 下次追加写入的位置
+         */
+        private int position;
+
+        /**
+         * 存活的数据大小
+         */
+        private int live;
+
+        /**
+         * 是否已经不再追加写入
+         */
+        private boolean sealed;
+
+        /**
+         * 正在写入（没有确认）的空间和没有关闭的读取流数量，不为0时不能解除映射
+         */
+        private int users;
+
+        private boolean deleted;
+
+        private boolean unmapped;
+
+        Segment(File file, MappedByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        void releaseIfEmpty() {
+            if (live <= 0 && (sealed || closed)) {
+                delete();
+            }
+        }
+
+        void delete() {
+            if (deleted) {
+                return;
+            }
+            deleted = true;
+            segments.remove(this);
+            if (current == this) {
+                current = null;
+            }
+            unmapIfUnused();
+            if (!file.delete()) {
+                log.warn("段文件删除失败：{}", file);
+            }
+        }
+
+        /**
+         * 打开一个读取流
+         *
+         * @throws IOException
+         *             段已经解除映射
+         */
+        void acquire() throws IOException {
+            synchronized (MappedSegmentStore.this) {
+                if (unmapped) {
+                    throw new IOException("段文件已经删除：" + file);
+                }
+                users++;
+            }
+        }
+
+        /**
+         * 写入确认或者读取流关闭
+         */
+        void release() {
+            synchronized (MappedSegmentStore.this) {
+                users--;
+                unmapIfUnused();
+            }
+        }
+
+        private void unmapIfUnused() {
+            if (deleted && users <= 0 && !unmapped) {
+                unmapped = true;
+                if (UNMAPPER != null) {
+                    try {
+                        UNMAPPER.unmap(buffer);
+                    } catch (Exception e) {
+                        log.warn("段文件解除映射失败，映射在回收后解除：{}", file, e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 段内的一块空间
+     */
+    static final class Slot {
+
+        private final Segment segment;
+
+        private final int offset;
+
+        private int length;
+
+        private Slot(Segment segment, int offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        int length() {
+            return length;
+        }
+
+        /**
+         * 读取该空间指定位置的数据，调用方需要保证该空间没有确认或者有打开的读取流
+         *
+         * @param position
+         *            空间内的位置
+         * @param dst
+         *            目标数组
+         * @param off
+         *            目标数组起始
+         * @param len
+         *            读取长度
+         */
+        void read(int position, byte[] dst, int off, int len) {
+            ByteBuffer view = segment.buffer.duplicate();
+            view.position(offset + position);
+            view.get(dst, off, len);
+        }
+
+        /**
+         * 将该空间的数据复制到另一块空间，调用方需要保证两块空间都没有确认
+         *
+         * @param target
+         *            目标空间
+         * @param len
+         *            复制的长度
+         */
+        void copyTo(Slot target, int len) {
+            ByteBuffer src = segment.buffer.duplicate();
+            src.position(offset);
+            src.limit(offset + len);
+            ByteBuffer dst = target.segment.buffer.duplicate();
+            dst.position(target.offset);
+            dst.put(src);
+        }
+
+        /**
+         * 在该空间的指定位置写入数据
+         *
+         * @param position
+         *            空间内的位置
+         * @param data
+         *            数据
+         * @param off
+         *            数据起始
+         * @param len
+         *            数据长度
+         */
+        void write(int position, byte[] data, int off, int len) {
+            ByteBuffer view = segment.buffer.duplicate();
+            view.position(offset + position);
+            view.put(data, off, len);
+        }
+
+        /**
+         * 读取该空间的数据，读取完毕或者关闭流之后才允许解除映射，所以使用完后需要关闭
+         *
+         * @return 输入流
+         * @throws IOException
+         *             该空间所在的段已经删除
+         */
+        InputStream openStream() throws IOException {
+            segment.acquire();
+            ByteBuffer view = segment.buffer.duplicate();
+            view.position(offset);
+            view.limit(offset + length);
+            return new SlotInputStream(segment, view.slice());
+        }
+    }
+
+    /**
+     * 空间的读取流
+     */
+    private static final class SlotInputStream extends InputStream {
+
+        private final Segment segment;
+
+        private final ByteBuffer data;
+
+        private boolean released;
+
+        SlotInputStream(Segment segment, ByteBuffer data) {
+            this.segment = segment;
+            this.data = data;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureOpen()) {
+                return -1;
+            }
+            return data.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (!ensureOpen()) {
+                return -1;
+            }
+            int n = Math.min(len, data.remaining());
+            data.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return released ? 0 : data.remaining();
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                segment.release();
+            }
+        }
+
+        /**
+         * 检查流是否还可以读取，读取完毕时释放段
+         *
+         * @return 还有数据时返回true，读取完毕时返回false
+         * @throws IOException
+         *             流已经关闭，段可能已经解除映射，不能再访问
+         */
+        private boolean ensureOpen() throws IOException {
+            if (!data.hasRemaining()) {
+                close();
+                return false;
+            }
+            if (released) {
+                throw new IOException("流已经关闭");
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 解除内存映射，JDK没有公开的API，java9及以上使用Unsafe#invokeCleaner，java8使用DirectBuffer的cleaner
+     */
+    private interface Unmapper {
+
+        void unmap(MappedByteBuffer buffer) throws Exception;
+
+        static Unmapper resolve() {
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                Object unsafe = field.get(null);
+                return buffer -> invokeCleaner.invoke(unsafe, buffer);
+            } catch (Exception | LinkageError e) {
+                log.debug("当前JVM不支持Unsafe#invokeCleaner，尝试使用DirectBuffer的cleaner", e);
+            }
+            try {
+                Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+                return buffer -> clean.invoke(cleaner.invoke(buffer));
+            } catch (Exception | LinkageError e) {
+                log.info("当前JVM不支持解除内存映射，段文件的映射在回收后解除", e);
+                return null;
+            }
+        }
+    }
+}
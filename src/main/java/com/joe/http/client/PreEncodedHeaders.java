@@ -0,0 +1,79 @@
+package com.joe.http.client;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.http.Header;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BufferedHeader;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.util.CharArrayBuffer;
+
+/**
+ * 预先编码的请求头，{@link BufferedHeader}在发送时直接写出已经格式化好的字符，不需要每次请求重新格式化；常用的content-type
+ * 请求头会缓存，所有请求共用
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 19:40 JoeKerouac Exp $
+ */
+class PreEncodedHeaders {
+
+    /**
+     * 最多缓存的content-type数，超过后不再缓存
+     */
+    private static final int MAX_SIZE = 256;
+
+    /**
+     * content-type请求头缓存，key为content-type，value为字符集到请求头的映射，没有字符集时字符集为空字符串
+     */
+    private static final ConcurrentHashMap<String, Map<String, Header>> CONTENT_TYPES = new ConcurrentHashMap<>();
+
+    /**
+     * 构建预先编码的请求头
+     *
+     * @param name
+     *            请求头名
+     * @param value
+     *            请求头值
+     * @return 请求头
+     */
+    static Header of(String name, String value) {
+        CharArrayBuffer buffer = new CharArrayBuffer(name.length() + value.length() + 2);
+        buffer.append(name);
+        buffer.append(": ");
+        buffer.append(value);
+        return new BufferedHeader(buffer);
+    }
+
+    /**
+     * 获取content-type请求头
+     *
+     * @param contentType
+     *            content-type
+     * @param charset
+     *            字符集，为null时content-type原样使用
+     * @return content-type请求头
+     */
+    static Header contentType(String contentType, String charset) {
+        String key = charset == null ? "" : charset;
+        Map<String, Header> headers = CONTENT_TYPES.get(contentType);
+        Header header = headers == null ? null : headers.get(key);
+        if (header != null) {
+            return header;
+        }
+
+        header = of(HTTP.CONTENT_TYPE,
+            charset == null ? contentType : ContentType.create(contentType, charset).toString());
+        // multipart的content-type中包含随机的分隔符，不缓存
+        if (contentType.regionMatches(true, 0, "multipart/", 0, 10)) {
+            return header;
+        }
+        if (headers == null && CONTENT_TYPES.size() < MAX_SIZE) {
+            headers = CONTENT_TYPES.computeIfAbsent(contentType, type -> new ConcurrentHashMap<>());
+        }
+        if (headers != null && headers.size() < MAX_SIZE) {
+            headers.putIfAbsent(key, header);
+        }
+        return header;
+    }
+}
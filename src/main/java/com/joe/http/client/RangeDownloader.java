@@ -0,0 +1,573 @@
+package com.joe.http.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.joe.http.exception.NetException;
+import com.joe.http.request.IHttpGet;
+import com.joe.http.request.IHttpRequestBase;
+import com.joe.http.response.IHeader;
+import com.joe.http.response.IHttpResponse;
+import com.joe.utils.common.Assert;
+
+/**
+ * 分段并行下载，先通过一个bytes=0-0的范围请求探测服务端是否支持范围请求以及资源大小，支持时将资源切分为多段，每段通过连接池中
+ * 的一个连接并发下载，数据通过{@link FileChannel}按位置直接写入预先分配好大小的目标文件，不会在内存中缓冲整个响应；不支持范围请求
+ * 时退化为单连接顺序下载
+ *
+ * 下载进度记录在目标文件旁的进度文件（目标文件名.progress）中，下载中断后再次下载同一个文件会从进度文件记录的位置继续；进度文件中
+ * 记录了资源的ETag（没有强ETag时为Last-Modified），续传请求通过If-Range校验资源是否变化，资源变化后进度文件将被删除，需要重新下载；服务端没有返回任何校验值时不会续传
+ *
+ * 范围是针对响应body的字节计算的，经过gzip等编码的响应的范围无法拼接为原始资源，所以所有范围请求都通过Accept-Encoding: identity
+ * 要求服务端不要编码，服务端仍然返回编码后的206响应时下载失败；开启contentCompressionEnabled时gzip、deflate编码的响应会被自动
+ * 解压，此时校验解压后的响应范围和长度，与请求不一致时下载失败
+ *
+ * PS:分段数不应该超过连接池每个站点的最大连接数，否则多出的分段需要排队等待连接
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 20:50 JoeKerouac Exp $
+ */
+public final class RangeDownloader {
+
+    private static final Logger log = LoggerFactory.getLogger(RangeDownloader.class);
+
+    /**
+     * 默认分段数
+     */
+    public static final int DEFAULT_SEGMENTS = 4;
+
+    /**
+     * 进度文件后缀
+     */
+    public static final String PROGRESS_SUFFIX = ".progress";
+
+    /**
+     * 分段的最小大小，资源较小时减少分段数
+     */
+    private static final long MIN_SEGMENT_SIZE = 1024 * 1024;
+
+    /**
+     * 每段每下载该大小的数据记录一次进度
+     */
+    private static final long CHECKPOINT_INTERVAL = 4 * 1024 * 1024;
+
+    /**
+     * 每段IO异常时的最大重试次数，重试时从已经下载的位置继续
+     */
+    private static final int MAX_RETRIES = 3;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private static final String IDENTITY = "identity";
+
+    private final IHttpClient client;
+
+    private final int segments;
+
+    /**
+     * 构造器，使用默认分段数
+     *
+     * @param client
+     *            下载使用的client
+     */
+    public RangeDownloader(IHttpClient client) {
+        this(client, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * 构造器
+     *
+     * @param client
+     *            下载使用的client
+     * @param segments
+     *            最大分段数，即最大并发连接数
+     */
+    public RangeDownloader(IHttpClient client, int segments) {
+        Assert.notNull(client, "client不能为null");
+        if (segments <= 0) {
+            throw new IllegalArgumentException("分段数必须大于0：" + segments);
+        }
+        this.client = client;
+        this.segments = segments;
+    }
+
+    /**
+     * 下载资源到指定文件，文件已经存在时将被覆盖，存在进度文件并且与当前资源一致时断点续传
+     *
+     * @param url
+     *            资源地址
+     * @param file
+     *            目标文件
+     * @return 文件大小
+     * @throws IOException
+     *             IO异常
+     */
+    public long download(String url, File file) throws IOException {
+        Assert.notNull(url, "url不能为null");
+        Assert.notNull(file, "file不能为null");
+        File progressFile = new File(file.getPath() + PROGRESS_SUFFIX);
+
+        IHttpResponse probe = execute(url, "bytes=0-0", null);
+        int status = probe.getStatus();
+        if (status == HttpStatus.SC_OK) {
+            log.debug("服务端不支持范围请求，顺序下载：{}", url);
+            Files.deleteIfExists(progressFile.toPath());
+            return copy(probe, file);
+        }
+
+        long total;
+        String validator;
+        try {
+            if (status != HttpStatus.SC_PARTIAL_CONTENT && status != HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE) {
+                throw new NetException("下载失败，响应状态码：" + status);
+            }
+            checkIdentity(probe);
+            total = parseTotal(header(probe, HttpHeaders.CONTENT_RANGE));
+            validator = validator(probe);
+        } finally {
+            probe.close();
+        }
+        if (total < 0) {
+            throw new NetException("无法获取资源大小：" + url);
+        }
+        if (total == 0) {
+            Files.deleteIfExists(progressFile.toPath());
+            Files.newByteChannel(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING).close();
+            return 0;
+        }
+
+        Progress progress = Progress.load(progressFile, file, total, validator);
+        if (progress == null) {
+            int count = (int)Math.min(segments, Math.max(1, (total + MIN_SEGMENT_SIZE - 1) / MIN_SEGMENT_SIZE));
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(total);
+            }
+            progress = Progress.create(progressFile, total, validator, count);
+        } else {
+            log.debug("从进度文件继续下载：{}", progressFile);
+        }
+
+        boolean completed = false;
+        try (FileChannel data = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            new Download(url, total, validator, data, progress).run();
+            data.force(false);
+            completed = true;
+        } finally {
+            progress.close();
+            if (completed || progress.stale) {
+                Files.deleteIfExists(progressFile.toPath());
+            }
+        }
+        return total;
+    }
+
+    private IHttpResponse execute(String url, String range, String validator) throws IOException {
+        IHttpRequestBase.Builder<IHttpGet> builder = IHttpGet.builder(url).header(HttpHeaders.RANGE, range)
+            .header(HttpHeaders.ACCEPT_ENCODING, IDENTITY);
+        if (validator != null) {
+            builder.header(HttpHeaders.IF_RANGE, validator);
+        }
+        return client.execute(builder.client(client).build());
+    }
+
+    /**
+     * 顺序下载整个响应
+     */
+    private static long copy(IHttpResponse response, File file) throws IOException {
+        try (InputStream in = response.openStream(BUFFER_SIZE);
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = channel.transferFrom(Channels.newChannel(in), 0, Long.MAX_VALUE);
+            channel.force(false);
+            return size;
+        }
+    }
+
+    private static String header(IHttpResponse response, String name) {
+        List<IHeader> headers = response.getHeader(name);
+        return headers.isEmpty() ? null : headers.get(0).getValue();
+    }
+
+    /**
+     * 校验范围响应没有经过编码，编码后的范围无法拼接为原始资源
+     */
+    private static void checkIdentity(IHttpResponse response) {
+        String encoding = header(response, HttpHeaders.CONTENT_ENCODING);
+        if (encoding != null && !IDENTITY.equalsIgnoreCase(encoding.trim())) {
+            throw new NetException("范围请求的响应不能经过编码，Content-Encoding：" + encoding);
+        }
+    }
+
+    /**
+     * 资源校验值，弱ETag不能用于If-Range，此时使用Last-Modified
+     */
+    private static String validator(IHttpResponse response) {
+        String etag = header(response, HttpHeaders.ETAG);
+        if (etag != null && !etag.startsWith("W/")) {
+            return etag;
+        }
+        return header(response, HttpHeaders.LAST_MODIFIED);
+    }
+
+    /**
+     * 解析Content-Range中的资源总大小，例如bytes 0-0/1024、bytes * /1024
+     *
+     * @return 资源总大小，未知时返回-1
+     */
+    static long parseTotal(String contentRange) {
+        if (contentRange == null) {
+            return -1;
+        }
+        int index = contentRange.lastIndexOf('/');
+        if (index < 0 || index == contentRange.length() - 1 || contentRange.charAt(index + 1) == '*') {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentRange.substring(index + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 一次分段下载
+     */
+    private final class Download {
+
+        private final String url;
+
+        private final long total;
+
+        private final String validator;
+
+        private final FileChannel data;
+
+        private final Progress progress;
+
+        /**
+         * 任意一段失败后其他段尽快停止
+         */
+        private volatile boolean failed;
+
+        Download(String url, long total, String validator, FileChannel data, Progress progress) {
+            this.url = url;
+            this.total = total;
+            this.validator = validator;
+            this.data = data;
+            this.progress = progress;
+        }
+
+        void run() throws IOException {
+            int count = progress.count();
+            ExecutorService executor = Executors.newFixedThreadPool(count, runnable -> {
+                Thread thread = new Thread(runnable, "IHttpClient-download-" + COUNTER.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                CompletableFuture<?>[] futures = new CompletableFuture<?>[count];
+                for (int i = 0; i < count; i++) {
+                    int segment = i;
+                    futures[i] = CompletableFuture.runAsync(() -> {
+                        try {
+                            fetch(segment);
+                        } catch (IOException e) {
+                            throw new NetException("下载分段" + segment + "失败", e);
+                        }
+                    }, executor).whenComplete((r, e) -> {
+                        if (e != null) {
+                            failed = true;
+                        }
+                    });
+                }
+                CompletableFuture.allOf(futures).get();
+            } catch (InterruptedException e) {
+                failed = true;
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("下载被中断：" + url);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof NetException && cause.getCause() instanceof IOException) {
+                    throw (IOException)cause.getCause();
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException)cause;
+                } else if (cause instanceof Error) {
+                    throw (Error)cause;
+                }
+                throw new IOException(cause);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        /**
+         * 下载一段，IO异常时从已经下载的位置重试
+         */
+        private void fetch(int segment) throws IOException {
+            int retries = 0;
+            while (!failed && progress.position(segment) <= progress.end(segment)) {
+                try {
+                    fetchOnce(segment);
+                } catch (IOException e) {
+                    if (failed || ++retries > MAX_RETRIES) {
+                        throw e;
+                    }
+                    log.debug("下载分段[{}]异常，从{}处重试", segment, progress.position(segment), e);
+                }
+            }
+        }
+
+        private void fetchOnce(int segment) throws IOException {
+            long start = progress.position(segment);
+            long position = start;
+            long end = progress.end(segment);
+            IHttpResponse response = execute(url, "bytes=" + position + "-" + end, validator);
+            boolean finished = false;
+            try {
+                int status = response.getStatus();
+                if (status != HttpStatus.SC_PARTIAL_CONTENT) {
+                    if (status == HttpStatus.SC_OK && validator != null) {
+                        progress.stale = true;
+                        throw new NetException("资源已经变化，需要重新下载：" + url);
+                    }
+                    throw new NetException("下载分段失败，响应状态码：" + status);
+                }
+                checkIdentity(response);
+                String contentRange = header(response, HttpHeaders.CONTENT_RANGE);
+                String expected = "bytes " + start + "-" + end + "/" + total;
+                if (contentRange == null || !expected.equalsIgnoreCase(contentRange.trim())) {
+                    throw new NetException("响应的范围[" + contentRange + "]与请求的范围[" + expected + "]不一致");
+                }
+
+                byte[] buffer = new byte[BUFFER_SIZE];
+                long checkpoint = start;
+                try (InputStream in = response.openStream(BUFFER_SIZE)) {
+                    int len;
+                    while (position <= end && !failed
+                        && (len = in.read(buffer, 0, (int)Math.min(buffer.length, end - position + 1))) >= 0) {
+                        ByteBuffer src = ByteBuffer.wrap(buffer, 0, len);
+                        while (src.hasRemaining()) {
+                            position += data.write(src, position);
+                        }
+                        progress.update(segment, position);
+                        if (position - checkpoint >= CHECKPOINT_INTERVAL) {
+                            progress.save(segment, data);
+                            checkpoint = position;
+                        }
+                    }
+                    if (position <= end) {
+                        if (!failed) {
+                            throw new IOException("连接提前结束，分段" + segment + "已下载到" + position);
+                        }
+                    } else if (in.read() >= 0) {
+                        // 响应比请求的范围长，通常是编码后的响应被自动解压了，已经写入的数据不可信
+                        progress.update(segment, start);
+                        throw new NetException("响应长度超过请求的范围，分段" + segment);
+                    } else {
+                        finished = true;
+                    }
+                }
+            } finally {
+                if (!finished) {
+                    // 未读取完的响应直接关闭连接，不读取剩余数据
+                    response.abort();
+                }
+                if (!progress.stale) {
+                    progress.save(segment, data);
+                }
+            }
+        }
+    }
+
+    /**
+     * 下载进度，对应进度文件，格式为：魔数、资源大小、校验值、分段数以及每段的起始位置、结束位置（包含）、当前位置；每段只有一个
+     * 线程写入，记录进度时只写入该段当前位置对应的8个字节
+     */
+    static final class Progress {
+
+        private static final int MAGIC = 0x4948444C;
+
+        private static final int SEGMENT_BYTES = 24;
+
+        private final FileChannel channel;
+
+        /**
+         * 第一段在进度文件中的偏移
+         */
+        private final long offset;
+
+        private final long[] starts;
+
+        private final long[] ends;
+
+        private final long[] positions;
+
+        /**
+         * 资源已经变化，进度无效
+         */
+        volatile boolean stale;
+
+        private Progress(FileChannel channel, long offset, long[] starts, long[] ends, long[] positions) {
+            this.channel = channel;
+            this.offset = offset;
+            this.starts = starts;
+            this.ends = ends;
+            this.positions = positions;
+        }
+
+        /**
+         * 创建新的进度文件，资源平均分为count段
+         */
+        static Progress create(File file, long total, String validator, int count) throws IOException {
+            byte[] validatorBytes = validator == null ? new byte[0] : validator.getBytes(StandardCharsets.UTF_8);
+            long offset = 4 + 8 + 4 + validatorBytes.length + 4;
+            long[] starts = new long[count];
+            long[] ends = new long[count];
+            long[] positions = new long[count];
+            ByteBuffer buffer = ByteBuffer.allocate((int)offset + count * SEGMENT_BYTES);
+            buffer.putInt(MAGIC).putLong(total).putInt(validatorBytes.length).put(validatorBytes).putInt(count);
+            long size = total / count;
+            for (int i = 0; i < count; i++) {
+                starts[i] = i * size;
+                ends[i] = i == count - 1 ? total - 1 : (i + 1) * size - 1;
+                positions[i] = starts[i];
+                buffer.putLong(starts[i]).putLong(ends[i]).putLong(positions[i]);
+            }
+            buffer.flip();
+
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, buffer.position());
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            return new Progress(channel, offset, starts, ends, positions);
+        }
+
+        /**
+         * 加载进度文件
+         *
+         * @return 进度，进度文件不存在、损坏或者与当前资源不一致时返回null
+         */
+        static Progress load(File file, File target, long total, String validator) throws IOException {
+            if (!file.isFile() || !target.isFile() || target.length() != total || validator == null) {
+                return null;
+            }
+            FileChannel channel =
+                FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    channel.close();
+                    return null;
+                }
+                ByteBuffer buffer = ByteBuffer.allocate((int)channel.size());
+                while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+                    // 读取整个进度文件
+                }
+                buffer.flip();
+                Progress progress = parse(channel, buffer, total, validator);
+                if (progress == null) {
+                    channel.close();
+                }
+                return progress;
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        private static Progress parse(FileChannel channel, ByteBuffer buffer, long total, String validator) {
+            byte[] expected = validator.getBytes(StandardCharsets.UTF_8);
+            if (buffer.remaining() < 16 || buffer.getInt() != MAGIC || buffer.getLong() != total
+                || buffer.getInt() != expected.length || buffer.remaining() < expected.length + 4) {
+                return null;
+            }
+            byte[] actual = new byte[expected.length];
+            buffer.get(actual);
+            if (!Arrays.equals(expected, actual)) {
+                return null;
+            }
+            int count = buffer.getInt();
+            if (count <= 0 || buffer.remaining() != count * SEGMENT_BYTES) {
+                return null;
+            }
+            long offset = buffer.position();
+            long[] starts = new long[count];
+            long[] ends = new long[count];
+            long[] positions = new long[count];
+            for (int i = 0; i < count; i++) {
+                starts[i] = buffer.getLong();
+                ends[i] = buffer.getLong();
+                positions[i] = buffer.getLong();
+                if (starts[i] < 0 || ends[i] >= total || positions[i] < starts[i] || positions[i] > ends[i] + 1) {
+                    return null;
+                }
+            }
+            return new Progress(channel, offset, starts, ends, positions);
+        }
+
+        int count() {
+            return starts.length;
+        }
+
+        long end(int segment) {
+            return ends[segment];
+        }
+
+        /**
+         * 当前位置，即下一个要下载的字节，只能由该段的下载线程调用
+         */
+        long position(int segment) {
+            return positions[segment];
+        }
+
+        void update(int segment, long position) {
+            positions[segment] = position;
+        }
+
+        /**
+         * 记录该段的进度，先将已经写入的数据刷到磁盘再记录位置，保证进度文件记录的数据一定已经落盘
+         */
+        void save(int segment, FileChannel data) throws IOException {
+            data.force(false);
+            ByteBuffer buffer = ByteBuffer.allocate(8).putLong(0, positions[segment]);
+            long position = offset + (long)segment * SEGMENT_BYTES + 16;
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+    }
+}
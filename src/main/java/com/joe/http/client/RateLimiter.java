@@ -0,0 +1,220 @@
+package com.joe.http.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.http.HttpHost;
+
+import com.joe.http.config.IHttpClientConfig;
+import com.joe.http.exception.RateLimitException;
+
+/**
+ * 每个站点的令牌桶限速，位于并发限制和连接池之前；令牌桶使用GCRA实现，每个站点只有一个原子变量（下一个令牌的理论到达时间），
+ * 获取令牌只需要一次CAS，不需要加锁也不需要后台补充令牌
+ *
+ * 令牌不足时预约一个未来的令牌，需要等待的时间不超过rateLimitTimeout时等待，否则直接拒绝（抛出{@link RateLimitException}）
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 22:40 JoeKerouac Exp $
+ */
+class RateLimiter {
+
+    /**
+     * 每个站点的令牌桶，key为站点（scheme://host:port）
+     */
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    private final IHttpClientConfig config;
+
+    private final long timeoutNanos;
+
+    RateLimiter(IHttpClientConfig config) {
+        this.config = config;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, config.getRateLimitTimeout()));
+        if (config.getRateLimitPermitsPerSecond() <= 0) {
+            throw new IllegalArgumentException("每秒允许的请求数必须大于0：" + config.getRateLimitPermitsPerSecond());
+        }
+        if (config.getRateLimitPerHost() != null) {
+            config.getRateLimitPerHost().forEach((host, rate) -> {
+                if (rate == null || rate <= 0) {
+                    throw new IllegalArgumentException("站点[" + host + "]每秒允许的请求数必须大于0：" + rate);
+                }
+            });
+        }
+    }
+
+    /**
+     * 获取指定站点的令牌，令牌不足时在当前线程等待
+     *
+     * @param host
+     *            站点
+     * @throws RateLimitException
+     *             等待时间超过限制或者等待时线程被中断（中断标记会被保留）
+     */
+    void acquire(HttpHost host) {
+        Bucket bucket = bucket(host);
+        long wait = bucket.reserve(timeoutNanos);
+        if (wait <= 0) {
+            return;
+        }
+
+        long deadline = System.nanoTime() + wait;
+        for (long remaining = wait; remaining > 0; remaining = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.interrupted()) {
+                // 预约的令牌无法归还，只影响后续请求的等待时间，不影响速率限制的正确性
+                Thread.currentThread().interrupt();
+                bucket.rejected.increment();
+                throw new RateLimitException(bucket.key, bucket.permitsPerSecond);
+            }
+        }
+    }
+
+    /**
+     * 预约指定站点的令牌，不等待，适用于异步请求
+     *
+     * @param host
+     *            站点
+     * @return 需要等待的时间，单位纳秒，小于等于0表示可以立即发起请求
+     * @throws RateLimitException
+     *             等待时间超过限制
+     */
+    long reserve(HttpHost host) {
+        return bucket(host).reserve(timeoutNanos);
+    }
+
+    /**
+     * 获取统计快照
+     *
+     * @return 统计快照
+     */
+    IHttpRateLimitStats stats() {
+        Map<String, IHttpRateLimitStats.HostStats> hosts = new LinkedHashMap<>();
+        long now = System.nanoTime();
+        for (Map.Entry<String, Bucket> entry : buckets.entrySet()) {
+            Bucket bucket = entry.getValue();
+            // 理论到达时间距离当前时间越远，已经被预约的令牌越多
+            long reserved = Math.max(0, bucket.tat.get() - now);
+            int available = (int)Math.max(0, bucket.burst - (reserved + bucket.interval - 1) / bucket.interval);
+            hosts.put(entry.getKey(),
+                new IHttpRateLimitStats.HostStats(bucket.permitsPerSecond, bucket.burst, available,
+                    bucket.acquired.sum(), bucket.throttled.sum(), bucket.rejected.sum(), bucket.throttledNanos.sum()));
+        }
+        return new IHttpRateLimitStats(hosts);
+    }
+
+    private Bucket bucket(HttpHost host) {
+        String key = host.toURI();
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key, k -> new Bucket(k, permitsPerSecond(host), burst()));
+        }
+        return bucket;
+    }
+
+    /**
+     * 从配置中查找站点每秒允许的请求数，先按照host:port查找，然后按照host查找，都没有时使用默认值
+     *
+     * @param host
+     *            站点
+     * @return 每秒允许的请求数
+     */
+    private double permitsPerSecond(HttpHost host) {
+        Map<String, Double> perHost = config.getRateLimitPerHost();
+        Double rate = null;
+        if (perHost != null && !perHost.isEmpty()) {
+            String name = host.getHostName().toLowerCase();
+            int port = host.getPort() < 0 ? ("https".equalsIgnoreCase(host.getSchemeName()) ? 443 : 80)
+                : host.getPort();
+            rate = perHost.get(name + ":" + port);
+            rate = rate == null ? perHost.get(name) : rate;
+        }
+        return rate == null ? config.getRateLimitPermitsPerSecond() : rate;
+    }
+
+    private int burst() {
+        return Math.max(1, config.getRateLimitBurst());
+    }
+
+    /**
+     * 单个站点的令牌桶
+     */
+    private static final class Bucket {
+
+        private final String key;
+
+        private final double permitsPerSecond;
+
+        private final int burst;
+
+        /**
+         * 生成一个令牌的间隔，单位纳秒
+         */
+        private final long interval;
+
+        /**
+         * 桶满时理论到达时间最多可以比当前时间提前的量，即burst个令牌的时间
+         */
+        private final long capacity;
+
+        /**
+         * 下一个令牌的理论到达时间（{@link System#nanoTime()}），初始为当前时间，即桶是满的
+         */
+        private final AtomicLong tat;
+
+        private final LongAdder acquired = new LongAdder();
+
+        private final LongAdder throttled = new LongAdder();
+
+        private final LongAdder rejected = new LongAdder();
+
+        private final LongAdder throttledNanos = new LongAdder();
+
+        Bucket(String key, double permitsPerSecond, int burst) {
+            this.key = key;
+            this.permitsPerSecond = permitsPerSecond;
+            this.burst = burst;
+            this.interval = Math.max(1, (long)(TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+            this.capacity = interval * burst;
+            this.tat = new AtomicLong(System.nanoTime());
+        }
+
+        /**
+         * 预约一个令牌
+         *
+         * @param timeoutNanos
+         *            最长等待时间，单位纳秒
+         * @return 需要等待的时间，单位纳秒，小于等于0表示不需要等待
+         * @throws RateLimitException
+         *             需要等待的时间超过最长等待时间
+         */
+        long reserve(long timeoutNanos) {
+            for (;;) {
+                long now = System.nanoTime();
+                long current = tat.get();
+                // 桶满之后理论到达时间不再往前，多余的令牌被丢弃
+                long next = Math.max(current, now) + interval;
+                long wait = next - now - capacity;
+                if (wait > timeoutNanos) {
+                    rejected.increment();
+                    throw new RateLimitException(key, permitsPerSecond);
+                }
+                if (tat.compareAndSet(current, next)) {
+                    if (wait > 0) {
+                        throttled.increment();
+                        throttledNanos.add(wait);
+                    } else {
+                        acquired.increment();
+                    }
+                    return wait;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.joe.http.client;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.http.client.config.RequestConfig;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 请求配置缓存，RequestConfig不可变，按照超时配置缓存后所有请求共用；超时配置通常只有少数几种，最近一次使用的配置直接命中，不需要
+ * 分配任何对象
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 19:40 JoeKerouac Exp $
+ */
+class RequestConfigCache {
+
+    /**
+     * 最多缓存的配置数，超过后不再缓存，直接构建
+     */
+    private static final int MAX_SIZE = 64;
+
+    private final ConcurrentHashMap<Key, RequestConfig> configs = new ConcurrentHashMap<>();
+
+    /**
+     * 最近一次使用的配置
+     */
+    private volatile RequestConfig last;
+
+    /**
+     * 获取请求配置
+     *
+     * @param socketTimeout
+     *            传输超时（单位：毫秒）
+     * @param connectTimeout
+     *            连接超时（单位：毫秒）
+     * @param connectionRequestTimeout
+     *            从连接池获取连接的超时（单位：毫秒）
+     * @return 请求配置
+     */
+    RequestConfig get(int socketTimeout, int connectTimeout, int connectionRequestTimeout) {
+        RequestConfig config = last;
+        if (config != null && config.getSocketTimeout() == socketTimeout
+            && config.getConnectTimeout() == connectTimeout
+            && config.getConnectionRequestTimeout() == connectionRequestTimeout) {
+            return config;
+        }
+
+        Key key = new Key(socketTimeout, connectTimeout, connectionRequestTimeout);
+        config = configs.get(key);
+        if (config == null) {
+            config = RequestConfig.custom().setSocketTimeout(socketTimeout).setConnectTimeout(connectTimeout)
+                .setConnectionRequestTimeout(connectionRequestTimeout).build();
+            if (configs.size() < MAX_SIZE) {
+                RequestConfig old = configs.putIfAbsent(key, config);
+                config = old == null ? config : old;
+            }
+        }
+        last = config;
+        return config;
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class Key {
+
+        private final int socketTimeout;
+
+        private final int connectTimeout;
+
+        private final int connectionRequestTimeout;
+    }
+}
@@ -0,0 +1,82 @@
+package com.joe.http.client;
+
+import java.util.Date;
+import java.util.List;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.client.CookieStore;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.cookie.Cookie;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * 在{@link org.apache.http.client.protocol.RequestAddCookies}之前执行，将上下文中的{@link ConcurrentCookieStore}替换为只包含
+ * 目标host可以使用的cookie的视图，RequestAddCookies读取cookie时只需要通过domain索引取出该host的cookie，不需要每次请求都复制
+ * 整个CookieStore；写入、清理仍然作用于原来的CookieStore
+ *
+ * PS:CookieStore不是{@link ConcurrentCookieStore}时不做处理
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 23:30 JoeKerouac Exp $
+ */
+class RequestHostCookies implements HttpRequestInterceptor {
+
+    static final RequestHostCookies INSTANCE = new RequestHostCookies();
+
+    @Override
+    public void process(HttpRequest request, HttpContext context) {
+        HttpClientContext clientContext = HttpClientContext.adapt(context);
+        CookieStore cookieStore = clientContext.getCookieStore();
+        // 重定向时上下文中已经是上一个host的视图
+        if (cookieStore instanceof HostCookieStore) {
+            cookieStore = ((HostCookieStore)cookieStore).cookieStore;
+        }
+        HttpHost target = clientContext.getTargetHost();
+        if (!(cookieStore instanceof ConcurrentCookieStore) || target == null) {
+            return;
+        }
+        clientContext.setCookieStore(new HostCookieStore((ConcurrentCookieStore)cookieStore, target.getHostName()));
+    }
+
+    /**
+     * 单个host的cookie视图
+     */
+    private static final class HostCookieStore implements CookieStore {
+
+        private final ConcurrentCookieStore cookieStore;
+
+        private final String host;
+
+        HostCookieStore(ConcurrentCookieStore cookieStore, String host) {
+            this.cookieStore = cookieStore;
+            this.host = host;
+        }
+
+        @Override
+        public void addCookie(Cookie cookie) {
+            cookieStore.addCookie(cookie);
+        }
+
+        @Override
+        public List<Cookie> getCookies() {
+            return cookieStore.getCookies(host);
+        }
+
+        @Override
+        public boolean clearExpired(Date date) {
+            return cookieStore.clearExpired(date);
+        }
+
+        @Override
+        public void clear() {
+            cookieStore.clear();
+        }
+
+        @Override
+        public String toString() {
+            return getCookies().toString();
+        }
+    }
+}
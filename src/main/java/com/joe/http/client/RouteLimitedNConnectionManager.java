@@ -0,0 +1,55 @@
+package com.joe.http.client;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.Registry;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.nio.NHttpClientConnection;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.reactor.ConnectingIOReactor;
+
+import com.joe.http.config.IHttpClientConfig;
+
+/**
+ * 异步连接池，在第一次使用某个route时应用该route的连接数配置
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 13:55 JoeKerouac Exp $
+ */
+class RouteLimitedNConnectionManager extends PoolingNHttpClientConnectionManager {
+
+    /**
+     * 每个route单独的最大连接数配置，key已经规范化
+     */
+    private final Map<String, Integer> maxPerRoute;
+
+    /**
+     * 已经应用过连接数配置的route
+     */
+    private final Set<HttpRoute> routes = ConcurrentHashMap.newKeySet();
+
+    RouteLimitedNConnectionManager(ConnectingIOReactor ioReactor, Registry<SchemeIOSessionStrategy> registry,
+        DnsResolver dnsResolver, IHttpClientConfig config) {
+        super(ioReactor, null, registry, dnsResolver);
+        this.maxPerRoute = InstrumentedConnectionManager.normalizeMaxPerRoute(config.getMaxPerRoute());
+    }
+
+    @Override
+    public Future<NHttpClientConnection> requestConnection(HttpRoute route, Object state, long connectTimeout,
+        long leaseTimeout, TimeUnit tunit, FutureCallback<NHttpClientConnection> callback) {
+        if (routes.add(route)) {
+            Integer max = InstrumentedConnectionManager.resolveMaxPerRoute(maxPerRoute, route.getTargetHost());
+            if (max != null) {
+                setMaxPerRoute(route, max);
+            }
+        }
+        return super.requestConnection(route, state, connectTimeout, leaseTimeout, tunit, callback);
+    }
+}
@@ -0,0 +1,94 @@
+package com.joe.http.client;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.joe.http.metrics.HistogramSnapshot;
+import com.joe.http.metrics.LatencyHistogram;
+import com.joe.http.metrics.RequestMetrics;
+
+/**
+ * 单个route的连接池统计，包括累计的获取连接等待耗时以及自适应调整使用的窗口数据
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 13:05 JoeKerouac Exp $
+ */
+class RouteState {
+
+    /**
+     * 获取连接的等待耗时（累计）
+     */
+    final LatencyHistogram leaseWait = new LatencyHistogram();
+
+    /**
+     * 当前窗口获取连接次数
+     */
+    final LongAdder windowLeases = new LongAdder();
+
+    /**
+     * 当前窗口获取连接等待总耗时，单位纳秒
+     */
+    final LongAdder windowLeaseWait = new LongAdder();
+
+    /**
+     * 当前窗口连接归还次数
+     */
+    final LongAdder windowReleases = new LongAdder();
+
+    /**
+     * 当前窗口连接占用总时长（近似于上游处理耗时），单位纳秒
+     */
+    final LongAdder windowHold = new LongAdder();
+
+    /**
+     * 当前租用中的连接数
+     */
+    final AtomicInteger leased = new AtomicInteger();
+
+    /**
+     * 当前窗口租用中的连接数峰值
+     */
+    final LongAccumulator windowPeakLeased = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 该route的请求统计，没有开启请求统计或者route数量超过上限时为null
+     */
+    RequestMetrics metrics;
+
+    /**
+     * 初始的最大连接数
+     */
+    final int baseMax;
+
+    /**
+     * 上游耗时基线（慢速指数移动平均），单位纳秒，自适应调整使用，只会在调整线程中访问
+     */
+    double baselineHold;
+
+    /**
+     * 最后一次请求连接或者归还连接的时间（{@link System#nanoTime()}），用于清理长时间没有使用的route
+     */
+    volatile long lastUsed = System.nanoTime();
+
+    RouteState(int baseMax) {
+        this.baseMax = baseMax;
+    }
+
+    void leased(long waitNanos) {
+        windowLeases.increment();
+        windowLeaseWait.add(waitNanos);
+        windowPeakLeased.accumulate(leased.incrementAndGet());
+    }
+
+    void released(long holdNanos) {
+        lastUsed = System.nanoTime();
+        leased.decrementAndGet();
+        windowReleases.increment();
+        windowHold.add(holdNanos);
+    }
+
+    HistogramSnapshot snapshot() {
+        return leaseWait.snapshot();
+    }
+}
@@ -0,0 +1,222 @@
+package com.joe.http.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.StatusLine;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * 合并并发的相同请求，同一时刻相同的请求只有一个（leader）实际发出，其他请求等待leader的结果；leader会将响应body完整读取到
+ * 内存中，每个等待者都会拿到一份独立的响应
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 16:10 JoeKerouac Exp $
+ */
+class SingleFlight {
+
+    /**
+     * 正在进行中的请求，key为请求标识
+     */
+    private final ConcurrentMap<String, CompletableFuture<BufferedResponse>> calls = new ConcurrentHashMap<>();
+
+    /**
+     * 等待者的最长等待时间，单位毫秒，小于等于0表示一直等待leader完成
+     */
+    private final long waitTimeout;
+
+    /**
+     * 不参与计算请求标识的请求头，小写
+     */
+    private final Set<String> ignoredHeaders = new HashSet<>();
+
+    /**
+     * 实际发出的请求数
+     */
+    private final LongAdder executions = new LongAdder();
+
+    /**
+     * 被合并的请求数
+     */
+    private final LongAdder collapsed = new LongAdder();
+
+    /**
+     * 等待超时的请求数
+     */
+    private final LongAdder timeouts = new LongAdder();
+
+    SingleFlight(long waitTimeout, Collection<String> ignoredHeaders) {
+        this.waitTimeout = waitTimeout;
+        if (ignoredHeaders != null) {
+            for (String header : ignoredHeaders) {
+                if (header != null) {
+                    this.ignoredHeaders.add(header.toLowerCase());
+                }
+            }
+        }
+    }
+
+    /**
+     * 执行请求，如果已经有相同的请求正在进行中那么等待该请求的结果
+     *
+     * @param request
+     *            请求
+     * @param call
+     *            实际执行请求的逻辑
+     * @return 响应，body已经读取到内存中
+     * @throws IOException
+     *             IO异常、等待超时
+     */
+    HttpResponse execute(HttpRequestBase request, Call call) throws IOException {
+        String key = key(request);
+        CompletableFuture<BufferedResponse> future = new CompletableFuture<>();
+        CompletableFuture<BufferedResponse> existing = calls.putIfAbsent(key, future);
+        if (existing != null) {
+            collapsed.increment();
+            return await(existing).toResponse();
+        }
+
+        executions.increment();
+        try {
+            BufferedResponse response;
+            try (CloseableHttpResponse httpResponse = call.execute()) {
+                response = new BufferedResponse(httpResponse);
+            }
+            future.complete(response);
+            return response.toResponse();
+        } catch (IOException | RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, future);
+        }
+    }
+
+    /**
+     * 获取统计快照
+     *
+     * @return 统计快照
+     */
+    IHttpSingleFlightStats stats() {
+        return new IHttpSingleFlightStats(executions.sum(), collapsed.sum(), timeouts.sum(), calls.size());
+    }
+
+    private BufferedResponse await(CompletableFuture<BufferedResponse> future) throws IOException {
+        try {
+            return waitTimeout > 0 ? future.get(waitTimeout, TimeUnit.MILLISECONDS) : future.get();
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            throw new SocketTimeoutException("等待合并请求的结果超时：" + waitTimeout + "ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待合并请求的结果时被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 计算请求标识：method、完整URL（包含query参数）以及请求上除了配置忽略的之外的所有请求头；Authorization、Cookie等凭证不同
+     * 的请求不能合并，否则一个用户的响应会被另一个用户拿到，所以默认请求自己携带的请求头全部参与计算
+     *
+     * PS:client的cookie store中的cookie在发送时才添加，同一个client的所有请求共享该cookie store，不需要参与计算
+     *
+     * @param request
+     *            请求
+     * @return 请求标识
+     */
+    private String key(HttpRequestBase request) {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append(request.getMethod()).append(' ').append(request.getURI());
+        for (Header header : request.getAllHeaders()) {
+            String name = header.getName().toLowerCase();
+            if (!ignoredHeaders.contains(name)) {
+                sb.append('\n').append(name).append(':').append(header.getValue());
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 实际执行请求的逻辑
+     */
+    interface Call {
+
+        /**
+         * 执行请求
+         *
+         * @return 响应
+         * @throws IOException
+         *             IO异常
+         */
+        CloseableHttpResponse execute() throws IOException;
+    }
+
+    /**
+     * 已经完整读取body的响应
+     */
+    private static final class BufferedResponse {
+
+        private final StatusLine statusLine;
+
+        private final Header[] headers;
+
+        private final byte[] body;
+
+        private final Header contentType;
+
+        private final Header contentEncoding;
+
+        BufferedResponse(HttpResponse response) throws IOException {
+            this.statusLine = response.getStatusLine();
+            this.headers = response.getAllHeaders();
+            HttpEntity entity = response.getEntity();
+            this.body = entity == null ? null : EntityUtils.toByteArray(entity);
+            this.contentType = entity == null ? null : entity.getContentType();
+            this.contentEncoding = entity == null ? null : entity.getContentEncoding();
+        }
+
+        /**
+         * 生成一份独立的响应
+         *
+         * @return 响应
+         */
+        HttpResponse toResponse() {
+            BasicHttpResponse response = new BasicHttpResponse(statusLine);
+            response.setHeaders(headers);
+            if (body != null) {
+                ByteArrayEntity entity = new ByteArrayEntity(body);
+                entity.setContentType(contentType);
+                entity.setContentEncoding(contentEncoding);
+                response.setEntity(entity);
+            }
+            return response;
+        }
+    }
+}
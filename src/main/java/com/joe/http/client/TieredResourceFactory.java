@@ -0,0 +1,182 @@
+package com.joe.http.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.http.client.cache.InputLimit;
+import org.apache.http.client.cache.Resource;
+import org.apache.http.client.cache.ResourceFactory;
+import org.apache.http.impl.client.cache.HeapResource;
+
+/**
+ * 分层的缓存body存储，小于阈值的body放在堆内存中，大于阈值的body放在内存映射的段文件中；段文件存储已满时大body将不会被缓存
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 15:00 JoeKerouac Exp $
+ */
+class TieredResourceFactory implements ResourceFactory {
+
+    /**
+     * 内存存储的最大body大小
+     */
+    private final int memoryThreshold;
+
+    /**
+     * 磁盘存储，为null时只使用内存存储
+     */
+    private final MappedSegmentStore diskStore;
+
+    TieredResourceFactory(int memoryThreshold, MappedSegmentStore diskStore) {
+        this.memoryThreshold = memoryThreshold;
+        this.diskStore = diskStore;
+    }
+
+    @Override
+    public Resource generate(String requestId, InputStream instream, InputLimit limit) throws IOException {
+        long max = limit == null ? Long.MAX_VALUE : limit.getValue();
+        // 先按照内存存储读取，超过阈值后转为磁盘存储
+        int threshold = diskStore == null ? Integer.MAX_VALUE - 8 : memoryThreshold;
+        byte[] buffer = new byte[(int)Math.min(threshold, 8 * 1024) + 1];
+        int total = 0;
+        int len;
+        while ((len = instream.read(buffer, total, buffer.length - total)) != -1) {
+            total += len;
+            if (total > max) {
+                // 超过最大缓存大小，不缓存，已经读取的数据需要返回给调用方与剩余的流拼接
+                limit.reached();
+                return new HeapResource(Arrays.copyOf(buffer, total));
+            }
+            if (total == buffer.length) {
+                if (total > threshold) {
+                    return toDisk(buffer, total, instream, limit, max);
+                }
+                buffer = Arrays.copyOf(buffer, (int)Math.min((long)buffer.length * 2, threshold + 1L));
+            }
+        }
+        return new HeapResource(Arrays.copyOf(buffer, total));
+    }
+
+    @Override
+    public Resource copy(String requestId, Resource resource) throws IOException {
+        try (InputStream inputStream = resource.getInputStream()) {
+            return generate(requestId, inputStream, new InputLimit(resource.length()));
+        }
+    }
+
+    private Resource toDisk(byte[] head, int headLength, InputStream instream, InputLimit limit, long max)
+        throws IOException {
+        // body的实际大小未知，先分配已读取大小的两倍，写满后再扩大，不能每次都按照最大缓存大小占用空间
+        MappedSegmentStore.Slot slot = diskStore.allocate((int)Math.min(Math.min(max, Integer.MAX_VALUE),
+            (long)headLength * 2));
+        if (slot == null) {
+            // 磁盘存储已满或者body过大，不缓存
+            if (limit != null) {
+                limit.reached();
+            }
+            return new HeapResource(Arrays.copyOf(head, headLength));
+        }
+
+        int total = 0;
+        boolean cached = false;
+        try {
+            slot.write(0, head, 0, headLength);
+            total = headLength;
+            byte[] buffer = new byte[8 * 1024];
+            int len;
+            while ((len = instream.read(buffer)) != -1) {
+                if ((long)total + len > slot.length()) {
+                    MappedSegmentStore.Slot grown = (long)total + len > max ? null : grow(slot, total, total + len, max);
+                    if (grown == null) {
+                        // 超过最大缓存大小或者磁盘存储已满，不缓存，已经读取的数据需要返回给调用方与剩余的流拼接
+                        byte[] consumed = new byte[total + len];
+                        slot.read(0, consumed, 0, total);
+                        System.arraycopy(buffer, 0, consumed, total, len);
+                        if (limit != null) {
+                            limit.reached();
+                        }
+                        return new HeapResource(consumed);
+                    }
+                    slot = grown;
+                }
+                slot.write(total, buffer, 0, len);
+                total += len;
+            }
+            cached = true;
+            return new MappedResource(diskStore, slot);
+        } finally {
+            diskStore.commit(slot, total);
+            if (!cached) {
+                diskStore.free(slot);
+            }
+        }
+    }
+
+    /**
+     * 扩大空间，不能原地扩大时换一块更大的空间并复制已经写入的数据，原来的空间将被释放
+     *
+     * @param slot
+     *            当前空间
+     * @param used
+     *            已经写入的大小
+     * @param required
+     *            需要的最小大小
+     * @param max
+     *            最大缓存大小
+     * @return 扩大后的空间，磁盘存储已满时返回null
+     * @throws IOException
+     *             段文件创建失败
+     */
+    private MappedSegmentStore.Slot grow(MappedSegmentStore.Slot slot, int used, int required, long max)
+        throws IOException {
+        int length = (int)Math.min(Math.min(max, Integer.MAX_VALUE), Math.max(required, (long)slot.length() * 2));
+        if (diskStore.grow(slot, length)) {
+            return slot;
+        }
+        MappedSegmentStore.Slot larger = diskStore.allocate(length);
+        if (larger == null) {
+            return null;
+        }
+        slot.copyTo(larger, used);
+        diskStore.commit(slot, used);
+        diskStore.free(slot);
+        return larger;
+    }
+
+    /**
+     * 存储在段文件中的body
+     */
+    private static final class MappedResource implements Resource {
+
+        private static final long serialVersionUID = -2381562397373540155L;
+
+        private final transient MappedSegmentStore store;
+
+        private final transient MappedSegmentStore.Slot slot;
+
+        private final AtomicBoolean disposed = new AtomicBoolean();
+
+        MappedResource(MappedSegmentStore store, MappedSegmentStore.Slot slot) {
+            this.store = store;
+            this.slot = slot;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return slot.openStream();
+        }
+
+        @Override
+        public long length() {
+            return slot.length();
+        }
+
+        @Override
+        public void dispose() {
+            if (disposed.compareAndSet(false, true)) {
+                store.free(slot);
+            }
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.joe.http.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.EofSensorInputStream;
+import org.apache.http.conn.EofSensorWatcher;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+
+/**
+ * 请求阶段耗时的埋点，当前线程正在执行的请求的耗时记录保存在{@link #CURRENT}中，DNS解析、建立连接、TLS握手、发送请求、接收响应
+ * 都在执行请求的线程中同步完成，所以各个埋点直接从当前线程获取耗时记录；只有开启耗时记录时才会安装这些埋点
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 21:10 JoeKerouac Exp $
+ */
+final class TimingHooks {
+
+    /**
+     * 当前线程正在执行的请求的耗时记录
+     */
+    private static final ThreadLocal<IHttpTiming> CURRENT = new ThreadLocal<>();
+
+    private TimingHooks() {
+    }
+
+    /**
+     * 开始记录当前线程的请求，必须在finally中调用{@link #end()}
+     *
+     * @param timing
+     *            耗时记录
+     */
+    static void begin(IHttpTiming timing) {
+        CURRENT.set(timing);
+        timing.record(IHttpEvent.CALL_START);
+    }
+
+    /**
+     * 结束记录当前线程的请求
+     */
+    static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 记录当前线程正在执行的请求的事件，当前线程没有正在记录的请求时忽略
+     *
+     * @param event
+     *            事件
+     */
+    static void record(IHttpEvent event) {
+        IHttpTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.record(event);
+        }
+    }
+
+    /**
+     * 包装响应body，body读取完毕或者关闭时记录{@link IHttpEvent#RESPONSE_END}，没有body时直接记录
+     *
+     * @param response
+     *            响应
+     * @param timing
+     *            耗时记录
+     */
+    static void watch(HttpResponse response, IHttpTiming timing) {
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            timing.record(IHttpEvent.RESPONSE_END);
+        } else {
+            response.setEntity(new TimingEntity(entity, timing));
+        }
+    }
+
+    /**
+     * 记录DNS解析耗时
+     */
+    static final class Dns implements DnsResolver {
+
+        private final DnsResolver delegate;
+
+        Dns(DnsResolver delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public InetAddress[] resolve(String host) throws UnknownHostException {
+            record(IHttpEvent.DNS_START);
+            InetAddress[] addresses = delegate.resolve(host);
+            record(IHttpEvent.DNS_END);
+            return addresses;
+        }
+    }
+
+    /**
+     * 记录http的TCP连接耗时
+     */
+    static final class PlainSocketFactory extends PlainConnectionSocketFactory {
+
+        @Override
+        public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress,
+            InetSocketAddress localAddress, HttpContext context) throws IOException {
+            record(IHttpEvent.CONNECT_START);
+            Socket connected =
+                super.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+            record(IHttpEvent.CONNECT_END);
+            return connected;
+        }
+    }
+
+    /**
+     * 记录https的TCP连接、TLS握手耗时，父类建立TCP连接后调用{@link #createLayeredSocket}进行握手
+     */
+    static final class SslSocketFactory extends SSLConnectionSocketFactory {
+
+        SslSocketFactory(SSLContext sslContext) {
+            super(sslContext);
+        }
+
+        @Override
+        public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress,
+            InetSocketAddress localAddress, HttpContext context) throws IOException {
+            record(IHttpEvent.CONNECT_START);
+            return super.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+        }
+
+        @Override
+        public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context)
+            throws IOException {
+            record(IHttpEvent.CONNECT_END);
+            record(IHttpEvent.TLS_START);
+            Socket layered = super.createLayeredSocket(socket, target, port, context);
+            record(IHttpEvent.TLS_END);
+            return layered;
+        }
+    }
+
+    /**
+     * 记录发送请求、等待响应头的耗时
+     */
+    static final class RequestExecutor extends HttpRequestExecutor {
+
+        @Override
+        protected HttpResponse doSendRequest(HttpRequest request, HttpClientConnection conn, HttpContext context)
+            throws IOException, HttpException {
+            record(IHttpEvent.REQUEST_START);
+            HttpResponse response = super.doSendRequest(request, conn, context);
+            record(IHttpEvent.REQUEST_END);
+            if (response != null) {
+                // 服务端拒绝了Expect: 100-continue，没有发送body直接返回了响应
+                record(IHttpEvent.RESPONSE_HEADERS);
+            }
+            return response;
+        }
+
+        @Override
+        protected HttpResponse doReceiveResponse(HttpRequest request, HttpClientConnection conn, HttpContext context)
+            throws HttpException, IOException {
+            HttpResponse response = super.doReceiveResponse(request, conn, context);
+            record(IHttpEvent.RESPONSE_HEADERS);
+            return response;
+        }
+    }
+
+    /**
+     * body读取完毕、关闭时记录{@link IHttpEvent#RESPONSE_END}
+     */
+    private static final class TimingEntity extends HttpEntityWrapper implements EofSensorWatcher {
+
+        private final IHttpTiming timing;
+
+        private boolean ended;
+
+        TimingEntity(HttpEntity wrappedEntity, IHttpTiming timing) {
+            super(wrappedEntity);
+            this.timing = timing;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return new EofSensorInputStream(super.getContent(), this);
+        }
+
+        @Override
+        public void writeTo(OutputStream outStream) throws IOException {
+            try {
+                super.writeTo(outStream);
+            } finally {
+                ended();
+            }
+        }
+
+        @Override
+        public boolean eofDetected(InputStream wrapped) {
+            ended();
+            return true;
+        }
+
+        @Override
+        public boolean streamClosed(InputStream wrapped) {
+            ended();
+            return true;
+        }
+
+        @Override
+        public boolean streamAbort(InputStream wrapped) {
+            ended();
+            return true;
+        }
+
+        private void ended() {
+            if (!ended) {
+                ended = true;
+                timing.record(IHttpEvent.RESPONSE_END);
+            }
+        }
+    }
+}
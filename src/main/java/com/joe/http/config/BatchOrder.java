@@ -0,0 +1,20 @@
+package com.joe.http.config;
+
+/**
+ * 批量请求结果的返回顺序
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 22:10 JoeKerouac Exp $
+ */
+public enum BatchOrder {
+
+    /**
+     * 按照完成顺序返回，先完成的先返回
+     */
+    COMPLETION,
+
+    /**
+     * 按照提交顺序返回，前面的请求没有完成时后面已经完成的请求需要等待
+     */
+    SUBMISSION;
+}
@@ -23,4 +23,14 @@ public abstract class HttpBaseConfig {
      * 全局连接请求超时，单位毫秒，默认5秒
      */
     private int connectionRequestTimeout = 1000 * 5;
+    /**
+     * 对冲延迟，单位毫秒，幂等请求（GET）在该时间内没有响应时将使用另外一个连接再发出一个相同的请求，先响应的请求胜出，另外
+     * 一个请求将被中止；小于等于0表示不对冲
+     */
+    private long hedgeDelay = 0;
+    /**
+     * 对冲延迟百分位，取值(0, 100]，大于0时使用最近请求耗时的该百分位作为对冲延迟，最近请求数不足时使用hedgeDelay；小于等于
+     * 0表示使用固定的hedgeDelay
+     */
+    private double hedgePercentile = 0;
 }
@@ -0,0 +1,21 @@
+package com.joe.http.config;
+
+/**
+ * 传输协议
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 18:20 JoeKerouac Exp $
+ */
+public enum HttpTransport {
+
+    /**
+     * HTTP/1.1，每个连接同一时间只能处理一个请求
+     */
+    HTTP_1_1,
+
+    /**
+     * HTTP/2，https通过ALPN协商h2，http使用h2c（prior knowledge，服务端必须支持h2c）；同一站点的并发请求在少量连接上多路
+     * 复用，服务端必须支持HTTP/2
+     */
+    HTTP_2;
+}
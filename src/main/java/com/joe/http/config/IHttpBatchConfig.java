@@ -0,0 +1,29 @@
+package com.joe.http.config;
+
+import lombok.Data;
+
+/**
+ * 批量请求配置
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 22:10 JoeKerouac Exp $
+ */
+@Data
+public final class IHttpBatchConfig {
+    /**
+     * 最大并发请求数，小于等于0时使用client配置的每个站点最大连接数
+     */
+    private int maxConcurrency = 0;
+    /**
+     * 整个批次的截止时间，单位毫秒，从提交开始计算，超过后未完成的请求将被取消；小于等于0表示没有截止时间
+     */
+    private long deadline = 0;
+    /**
+     * 是否快速失败，为true时任意一个请求异常后将取消其他未完成的请求
+     */
+    private boolean failFast = false;
+    /**
+     * 结果返回顺序
+     */
+    private BatchOrder order = BatchOrder.COMPLETION;
+}
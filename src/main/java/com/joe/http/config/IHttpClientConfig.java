@@ -1,6 +1,10 @@
 package com.joe.http.config;
 
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -18,6 +22,210 @@ public final class IHttpClientConfig extends HttpBaseConfig {
      * 每个站点可以保持的最大连接数
      */
     private int defaultMaxPerRoute = 20;
+    /**
+     * 单独指定某些站点可以保持的最大连接数，key为host或者host:port（host:port优先），value为最大连接数，没有指定的站点
+     * 使用defaultMaxPerRoute
+     */
+    private Map<String, Integer> maxPerRoute = new HashMap<>();
+    /**
+     * 是否开启自适应连接数，开启后将根据获取连接的等待耗时以及上游耗时周期性的调整每个站点的最大连接数
+     */
+    private boolean adaptivePoolSizing = false;
+    /**
+     * 自适应调整周期，单位毫秒
+     */
+    private long adaptiveInterval = 5000;
+    /**
+     * 自适应调整时每个站点的最小连接数
+     */
+    private int adaptiveMinPerRoute = 2;
+    /**
+     * 自适应调整时每个站点的最大连接数，小于等于0时为maxTotal
+     */
+    private int adaptiveMaxPerRoute = 0;
+    /**
+     * 自适应调整时平均获取连接等待耗时超过该值（并且连接已经用满）时扩大连接数，单位毫秒
+     */
+    private long adaptiveLeaseWaitThreshold = 10;
+    /**
+     * 后台清理过期、空闲连接的周期，单位毫秒，小于等于0时不开启后台清理
+     */
+    private long evictionInterval = 5000;
+    /**
+     * 连接空闲超过该时间后将会被后台清理，单位毫秒
+     */
+    private long maxIdleTime = 30000;
+    /**
+     * 服务器没有通过Keep-Alive头指定保活时间时连接的默认保活时间，单位毫秒，小于等于0表示不限制
+     */
+    private long defaultKeepAlive = 30000;
+    /**
+     * 连接空闲超过该时间后，从连接池获取时将先校验连接是否可用，单位毫秒，小于等于0表示不校验；校验是在请求线程上进行的，
+     * 开启后台清理后一般不需要开启
+     */
+    private int validateAfterInactivity = 0;
+    /**
+     * 是否开启DNS缓存
+     */
+    private boolean dnsCacheEnabled = true;
+    /**
+     * DNS解析成功结果的缓存时间，单位毫秒
+     */
+    private long dnsCacheTtl = 30000;
+    /**
+     * DNS解析失败结果的缓存时间，单位毫秒，小于等于0表示不缓存解析失败的结果
+     */
+    private long dnsNegativeCacheTtl = 10000;
+    /**
+     * DNS缓存即将过期时是否在后台线程预刷新
+     */
+    private boolean dnsRefreshAhead = true;
+    /**
+     * 静态host配置，key为host，value为对应的IP列表（只能是IPv4、IPv6字面量，不能是域名，否则创建客户端时抛出异常），优先级
+     * 高于DNS缓存，开启DNS缓存时生效
+     */
+    private Map<String, List<String>> hostOverrides = new HashMap<>();
+    /**
+     * 是否开启响应缓存，开启后将按照RFC 7234缓存响应并在过期后通过If-None-Match/If-Modified-Since校验，只对同步请求生效
+     */
+    private boolean responseCacheEnabled = false;
+    /**
+     * 响应缓存最大条数，超过后按照LRU淘汰
+     */
+    private int cacheMaxEntries = 1000;
+    /**
+     * 可以缓存的最大响应body大小，单位byte，超过该大小的响应不缓存
+     */
+    private long cacheMaxObjectSize = 1024 * 1024;
+    /**
+     * 响应body超过该大小时存放在磁盘缓存中（如果开启了磁盘缓存），单位byte
+     */
+    private int cacheMemoryThreshold = 64 * 1024;
+    /**
+     * 磁盘缓存目录，为null时不开启磁盘缓存；磁盘缓存使用内存映射的段文件存储，client关闭时删除
+     */
+    private String cacheDiskDirectory;
+    /**
+     * 磁盘缓存段文件大小，单位byte，必须大于等于cacheMaxObjectSize
+     */
+    private int cacheDiskSegmentSize = 64 * 1024 * 1024;
+    /**
+     * 磁盘缓存最大总大小，单位byte，超过后大响应将不再缓存
+     */
+    private long cacheDiskMaxSize = 1024L * 1024 * 1024;
+    /**
+     * 后台清理已淘汰缓存资源的周期，单位毫秒
+     */
+    private long cacheCleanInterval = 5000;
+    /**
+     * 是否开启GET请求合并，开启后同一时刻相同的GET请求只会有一个实际发出，其他请求共享该请求的结果（响应body会完整读取到
+     * 内存中，所以不适合大响应）；请求标识为method、完整URL以及请求上的所有请求头（singleFlightIgnoredHeaders中的除外），
+     * Authorization、Cookie等请求头不同的请求不会合并
+     */
+    private boolean singleFlightEnabled = false;
+    /**
+     * 计算合并请求标识时忽略的请求头（不区分大小写），例如X-Request-Id、traceparent等每次请求都不一样但是不影响响应的请求头，
+     * 默认为空，即所有请求头都参与计算；注意不能包含Authorization等凭证类的请求头，否则不同用户的请求会被合并
+     */
+    private List<String> singleFlightIgnoredHeaders = new ArrayList<>();
+    /**
+     * 被合并的请求等待结果的最长时间，单位毫秒，小于等于0表示一直等待实际请求完成
+     */
+    private long singleFlightWaitTimeout = 0;
+    /**
+     * 对冲预算，即对冲请求数占可以对冲的请求数的最大比例，例如0.1表示最多10%的请求发出对冲请求；小于等于0表示不限制
+     */
+    private double hedgeBudgetRatio = 0.1;
+    /**
+     * 对冲请求的最大并发数，超过后新的对冲请求不再发出
+     */
+    private int hedgeMaxConcurrency = 16;
+    /**
+     * 是否开启每个站点的自适应并发限制，开启后将根据请求耗时以及失败情况调整每个站点的并发限制，超过限制的请求将等待
+     * concurrencyQueueTimeout或者直接被拒绝（抛出ConcurrencyLimitException），而不是堆积在连接池中
+     */
+    private boolean concurrencyLimitEnabled = false;
+    /**
+     * 并发限制算法
+     */
+    private LimitAlgorithm concurrencyLimitAlgorithm = LimitAlgorithm.AIMD;
+    /**
+     * 每个站点初始并发限制
+     */
+    private int concurrencyInitialLimit = 20;
+    /**
+     * 每个站点最小并发限制
+     */
+    private int concurrencyMinLimit = 1;
+    /**
+     * 每个站点最大并发限制，实际不会超过该站点连接池的最大连接数
+     */
+    private int concurrencyMaxLimit = 200;
+    /**
+     * AIMD算法中请求耗时超过该值时降低并发限制，单位毫秒
+     */
+    private long concurrencyLatencyThreshold = 1000;
+    /**
+     * 请求失败时并发限制的回退系数
+     */
+    private double concurrencyBackoffRatio = 0.9;
+    /**
+     * 并发达到限制时请求的最长等待时间，单位毫秒，小于等于0表示直接拒绝
+     */
+    private long concurrencyQueueTimeout = 0;
+    /**
+     * 是否开启每个站点的令牌桶限速，开启后每个站点的请求速率不超过指定值，令牌不足的请求将等待rateLimitTimeout或者直接被拒绝
+     * （抛出RateLimitException）；限速在并发限制和获取连接之前，同步、异步请求均生效
+     */
+    private boolean rateLimitEnabled = false;
+    /**
+     * 每个站点默认每秒允许的请求数
+     */
+    private double rateLimitPermitsPerSecond = 100;
+    /**
+     * 单独指定某些站点每秒允许的请求数，key为host或者host:port（host:port优先），没有指定的站点使用rateLimitPermitsPerSecond
+     */
+    private Map<String, Double> rateLimitPerHost = new HashMap<>();
+    /**
+     * 令牌桶容量，即空闲一段时间后允许的突发请求数，最小为1
+     */
+    private int rateLimitBurst = 1;
+    /**
+     * 令牌不足时请求的最长等待时间，单位毫秒，小于等于0表示直接拒绝
+     */
+    private long rateLimitTimeout = 0;
+    /**
+     * 是否开启响应压缩，开启后请求将带上Accept-Encoding: gzip,deflate，压缩的响应将在读取时流式解压（同步、异步请求均生效）
+     */
+    private boolean contentCompressionEnabled = true;
+    /**
+     * 请求body压缩阈值，单位byte，请求body大于该值（或者长度未知）时将使用gzip流式压缩后发送，小于等于0表示不压缩；需要
+     * 服务端支持Content-Encoding: gzip的请求
+     */
+    private int requestCompressionThreshold = 0;
+    /**
+     * 后台清理过期cookie的周期，单位毫秒，小于等于0表示不清理
+     */
+    private long cookiePurgeInterval = 60000;
+    /**
+     * 是否记录同步请求各个阶段（获取连接、DNS、连接、TLS握手、首字节、读取body）的耗时，开启后可以通过
+     * IHttpResponse#getTiming获取；注册了请求事件监听时自动开启
+     */
+    private boolean timingEnabled = false;
+    /**
+     * 是否开启请求统计（请求数、错误数、收发字节数、耗时分布），开启后可以通过IHttpClient#getMetrics获取；收发字节数只统计
+     * HTTP/1.1的同步请求；统计会给每个请求增加少量开销，默认不开启，设置了统计导出时自动开启
+     */
+    private boolean metricsEnabled = false;
+    /**
+     * 请求统计导出周期，单位毫秒，只有设置了导出时才生效，小于等于0表示只在client关闭时导出
+     */
+    private long metricsExportInterval = 60000;
+    /**
+     * 传输协议，默认HTTP/1.1；HTTP/2模式下同步、异步请求共用一个多路复用的HTTP/2客户端，不支持代理，响应缓存和连接池统计不生效，
+     * https需要JDK支持ALPN（JDK9+或者8u252+）
+     */
+    private HttpTransport transport = HttpTransport.HTTP_1_1;
     /**
      * socket发送缓冲
      */
@@ -38,4 +246,8 @@ public final class IHttpClientConfig extends HttpBaseConfig {
      * http代理
      */
     private HttpProxy proxy;
+    /**
+     * 异步客户端的IO线程数，默认为CPU核数
+     */
+    private int ioThreadCount = Runtime.getRuntime().availableProcessors();
 }
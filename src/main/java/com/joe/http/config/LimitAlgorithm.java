@@ -0,0 +1,20 @@
+package com.joe.http.config;
+
+/**
+ * 自适应并发限制算法
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 17:10 JoeKerouac Exp $
+ */
+public enum LimitAlgorithm {
+
+    /**
+     * 加性增、乘性减：请求成功并且并发接近限制时限制加1，请求失败（IO异常、5xx、429）或者耗时超过阈值时限制乘以回退系数
+     */
+    AIMD,
+
+    /**
+     * 梯度：根据长期平均耗时与当前耗时的比值调整限制，耗时上升时限制按比例下降，请求失败时限制乘以回退系数
+     */
+    GRADIENT;
+}
@@ -0,0 +1,32 @@
+package com.joe.http.exception;
+
+import lombok.Getter;
+
+/**
+ * 请求被并发限制拒绝，该异常不包含堆栈，被拒绝的请求没有发出
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 17:10 JoeKerouac Exp $
+ */
+@Getter
+public class ConcurrencyLimitException extends NetException {
+
+    private static final long serialVersionUID = 2968601862731290214L;
+
+    /**
+     * 被限制的站点
+     */
+    private final String host;
+
+    /**
+     * 拒绝时的并发限制
+     */
+    private final int limit;
+
+    public ConcurrencyLimitException(String host, int limit) {
+        // 拒绝需要尽可能快，不填充堆栈
+        super("站点[" + host + "]并发数已达到限制：" + limit, null, false, false);
+        this.host = host;
+        this.limit = limit;
+    }
+}
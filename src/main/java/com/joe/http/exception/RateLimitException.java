@@ -0,0 +1,32 @@
+package com.joe.http.exception;
+
+import lombok.Getter;
+
+/**
+ * 请求被站点限速拒绝，该异常不包含堆栈，被拒绝的请求没有发出
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 22:40 JoeKerouac Exp $
+ */
+@Getter
+public class RateLimitException extends NetException {
+
+    private static final long serialVersionUID = -4378026590846618120L;
+
+    /**
+     * 被限制的站点
+     */
+    private final String host;
+
+    /**
+     * 站点每秒允许的请求数
+     */
+    private final double permitsPerSecond;
+
+    public RateLimitException(String host, double permitsPerSecond) {
+        // 拒绝需要尽可能快，不填充堆栈
+        super("站点[" + host + "]请求速率已达到限制：" + permitsPerSecond + "/s", null, false, false);
+        this.host = host;
+        this.permitsPerSecond = permitsPerSecond;
+    }
+}
@@ -0,0 +1,101 @@
+package com.joe.http.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import lombok.ToString;
+
+/**
+ * 直方图快照，不可变
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 12:10 JoeKerouac Exp $
+ */
+@ToString(exclude = "counts")
+public final class HistogramSnapshot {
+
+    /**
+     * 每个桶的计数
+     */
+    private final long[] counts;
+
+    /**
+     * 总数
+     */
+    private final long count;
+
+    /**
+     * 总耗时，单位微秒
+     */
+    private final long sum;
+
+    /**
+     * 最大耗时，单位微秒
+     */
+    private final long max;
+
+    HistogramSnapshot(long[] counts, long sum, long max) {
+        this.counts = counts;
+        long count = 0;
+        for (long c : counts) {
+            count += c;
+        }
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    /**
+     * 记录总数
+     *
+     * @return 记录总数
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * 平均耗时
+     *
+     * @param unit
+     *            结果单位
+     * @return 平均耗时
+     */
+    public double getMean(TimeUnit unit) {
+        return count == 0 ? 0 : (double)unit.convert(sum, TimeUnit.MICROSECONDS) / count;
+    }
+
+    /**
+     * 最大耗时
+     *
+     * @param unit
+     *            结果单位
+     * @return 最大耗时
+     */
+    public long getMax(TimeUnit unit) {
+        return unit.convert(max, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * 获取指定百分位的耗时（所在桶的上限，不会超过最大耗时）
+     *
+     * @param percentile
+     *            百分位，取值(0, 100]
+     * @param unit
+     *            结果单位
+     * @return 耗时
+     */
+    public long getPercentile(double percentile, TimeUnit unit) {
+        if (count == 0) {
+            return 0;
+        }
+        long target = (long)Math.ceil(count * Math.min(percentile, 100) / 100);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(target, 1)) {
+                return unit.convert(Math.min(LatencyHistogram.bucketUpperBound(i), max), TimeUnit.MICROSECONDS);
+            }
+        }
+        return unit.convert(max, TimeUnit.MICROSECONDS);
+    }
+}
@@ -0,0 +1,116 @@
+package com.joe.http.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁耗时直方图，单位微秒，桶按照对数线性划分（与HdrHistogram类似）：小于16微秒的值每微秒一个桶，更大的值每个2的幂次区间
+ * 再线性划分为16个桶，相对误差不超过1/16；计算桶下标只需要几次位运算，记录时只有几次原子操作，可以放在请求热路径上
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 12:10 JoeKerouac Exp $
+ */
+public final class LatencyHistogram {
+
+    /**
+     * 每个2的幂次区间线性划分的桶数量为2^SUB_BUCKET_BITS
+     */
+    private static final int SUB_BUCKET_BITS = 4;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * 能够精确区分的最大值为2^MAX_EXPONENT微秒（约12天），更大的数据都记录在最后一个桶中
+     */
+    private static final int MAX_EXPONENT = 40;
+
+    /**
+     * 桶数量，前SUB_BUCKET_COUNT个桶每个记录1微秒，之后每SUB_BUCKET_COUNT个桶对应一个2的幂次区间
+     */
+    static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    /**
+     * 每个桶的计数
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * 总耗时，单位微秒
+     */
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * 最大耗时，单位微秒
+     */
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 记录一次耗时
+     *
+     * @param duration
+     *            耗时
+     * @param unit
+     *            耗时单位
+     */
+    public void record(long duration, TimeUnit unit) {
+        recordNanos(unit.toNanos(duration));
+    }
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos
+     *            耗时，单位纳秒
+     */
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        buckets.incrementAndGet(bucketIndex(micros));
+        sum.add(micros);
+        max.accumulate(micros);
+    }
+
+    /**
+     * 获取当前数据快照，快照期间的并发记录可能会部分体现在快照中
+     *
+     * @return 快照
+     */
+    public HistogramSnapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return new HistogramSnapshot(counts, sum.sum(), max.get());
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKET_COUNT) {
+            return (int)micros;
+        }
+        // 最高位所在的幂次，值位于[2^exponent, 2^(exponent+1))区间
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int index = (shift + 1) * SUB_BUCKET_COUNT + (int)((micros >>> shift) & (SUB_BUCKET_COUNT - 1));
+        return Math.min(index, BUCKET_COUNT - 1);
+    }
+
+    /**
+     * 指定桶的上限（不包含），单位微秒
+     *
+     * @param index
+     *            桶下标
+     * @return 桶上限
+     */
+    static long bucketUpperBound(int index) {
+        if (index >= BUCKET_COUNT - 1) {
+            return Long.MAX_VALUE;
+        }
+        if (index < SUB_BUCKET_COUNT) {
+            return index + 1;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long lower = (long)(SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+        return lower + (1L << shift);
+    }
+}
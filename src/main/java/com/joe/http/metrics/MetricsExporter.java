@@ -0,0 +1,23 @@
+package com.joe.http.metrics;
+
+/**
+ * 请求统计导出，用于对接外部的监控系统，client按照配置的周期在后台线程中回调，client关闭时会再回调一次
+ *
+ * PS:导出的数据都是累计值，需要增量数据时由实现自己计算两次快照的差值；实现不能长时间阻塞，否则会影响client的其他后台任务
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 21:40 JoeKerouac Exp $
+ */
+@FunctionalInterface
+public interface MetricsExporter {
+
+    /**
+     * 导出统计数据
+     *
+     * @param clientId
+     *            client的ID
+     * @param snapshot
+     *            统计快照
+     */
+    void export(String clientId, MetricsSnapshot snapshot);
+}
@@ -0,0 +1,168 @@
+package com.joe.http.metrics;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 一个client的请求统计，包括所有请求的统计以及每个route（scheme://host:port）的统计；route数量有上限，超过上限后新route的
+ * 请求只记录在总的统计中，防止请求了大量不同地址时统计无限增长
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 21:40 JoeKerouac Exp $
+ */
+public final class MetricsRegistry {
+
+    /**
+     * 最大route数量
+     */
+    static final int MAX_ROUTES = 1024;
+
+    /**
+     * 所有请求的统计
+     */
+    private final RequestMetrics total = new RequestMetrics();
+
+    /**
+     * 每个route的统计，key为scheme://host:port
+     */
+    private final ConcurrentHashMap<String, RequestMetrics> routes = new ConcurrentHashMap<>();
+
+    /**
+     * http请求按照URI中的authority缓存的route统计，URI中已经解析好了authority，查找时不需要拼接route key
+     */
+    private final ConcurrentHashMap<String, RequestMetrics> httpAliases = new ConcurrentHashMap<>();
+
+    /**
+     * https请求按照URI中的authority缓存的route统计
+     */
+    private final ConcurrentHashMap<String, RequestMetrics> httpsAliases = new ConcurrentHashMap<>();
+
+    /**
+     * 所有请求的统计
+     *
+     * @return 所有请求的统计
+     */
+    public RequestMetrics getTotal() {
+        return total;
+    }
+
+    /**
+     * 获取请求地址对应的route统计
+     *
+     * @param uri
+     *            请求地址
+     * @return route统计，地址不完整或者route数量已经达到上限时返回null
+     */
+    public RequestMetrics route(URI uri) {
+        String scheme = uri.getScheme();
+        String authority = uri.getRawAuthority();
+        if (scheme == null || authority == null) {
+            return null;
+        }
+        ConcurrentHashMap<String, RequestMetrics> aliases =
+            "http".equals(scheme) ? httpAliases : "https".equals(scheme) ? httpsAliases : null;
+        RequestMetrics metrics = aliases == null ? null : aliases.get(authority);
+        if (metrics == null) {
+            metrics = route(scheme, uri.getHost(), uri.getPort());
+            if (metrics != null && aliases != null && aliases.size() < MAX_ROUTES) {
+                aliases.putIfAbsent(authority, metrics);
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * 获取route统计
+     *
+     * @param scheme
+     *            scheme
+     * @param host
+     *            host
+     * @param port
+     *            端口，小于0时使用scheme的默认端口
+     * @return route统计，route数量已经达到上限时返回null
+     */
+    public RequestMetrics route(String scheme, String host, int port) {
+        if (scheme == null || host == null) {
+            return null;
+        }
+        scheme = scheme.toLowerCase(Locale.ROOT);
+        if (port < 0) {
+            port = "https".equals(scheme) ? 443 : "http".equals(scheme) ? 80 : port;
+        }
+        String key = scheme + "://" + host.toLowerCase(Locale.ROOT) + ":" + port;
+        RequestMetrics metrics = routes.get(key);
+        if (metrics == null && routes.size() < MAX_ROUTES) {
+            metrics = routes.computeIfAbsent(key, k -> new RequestMetrics());
+        }
+        return metrics;
+    }
+
+    /**
+     * 记录一次收到响应的请求
+     *
+     * @param uri
+     *            请求地址
+     * @param status
+     *            响应状态码
+     * @param nanos
+     *            耗时，单位纳秒
+     */
+    public void record(URI uri, int status, long nanos) {
+        total.record(status, nanos);
+        RequestMetrics route = route(uri);
+        if (route != null) {
+            route.record(status, nanos);
+        }
+    }
+
+    /**
+     * 记录一次失败的请求
+     *
+     * @param uri
+     *            请求地址
+     * @param e
+     *            异常
+     * @param nanos
+     *            耗时，单位纳秒
+     */
+    public void recordError(URI uri, Throwable e, long nanos) {
+        total.recordError(e, nanos);
+        RequestMetrics route = route(uri);
+        if (route != null) {
+            route.recordError(e, nanos);
+        }
+    }
+
+    /**
+     * 记录收发的字节数
+     *
+     * @param route
+     *            route统计，为null时只记录到总的统计中
+     * @param sent
+     *            发送的字节数
+     * @param received
+     *            接收的字节数
+     */
+    public void recordBytes(RequestMetrics route, long sent, long received) {
+        total.recordBytes(sent, received);
+        if (route != null) {
+            route.recordBytes(sent, received);
+        }
+    }
+
+    /**
+     * 获取当前数据快照
+     *
+     * @return 快照
+     */
+    public MetricsSnapshot snapshot() {
+        Map<String, RequestMetricsSnapshot> snapshots = new LinkedHashMap<>();
+        new TreeMap<>(routes).forEach((key, metrics) -> snapshots.put(key, metrics.snapshot()));
+        return new MetricsSnapshot(total.snapshot(), snapshots);
+    }
+}
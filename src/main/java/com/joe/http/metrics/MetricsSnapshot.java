@@ -0,0 +1,33 @@
+package com.joe.http.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 一个client的请求统计快照，不可变，所有数据都是累计值
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 21:40 JoeKerouac Exp $
+ */
+@Getter
+@ToString
+public final class MetricsSnapshot {
+
+    /**
+     * 所有请求的统计
+     */
+    private final RequestMetricsSnapshot total;
+
+    /**
+     * 每个route的统计，key为scheme://host:port
+     */
+    private final Map<String, RequestMetricsSnapshot> routes;
+
+    MetricsSnapshot(RequestMetricsSnapshot total, Map<String, RequestMetricsSnapshot> routes) {
+        this.total = total;
+        this.routes = Collections.unmodifiableMap(routes);
+    }
+}
@@ -0,0 +1,129 @@
+package com.joe.http.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 请求统计，包括请求数、错误数（按照响应状态码以及异常类型划分）、收发字节数以及耗时直方图；记录时不分配对象（第一次出现的异常
+ * 类型除外），可以放在请求热路径上
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 21:40 JoeKerouac Exp $
+ */
+public final class RequestMetrics {
+
+    /**
+     * 状态码计数的范围，超出范围的状态码记录在0中
+     */
+    private static final int MAX_STATUS = 600;
+
+    /**
+     * 请求数，包括失败的请求
+     */
+    private final LongAdder requests = new LongAdder();
+
+    /**
+     * 错误数，包括请求异常以及状态码大于等于400的响应
+     */
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * 每个状态码的响应数
+     */
+    private final AtomicLongArray statuses = new AtomicLongArray(MAX_STATUS);
+
+    /**
+     * 每种异常的次数
+     */
+    private final ConcurrentHashMap<Class<?>, LongAdder> exceptions = new ConcurrentHashMap<>();
+
+    /**
+     * 发送的字节数
+     */
+    private final LongAdder bytesOut = new LongAdder();
+
+    /**
+     * 接收的字节数
+     */
+    private final LongAdder bytesIn = new LongAdder();
+
+    /**
+     * 请求耗时，从开始执行到收到响应头
+     */
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * 记录一次收到响应的请求
+     *
+     * @param status
+     *            响应状态码
+     * @param nanos
+     *            耗时，单位纳秒
+     */
+    public void record(int status, long nanos) {
+        requests.increment();
+        statuses.incrementAndGet(status > 0 && status < MAX_STATUS ? status : 0);
+        if (status >= 400) {
+            errors.increment();
+        }
+        latency.recordNanos(nanos);
+    }
+
+    /**
+     * 记录一次失败的请求
+     *
+     * @param e
+     *            异常
+     * @param nanos
+     *            耗时，单位纳秒
+     */
+    public void recordError(Throwable e, long nanos) {
+        requests.increment();
+        errors.increment();
+        LongAdder counter = exceptions.get(e.getClass());
+        if (counter == null) {
+            counter = exceptions.computeIfAbsent(e.getClass(), type -> new LongAdder());
+        }
+        counter.increment();
+        latency.recordNanos(nanos);
+    }
+
+    /**
+     * 记录收发的字节数
+     *
+     * @param sent
+     *            发送的字节数
+     * @param received
+     *            接收的字节数
+     */
+    public void recordBytes(long sent, long received) {
+        if (sent > 0) {
+            bytesOut.add(sent);
+        }
+        if (received > 0) {
+            bytesIn.add(received);
+        }
+    }
+
+    /**
+     * 获取当前数据快照，所有数据都是累计值
+     *
+     * @return 快照
+     */
+    public RequestMetricsSnapshot snapshot() {
+        Map<Integer, Long> statusCounts = new LinkedHashMap<>();
+        for (int i = 0; i < MAX_STATUS; i++) {
+            long count = statuses.get(i);
+            if (count > 0) {
+                statusCounts.put(i, count);
+            }
+        }
+        Map<String, Long> exceptionCounts = new LinkedHashMap<>();
+        exceptions.forEach((type, count) -> exceptionCounts.put(type.getName(), count.sum()));
+        return new RequestMetricsSnapshot(requests.sum(), errors.sum(), statusCounts, exceptionCounts, bytesOut.sum(),
+            bytesIn.sum(), latency.snapshot());
+    }
+}
@@ -0,0 +1,64 @@
+package com.joe.http.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 请求统计快照，不可变，所有数据都是累计值
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 21:40 JoeKerouac Exp $
+ */
+@Getter
+@ToString
+public final class RequestMetricsSnapshot {
+
+    /**
+     * 请求数，包括失败的请求
+     */
+    private final long requests;
+
+    /**
+     * 错误数，包括请求异常以及状态码大于等于400的响应
+     */
+    private final long errors;
+
+    /**
+     * 每个状态码的响应数，key为状态码
+     */
+    private final Map<Integer, Long> statuses;
+
+    /**
+     * 每种异常的次数，key为异常类名
+     */
+    private final Map<String, Long> exceptions;
+
+    /**
+     * 发送的字节数（包括请求头）
+     */
+    private final long bytesOut;
+
+    /**
+     * 接收的字节数（包括响应头）
+     */
+    private final long bytesIn;
+
+    /**
+     * 请求耗时，从开始执行到收到响应头
+     */
+    private final HistogramSnapshot latency;
+
+    RequestMetricsSnapshot(long requests, long errors, Map<Integer, Long> statuses, Map<String, Long> exceptions,
+        long bytesOut, long bytesIn, HistogramSnapshot latency) {
+        this.requests = requests;
+        this.errors = errors;
+        this.statuses = Collections.unmodifiableMap(statuses);
+        this.exceptions = Collections.unmodifiableMap(exceptions);
+        this.bytesOut = bytesOut;
+        this.bytesIn = bytesIn;
+        this.latency = latency;
+    }
+}
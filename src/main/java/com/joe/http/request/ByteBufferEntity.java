@@ -0,0 +1,87 @@
+package com.joe.http.request;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+import com.joe.utils.common.Assert;
+
+/**
+ * 以{@link ByteBuffer}为数据源的请求body，发送时不会复制ByteBuffer中的数据，也不会修改传入的ByteBuffer的position
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 11:02 JoeKerouac Exp $
+ */
+class ByteBufferEntity extends AbstractHttpEntity {
+
+    /**
+     * 数据
+     */
+    private final ByteBuffer buffer;
+
+    ByteBufferEntity(ByteBuffer buffer) {
+        Assert.notNull(buffer, "buffer不能为null");
+        this.buffer = buffer.slice();
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return buffer.remaining();
+    }
+
+    @Override
+    public InputStream getContent() {
+        ByteBuffer data = buffer.duplicate();
+        return new InputStream() {
+            @Override
+            public int read() {
+                return data.hasRemaining() ? data.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (!data.hasRemaining()) {
+                    return -1;
+                }
+                int n = Math.min(len, data.remaining());
+                data.get(b, off, n);
+                return n;
+            }
+
+            @Override
+            public int available() {
+                return data.remaining();
+            }
+        };
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        Assert.notNull(outStream, "outStream不能为null");
+        ByteBuffer data = buffer.duplicate();
+        if (data.hasArray()) {
+            outStream.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+        } else {
+            WritableByteChannel channel = Channels.newChannel(outStream);
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+        outStream.flush();
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+}
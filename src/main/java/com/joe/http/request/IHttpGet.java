@@ -5,6 +5,10 @@ public class IHttpGet extends IHttpRequestBase {
         super(url);
     }
 
+    IHttpGet(UrlTemplate template) {
+        super(template);
+    }
+
     /**
      * 构建GET构建器
      * 
@@ -16,14 +20,29 @@ public class IHttpGet extends IHttpRequestBase {
         return new Builder(url);
     }
 
+    /**
+     * 构建GET构建器
+     *
+     * @param template
+     *            url模板
+     * @return GET构建器
+     */
+    public static Builder builder(UrlTemplate template) {
+        return new Builder(template);
+    }
+
     public static final class Builder extends IHttpRequestBase.Builder<IHttpGet> {
         protected Builder(String url) {
             super(url);
         }
 
+        protected Builder(UrlTemplate template) {
+            super(template);
+        }
+
         @Override
         public IHttpGet build() {
-            IHttpGet get = new IHttpGet(super.url);
+            IHttpGet get = new IHttpGet(super.template);
             super.configure(get);
             return get;
         }
@@ -1,10 +1,24 @@
 package com.joe.http.request;
 
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.joe.http.exception.NetException;
+import com.joe.utils.common.Assert;
+import com.joe.utils.common.string.StringUtils;
+
 public class IHttpPost extends IHttpRequestBase {
     IHttpPost(String url) {
         super(url);
     }
 
+    IHttpPost(UrlTemplate template) {
+        super(template);
+    }
+
     /**
      * 构建POST构建器
      *
@@ -16,16 +30,140 @@ public class IHttpPost extends IHttpRequestBase {
         return new Builder(url);
     }
 
+    /**
+     * 构建POST构建器
+     *
+     * @param template
+     *            url模板
+     * @return POST构建器
+     */
+    public static Builder builder(UrlTemplate template) {
+        return new Builder(template);
+    }
+
     public static final class Builder extends IHttpRequestBase.Builder<IHttpPost> {
+
+        /**
+         * multipart的part，没有时为null
+         */
+        private List<MultipartEntity.Part> parts;
+
         private Builder(String url) {
             super(url);
         }
 
+        private Builder(UrlTemplate template) {
+            super(template);
+        }
+
+        /**
+         * 添加multipart文本字段，使用UTF-8编码；添加part后请求将使用multipart/form-data发送，不能再设置entity、form param以及
+         * 二进制body
+         *
+         * @param name
+         *            字段名
+         * @param value
+         *            字段值
+         * @return builder
+         */
+        public Builder part(String name, String value) {
+            Assert.notNull(value, "value不能为null");
+            return addPart(
+                new MultipartEntity.BytesPart(name, value.getBytes(StandardCharsets.UTF_8), null, null));
+        }
+
+        /**
+         * 添加multipart二进制字段
+         *
+         * @param name
+         *            字段名
+         * @param data
+         *            数据
+         * @param filename
+         *            文件名，可以为null
+         * @param contentType
+         *            content-type，为null时使用application/octet-stream
+         * @return builder
+         */
+        public Builder part(String name, byte[] data, String filename, String contentType) {
+            return addPart(new MultipartEntity.BytesPart(name, data, filename, partContentType(contentType)));
+        }
+
+        /**
+         * 添加multipart文件字段，文件名使用文件本身的名字，发送时才读取文件并且不会将文件读取到内存中
+         *
+         * @param name
+         *            字段名
+         * @param file
+         *            文件
+         * @return builder
+         */
+        public Builder part(String name, File file) {
+            Assert.notNull(file, "file不能为null");
+            return part(name, file, file.getName(), null);
+        }
+
+        /**
+         * 添加multipart文件字段，发送时才读取文件并且不会将文件读取到内存中
+         *
+         * @param name
+         *            字段名
+         * @param file
+         *            文件
+         * @param filename
+         *            文件名
+         * @param contentType
+         *            content-type，为null时使用application/octet-stream
+         * @return builder
+         */
+        public Builder part(String name, File file, String filename, String contentType) {
+            return addPart(new MultipartEntity.FilePart(name, file, filename, partContentType(contentType)));
+        }
+
+        /**
+         * 添加multipart流字段，发送时才读取并且不会将流读取到内存中，发送完毕后会关闭该流；流只能读取一次，所以请求不能重试
+         *
+         * @param name
+         *            字段名
+         * @param data
+         *            数据流
+         * @param length
+         *            流的长度，小于0时表示未知，整个请求将使用chunked编码发送
+         * @param filename
+         *            文件名，可以为null
+         * @param contentType
+         *            content-type，为null时使用application/octet-stream
+         * @return builder
+         */
+        public Builder part(String name, InputStream data, long length, String filename, String contentType) {
+            return addPart(new MultipartEntity.StreamPart(name, data, length, filename, partContentType(contentType)));
+        }
+
         @Override
         public IHttpPost build() {
-            IHttpPost post = new IHttpPost(super.url);
+            if (parts != null && (body != null || !formParam.isEmpty() || !StringUtils.isEmpty(entity))) {
+                throw new NetException("multipart 和 form data、entity、二进制body不能同时存在");
+            }
+            IHttpPost post = new IHttpPost(super.template);
             super.configure(post);
+            if (parts != null) {
+                MultipartEntity multipart = new MultipartEntity(parts);
+                post.body = multipart;
+                post.contentType = multipart.getContentType().getValue();
+            }
             return post;
         }
+
+        private Builder addPart(MultipartEntity.Part part) {
+            if (parts == null) {
+                parts = new ArrayList<>();
+            }
+            parts.add(part);
+            return this;
+        }
+
+        private static String partContentType(String contentType) {
+            return StringUtils.isEmpty(contentType) ? CONTENT_TYPE_OCTET_STREAM : contentType;
+        }
     }
 }
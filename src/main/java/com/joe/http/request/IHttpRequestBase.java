@@ -1,11 +1,23 @@
 package com.joe.http.request;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.nio.entity.NFileEntity;
 
 import com.joe.http.client.IHttpClient;
 import com.joe.http.config.IHttpConfig;
@@ -14,11 +26,13 @@ import com.joe.http.response.IHttpResponse;
 import com.joe.utils.common.Assert;
 import com.joe.utils.common.string.StringUtils;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.ToString;
 
 /**
- * 默认content-type为json格式，如果调用addFormParam方法那么将会更改为form格式
+ * 默认content-type为json格式，如果调用addFormParam方法那么将会更改为form格式；构建好的请求可以重复执行（包括并发执行），展开后的
+ * URL会缓存在请求中，重复执行时不需要重新构建
  *
  * @author joe
  */
@@ -27,6 +41,7 @@ import lombok.ToString;
 public abstract class IHttpRequestBase {
     public static final String CONTENT_TYPE_JSON = "application/json";
     public static final String CONTENT_TYPE_FORM = "application/x-www-form-urlencoded";
+    public static final String CONTENT_TYPE_OCTET_STREAM = "application/octet-stream";
     public static final String CHARSET = "UTF8";
     /**
      * 发起请求的客户端
@@ -41,16 +56,23 @@ public abstract class IHttpRequestBase {
      */
     String contentType;
     /**
-     * 请求URL
+     * 请求URL模板，可以通过{@link #getTemplate()}获取原始的模板
      */
-    String url;
+    UrlTemplate template;
     /**
-     * 请求头
+     * 请求头，大多数请求没有请求头，第一次写入或者通过{@link #getHeaders()}获取时才分配可写的map
      */
+    @Getter(AccessLevel.NONE)
     Map<String, String> headers;
     /**
-     * URL参数
+     * path变量，第一次写入或者通过{@link #getPathParams()}获取时才分配可写的map
+     */
+    @Getter(AccessLevel.NONE)
+    Map<String, String> pathParams;
+    /**
+     * URL参数，第一次写入或者通过{@link #getQueryParams()}获取时才分配可写的map
      */
+    @Getter(AccessLevel.NONE)
     Map<String, String> queryParams;
     /**
      * 请求
@@ -60,18 +82,45 @@ public abstract class IHttpRequestBase {
      * 请求body，如果请求方法是get的话自动忽略该字段
      */
     String entity;
+    /**
+     * 二进制、流式请求body，不为null时将忽略{@link #entity}，如果请求方法是get的话自动忽略该字段
+     */
+    HttpEntity body;
+    /**
+     * form数据，调用{@link #addFormParam(String, String)}时使用
+     */
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private StringBuilder form;
+    /**
+     * 展开后的完整URL，第一次使用时构建
+     */
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private volatile String fullUrl;
+    /**
+     * 完整的请求URI，第一次使用时构建
+     */
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private volatile URI uri;
+    /**
+     * path变量或者URL参数的map是否已经通过getter交给了调用方，交出后调用方可能随时修改，展开后的URL不能再缓存
+     */
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private volatile boolean paramsExposed;
 
     IHttpRequestBase(String url) {
-        Assert.notNull(url, "url不能为空");
-        this.headers = new HashMap<>();
-        this.queryParams = new HashMap<>();
-        int index;
-        if ((index = url.indexOf("?")) > 0) {
-            this.queryParams.putAll(parse(url));
-            this.url = url.substring(0, index);
-        } else {
-            this.url = url;
-        }
+        this(UrlTemplate.compile(url));
+    }
+
+    IHttpRequestBase(UrlTemplate template) {
+        Assert.notNull(template, "url不能为空");
+        this.template = template;
+        this.headers = Collections.emptyMap();
+        this.pathParams = Collections.emptyMap();
+        this.queryParams = template.getQueryParams();
         this.contentType = CONTENT_TYPE_JSON;
         this.charset = Charset.defaultCharset().name();
     }
@@ -85,6 +134,7 @@ public abstract class IHttpRequestBase {
      *            值
      */
     protected void addHeader(String key, String value) {
+        headers = writable(headers);
         headers.put(key, value);
     }
 
@@ -97,7 +147,9 @@ public abstract class IHttpRequestBase {
      *            value
      */
     protected void addPathParam(String key, String value) {
-        this.url = url.replace("{" + key + "}", value);
+        pathParams = writable(pathParams);
+        pathParams.put(key, value);
+        resetUrl();
     }
 
     /**
@@ -112,7 +164,9 @@ public abstract class IHttpRequestBase {
         if (key == null) {
             throw new NullPointerException("key 不能为null");
         }
+        queryParams = writable(queryParams);
         queryParams.put(key, value == null ? "" : value);
+        resetUrl();
     }
 
     /**
@@ -125,16 +179,98 @@ public abstract class IHttpRequestBase {
      * @return 请求本身
      */
     public IHttpRequestBase addFormParam(String key, String value) {
-        String tag = key + "=" + value;
-        if (entity == null || entity.isEmpty()) {
-            entity = tag;
-        } else {
-            entity += "&" + tag;
+        if (form == null) {
+            form = new StringBuilder(entity == null ? 64 : entity.length() + 64);
+            if (entity != null) {
+                form.append(entity);
+            }
         }
+        if (form.length() > 0) {
+            form.append('&');
+        }
+        form.append(key).append('=').append(value);
+        // 使用时再生成字符串，多次添加时不会重复复制
+        this.entity = null;
         this.contentType = CONTENT_TYPE_FORM;
         return this;
     }
 
+    /**
+     * 获取请求body
+     *
+     * @return 请求body
+     */
+    public String getEntity() {
+        String entity = this.entity;
+        if (entity == null && form != null) {
+            entity = form.toString();
+            this.entity = entity;
+        }
+        return entity;
+    }
+
+    /**
+     * 获取请求URL，不包含query参数，path变量已经替换并编码，没有设置值的path变量保留为{name}；原始的URL模板通过
+     * {@link #getTemplate()}获取
+     *
+     * @return 请求URL
+     */
+    public String getUrl() {
+        return template.expand(pathParams, null);
+    }
+
+    /**
+     * 获取请求头，返回的map可以修改，修改后对之后的执行生效
+     *
+     * @return 请求头
+     */
+    public Map<String, String> getHeaders() {
+        Map<String, String> headers = writable(this.headers);
+        this.headers = headers;
+        return headers;
+    }
+
+    /**
+     * 获取path变量，返回的map可以修改，修改后对之后的执行生效
+     *
+     * @return path变量
+     */
+    public Map<String, String> getPathParams() {
+        Map<String, String> pathParams = writable(this.pathParams);
+        this.pathParams = pathParams;
+        exposeParams();
+        return pathParams;
+    }
+
+    /**
+     * 获取URL参数，返回的map可以修改，修改后对之后的执行生效
+     *
+     * @return URL参数
+     */
+    public Map<String, String> getQueryParams() {
+        Map<String, String> queryParams = writable(this.queryParams);
+        this.queryParams = queryParams;
+        exposeParams();
+        return queryParams;
+    }
+
+    /**
+     * 参数map交给调用方后不再缓存展开后的URL
+     */
+    private void exposeParams() {
+        this.paramsExposed = true;
+        resetUrl();
+    }
+
+    /**
+     * 请求头是否为空，不会分配可写的map
+     *
+     * @return 没有请求头时返回true
+     */
+    public boolean hasHeaders() {
+        return !headers.isEmpty();
+    }
+
     /**
      * 解析URL，从URL中解析参数
      *
@@ -161,6 +297,57 @@ public abstract class IHttpRequestBase {
         }
     }
 
+    /**
+     * 构建完整的请求URL，path变量和query参数都会进行编码
+     *
+     * @return 完整的请求URL
+     */
+    public String buildUrl() {
+        String url = this.fullUrl;
+        if (url == null) {
+            url = template.expand(pathParams, queryParams);
+            if (!paramsExposed) {
+                this.fullUrl = url;
+            }
+        }
+        return url;
+    }
+
+    /**
+     * 构建完整的请求URI，结果会缓存，重复执行同一个请求时不需要重新展开和解析URL
+     *
+     * @return 完整的请求URI
+     */
+    public URI buildUri() {
+        URI uri = this.uri;
+        if (uri == null) {
+            uri = URI.create(buildUrl());
+            if (!paramsExposed) {
+                this.uri = uri;
+            }
+        }
+        return uri;
+    }
+
+    /**
+     * path变量或者query参数变化后清除缓存的URL
+     */
+    private void resetUrl() {
+        this.fullUrl = null;
+        this.uri = null;
+    }
+
+    /**
+     * 获取可写的map，参数及请求头大多数情况下为空，所以在第一次写入时才分配
+     *
+     * @param map
+     *            map
+     * @return 可写的map
+     */
+    static Map<String, String> writable(Map<String, String> map) {
+        return map instanceof HashMap ? map : new LinkedHashMap<>(map);
+    }
+
     /**
      * 执行网络请求
      * 
@@ -172,6 +359,15 @@ public abstract class IHttpRequestBase {
         return client.execute(this);
     }
 
+    /**
+     * 异步执行网络请求
+     *
+     * @return 请求结果的future
+     */
+    public CompletableFuture<IHttpResponse> execAsync() {
+        return client.executeAsync(this);
+    }
+
     /**
      * 请求构建器
      */
@@ -188,15 +384,20 @@ public abstract class IHttpRequestBase {
         String contentType;
 
         /**
-         * 请求URL
+         * 请求URL模板
          */
-        String url;
+        UrlTemplate template;
 
         /**
          * 请求头
          */
         Map<String, String> headers;
 
+        /**
+         * path变量
+         */
+        Map<String, String> pathParams;
+
         /**
          * URL参数
          */
@@ -217,17 +418,27 @@ public abstract class IHttpRequestBase {
          */
         String entity;
 
+        /**
+         * 二进制、流式请求body，与entity、form param不能同时存在
+         */
+        HttpEntity body;
+
         /**
          * 请求client
          */
         IHttpClient client;
 
         protected Builder(String url) {
-            Assert.notNull(url, "url不能为null");
-            this.url = url;
-            this.headers = new HashMap<>();
-            this.queryParams = new HashMap<>();
-            this.formParam = new HashMap<>();
+            this(UrlTemplate.compile(url));
+        }
+
+        protected Builder(UrlTemplate template) {
+            Assert.notNull(template, "url不能为null");
+            this.template = template;
+            this.headers = Collections.emptyMap();
+            this.pathParams = Collections.emptyMap();
+            this.queryParams = Collections.emptyMap();
+            this.formParam = Collections.emptyMap();
         }
 
         /**
@@ -260,10 +471,25 @@ public abstract class IHttpRequestBase {
          * @param key
          *            要替换的key
          * @param value
-         *            对应的value
+         *            对应的value，展开时会进行编码
          */
         public void pathParam(String key, String value) {
-            this.url = url.replace("{" + key + "}", value);
+            pathVariable(key, value);
+        }
+
+        /**
+         * 添加path变量，与{@link #pathParam(String, String)}相同，可以链式调用
+         *
+         * @param key
+         *            要替换的key
+         * @param value
+         *            对应的value，展开时会进行编码
+         * @return builder
+         */
+        public Builder<T> pathVariable(String key, String value) {
+            this.pathParams = writable(pathParams);
+            this.pathParams.put(key, value);
+            return this;
         }
 
         /**
@@ -276,6 +502,7 @@ public abstract class IHttpRequestBase {
          * @return builder
          */
         public Builder<T> header(String key, String value) {
+            this.headers = writable(headers);
             this.headers.put(key, value);
             return this;
         }
@@ -290,6 +517,7 @@ public abstract class IHttpRequestBase {
          * @return builder
          */
         public Builder<T> queryParam(String key, String value) {
+            queryParams = writable(queryParams);
             queryParams.put(key, value);
             return this;
         }
@@ -304,6 +532,7 @@ public abstract class IHttpRequestBase {
          * @return builder
          */
         public Builder<T> formParam(String key, String value) {
+            formParam = writable(formParam);
             formParam.put(key, value);
             this.contentType = CONTENT_TYPE_FORM;
             return this;
@@ -334,6 +563,82 @@ public abstract class IHttpRequestBase {
             return this;
         }
 
+        /**
+         * 设置二进制请求body，数据不会经过字符集转换
+         *
+         * @param data
+         *            body
+         * @return builder
+         */
+        public Builder<T> entity(byte[] data) {
+            Assert.notNull(data, "data不能为null");
+            this.body = new ByteArrayEntity(data);
+            return this;
+        }
+
+        /**
+         * 设置二进制请求body，发送ByteBuffer中position到limit之间的数据，发送过程中不会复制数据也不会修改ByteBuffer的position
+         *
+         * @param data
+         *            body
+         * @return builder
+         */
+        public Builder<T> entity(ByteBuffer data) {
+            this.body = new ByteBufferEntity(data);
+            return this;
+        }
+
+        /**
+         * 设置流式请求body，将使用chunked编码发送，发送完毕后会关闭该流；流只能读取一次，所以请求不能重试
+         *
+         * @param data
+         *            body
+         * @return builder
+         */
+        public Builder<T> entity(InputStream data) {
+            return entity(data, -1);
+        }
+
+        /**
+         * 设置流式请求body，发送完毕后会关闭该流；流只能读取一次，所以请求不能重试
+         *
+         * @param data
+         *            body
+         * @param length
+         *            流的长度，小于0时表示未知，将使用chunked编码发送
+         * @return builder
+         */
+        public Builder<T> entity(InputStream data, long length) {
+            Assert.notNull(data, "data不能为null");
+            this.body = new InputStreamEntity(data, length);
+            return this;
+        }
+
+        /**
+         * 将文件作为请求body，发送时不会将文件读取到内存；异步请求将使用FileChannel.transferTo零拷贝发送
+         *
+         * @param file
+         *            文件
+         * @return builder
+         */
+        public Builder<T> entity(File file) {
+            Assert.notNull(file, "file不能为null");
+            this.body = new NFileEntity(file);
+            return this;
+        }
+
+        /**
+         * 将文件作为请求body，发送时不会将文件读取到内存；异步请求将使用FileChannel.transferTo零拷贝发送
+         *
+         * @param path
+         *            文件
+         * @return builder
+         */
+        public Builder<T> entity(Path path) {
+            Assert.notNull(path, "path不能为null");
+            return entity(path.toFile());
+        }
+
         public Builder<T> client(IHttpClient client) {
             this.client = client;
             return this;
@@ -356,13 +661,19 @@ public abstract class IHttpRequestBase {
         protected T configure(T request) {
             request.client = client == null ? IHttpClient.DEFAULT_CLIENT : client;
             request.httpConfig = httpConfig;
-            request.contentType = StringUtils.isEmpty(contentType) ? CONTENT_TYPE_JSON : contentType;
+            request.contentType = StringUtils.isEmpty(contentType)
+                ? (body == null ? CONTENT_TYPE_JSON : CONTENT_TYPE_OCTET_STREAM) : contentType;
             headers.forEach(request::addHeader);
+            pathParams.forEach(request::addPathParam);
             queryParams.forEach(request::addQueryParam);
 
             if (!formParam.isEmpty() && !StringUtils.isEmpty(entity)) {
                 throw new NetException("form data 和 entity不能同时存在");
             }
+            if (body != null && (!formParam.isEmpty() || !StringUtils.isEmpty(entity))) {
+                throw new NetException("二进制body 和 form data、entity不能同时存在");
+            }
+            request.body = body;
             if (formParam.isEmpty()) {
                 request.entity = entity == null ? "" : entity;
             } else {
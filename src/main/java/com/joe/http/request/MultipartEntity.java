@@ -0,0 +1,368 @@
+package com.joe.http.request;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+import com.joe.http.exception.NetException;
+import com.joe.utils.common.Assert;
+
+/**
+ * multipart/form-data请求body，各个part在发送时才依次从数据源读取，文件和流不会读取到内存中，所以任意大小的上传占用的内存都是
+ * 固定的；同步请求通过{@link #writeTo(OutputStream)}写出，异步请求通过{@link #getContent()}边读取边发送
+ *
+ * PS:包含流的body只能发送一次；所有part长度都已知时使用Content-Length发送，否则使用chunked编码发送
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 20:30 JoeKerouac Exp $
+ */
+class MultipartEntity extends AbstractHttpEntity {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private static final char[] BOUNDARY_CHARS =
+        "-_1234567890abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final List<Part> parts;
+
+    /**
+     * 每个part编码好的头部，包括分隔符
+     */
+    private final byte[][] heads;
+
+    /**
+     * 结尾的分隔符，--boundary--\r\n
+     */
+    private final byte[] end;
+
+    private final long contentLength;
+
+    private final boolean repeatable;
+
+    MultipartEntity(List<Part> parts) {
+        Assert.notNull(parts, "parts不能为null");
+        String boundary = boundary();
+        this.parts = new ArrayList<>(parts);
+        this.end = ("--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        setContentType("multipart/form-data; boundary=" + boundary);
+
+        this.heads = new byte[this.parts.size()][];
+        long length = end.length;
+        boolean repeatable = true;
+        for (int i = 0; i < heads.length; i++) {
+            Part part = this.parts.get(i);
+            heads[i] = part.head(boundary);
+            long partLength = part.length();
+            length = length < 0 || partLength < 0 ? -1 : length + heads[i].length + partLength + CRLF.length;
+            repeatable &= part.isRepeatable();
+        }
+        this.contentLength = length;
+        this.repeatable = repeatable;
+        setChunked(length < 0);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return repeatable;
+    }
+
+    @Override
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return !repeatable;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        return new SequenceInputStream(new Enumeration<InputStream>() {
+            /**
+             * 当前part的下标
+             */
+            private int index;
+
+            /**
+             * 当前part的阶段：0头部，1数据，2结尾的换行
+             */
+            private int stage;
+
+            private boolean finished;
+
+            @Override
+            public boolean hasMoreElements() {
+                return !finished;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                if (index == heads.length) {
+                    finished = true;
+                    return new ByteArrayInputStream(end);
+                }
+                switch (stage) {
+                    case 0:
+                        stage = 1;
+                        return new ByteArrayInputStream(heads[index]);
+                    case 1:
+                        stage = 2;
+                        try {
+                            return parts.get(index).open();
+                        } catch (IOException e) {
+                            throw new NetException("读取multipart数据异常", e);
+                        }
+                    default:
+                        stage = 0;
+                        index++;
+                        return new ByteArrayInputStream(CRLF);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void writeTo(OutputStream outStream) throws IOException {
+        Assert.notNull(outStream, "outStream不能为null");
+        byte[] buffer = new byte[BUFFER_SIZE];
+        for (int i = 0; i < heads.length; i++) {
+            outStream.write(heads[i]);
+            parts.get(i).writeTo(outStream, buffer);
+            outStream.write(CRLF);
+        }
+        outStream.write(end);
+        outStream.flush();
+    }
+
+    /**
+     * 生成随机的分隔符
+     *
+     * @return 分隔符
+     */
+    private static String boundary() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[] chars = new char[32];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = BOUNDARY_CHARS[random.nextInt(BOUNDARY_CHARS.length)];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 转义Content-Disposition中的参数值，与浏览器一致，双引号和换行使用百分号编码
+     *
+     * @param value
+     *            参数值
+     * @return 转义后的参数值
+     */
+    private static String escape(String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                sb.append("%22");
+            } else if (c == '\r') {
+                sb.append("%0D");
+            } else if (c == '\n') {
+                sb.append("%0A");
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * multipart中的一个part
+     */
+    abstract static class Part {
+
+        /**
+         * 字段名
+         */
+        private final String name;
+
+        /**
+         * 文件名，不是文件时为null
+         */
+        private final String filename;
+
+        /**
+         * content-type，为null时不发送
+         */
+        private final String contentType;
+
+        Part(String name, String filename, String contentType) {
+            Assert.notNull(name, "name不能为null");
+            this.name = name;
+            this.filename = filename;
+            this.contentType = contentType;
+        }
+
+        /**
+         * 数据长度
+         *
+         * @return 数据长度，未知时返回-1
+         */
+        abstract long length();
+
+        /**
+         * 数据是否可以重复读取
+         *
+         * @return 数据是否可以重复读取
+         */
+        abstract boolean isRepeatable();
+
+        /**
+         * 打开数据流
+         *
+         * @return 数据流
+         * @throws IOException
+         *             IO异常
+         */
+        abstract InputStream open() throws IOException;
+
+        /**
+         * 写出数据
+         *
+         * @param out
+         *            输出流
+         * @param buffer
+         *            复用的缓冲
+         * @throws IOException
+         *             IO异常
+         */
+        void writeTo(OutputStream out, byte[] buffer) throws IOException {
+            try (InputStream in = open()) {
+                int len;
+                while ((len = in.read(buffer)) >= 0) {
+                    out.write(buffer, 0, len);
+                }
+            }
+        }
+
+        private byte[] head(String boundary) {
+            StringBuilder sb = new StringBuilder(128);
+            sb.append("--").append(boundary).append("\r\n");
+            sb.append("Content-Disposition: form-data; name=\"").append(escape(name)).append('"');
+            if (filename != null) {
+                sb.append("; filename=\"").append(escape(filename)).append('"');
+            }
+            sb.append("\r\n");
+            if (contentType != null) {
+                sb.append("Content-Type: ").append(contentType).append("\r\n");
+            }
+            sb.append("\r\n");
+            return sb.toString().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 字节数组数据
+     */
+    static final class BytesPart extends Part {
+
+        private final byte[] data;
+
+        BytesPart(String name, byte[] data, String filename, String contentType) {
+            super(name, filename, contentType);
+            Assert.notNull(data, "data不能为null");
+            this.data = data;
+        }
+
+        @Override
+        long length() {
+            return data.length;
+        }
+
+        @Override
+        boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        InputStream open() {
+            return new ByteArrayInputStream(data);
+        }
+
+        @Override
+        void writeTo(OutputStream out, byte[] buffer) throws IOException {
+            out.write(data);
+        }
+    }
+
+    /**
+     * 文件数据，发送时才打开文件
+     */
+    static final class FilePart extends Part {
+
+        private final File file;
+
+        FilePart(String name, File file, String filename, String contentType) {
+            super(name, filename, contentType);
+            Assert.notNull(file, "file不能为null");
+            this.file = file;
+        }
+
+        @Override
+        long length() {
+            return file.length();
+        }
+
+        @Override
+        boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        InputStream open() throws IOException {
+            return Files.newInputStream(file.toPath());
+        }
+    }
+
+    /**
+     * 流数据，只能读取一次，发送完毕后会关闭该流
+     */
+    static final class StreamPart extends Part {
+
+        private final InputStream in;
+
+        private final long length;
+
+        StreamPart(String name, InputStream in, long length, String filename, String contentType) {
+            super(name, filename, contentType);
+            Assert.notNull(in, "in不能为null");
+            this.in = in;
+            this.length = length < 0 ? -1 : length;
+        }
+
+        @Override
+        long length() {
+            return length;
+        }
+
+        @Override
+        boolean isRepeatable() {
+            return false;
+        }
+
+        @Override
+        InputStream open() {
+            return in;
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.joe.http.request;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.joe.utils.common.Assert;
+
+/**
+ * URL模板，例如http://127.0.0.1/user/{id}?type=1，带变量的path只解析一次并且按照path缓存（不包含query）；展开时一次遍历完成path变量替换和query
+ * 参数拼接，变量值和query参数按照RFC 3986进行百分号编码（UTF-8），模板中的字面量原样输出
+ *
+ * PS:模板中自带的query参数会被解码（'+'视为空格），展开时与其他query参数一起重新编码
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 19:10 JoeKerouac Exp $
+ */
+public final class UrlTemplate {
+
+    /**
+     * 缓存的最大模板数，超过后新的模板不再缓存；只有带变量的path会被缓存，直接拼接好的URL不会占用缓存
+     */
+    private static final int MAX_CACHE_SIZE = 4096;
+
+    /**
+     * 展开时复用的StringBuilder，超过该容量的不复用，防止线程长期持有大对象
+     */
+    private static final int MAX_REUSE_CAPACITY = 8192;
+
+    private static final ConcurrentHashMap<String, UrlTemplate> CACHE = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * path中不需要编码的字符（RFC 3986中的pchar）
+     */
+    private static final boolean[] PATH_SAFE = new boolean[128];
+
+    /**
+     * query参数中不需要编码的字符，pchar、'/'、'?'去掉'&'、'='、'+'
+     */
+    private static final boolean[] QUERY_SAFE = new boolean[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            PATH_SAFE[c] = true;
+            PATH_SAFE[c - 'a' + 'A'] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            PATH_SAFE[c] = true;
+        }
+        for (char c : "-._~!$&'()*+,;=:@".toCharArray()) {
+            PATH_SAFE[c] = true;
+        }
+        System.arraycopy(PATH_SAFE, 0, QUERY_SAFE, 0, PATH_SAFE.length);
+        QUERY_SAFE['/'] = true;
+        QUERY_SAFE['?'] = true;
+        QUERY_SAFE['&'] = false;
+        QUERY_SAFE['='] = false;
+        QUERY_SAFE['+'] = false;
+    }
+
+    /**
+     * 模板字符串
+     */
+    private final String template;
+
+    /**
+     * 模板中'?'之前的部分
+     */
+    private final String path;
+
+    /**
+     * path中的字面量，比变量多一个，第i个变量位于第i个和第i+1个字面量之间
+     */
+    private final String[] literals;
+
+    /**
+     * path中的变量名
+     */
+    private final String[] variables;
+
+    /**
+     * 模板中自带的query参数，已经解码
+     */
+    private final Map<String, String> queryParams;
+
+    private UrlTemplate(String template) {
+        this.template = template;
+        int index = template.indexOf('?');
+        this.path = index > 0 ? template.substring(0, index) : template;
+        this.queryParams =
+            index > 0 ? Collections.unmodifiableMap(parseQuery(template.substring(index + 1))) : Collections.emptyMap();
+
+        List<String> literals = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        int start = 0;
+        int open;
+        while ((open = path.indexOf('{', start)) >= 0) {
+            int close = path.indexOf('}', open + 1);
+            if (close < 0) {
+                break;
+            }
+            literals.add(path.substring(start, open));
+            variables.add(path.substring(open + 1, close));
+            start = close + 1;
+        }
+        literals.add(path.substring(start));
+        this.literals = literals.toArray(new String[0]);
+        this.variables = variables.toArray(new String[0]);
+    }
+
+    /**
+     * 使用已经解析好的path模板和新的query创建模板
+     *
+     * @param pathTemplate
+     *            path模板
+     * @param template
+     *            完整的模板字符串
+     * @param query
+     *            模板中'?'之后的部分
+     */
+    private UrlTemplate(UrlTemplate pathTemplate, String template, String query) {
+        this.template = template;
+        this.path = pathTemplate.path;
+        this.literals = pathTemplate.literals;
+        this.variables = pathTemplate.variables;
+        this.queryParams = Collections.unmodifiableMap(parseQuery(query));
+    }
+
+    /**
+     * 编译URL模板，带变量的path只会编译一次，query部分每次单独解析；没有变量的URL不缓存，直接拼接好的URL每次都不一样，缓存只会
+     * 被一次性的URL占满
+     *
+     * @param template
+     *            URL模板
+     * @return 编译好的模板
+     */
+    public static UrlTemplate compile(String template) {
+        Assert.notNull(template, "url不能为null");
+        int index = template.indexOf('?');
+        String path = index > 0 ? template.substring(0, index) : template;
+        if (path.indexOf('{') < 0) {
+            return new UrlTemplate(template);
+        }
+
+        UrlTemplate pathTemplate = CACHE.get(path);
+        if (pathTemplate == null) {
+            pathTemplate = new UrlTemplate(path);
+            if (CACHE.size() < MAX_CACHE_SIZE) {
+                UrlTemplate previous = CACHE.putIfAbsent(path, pathTemplate);
+                pathTemplate = previous == null ? pathTemplate : previous;
+            }
+        }
+        return index > 0 ? new UrlTemplate(pathTemplate, template, template.substring(index + 1)) : pathTemplate;
+    }
+
+    /**
+     * 展开模板
+     *
+     * @param pathParams
+     *            path变量，没有对应值的变量将原样保留，可以为null
+     * @param queryParams
+     *            query参数，可以为null；注意模板自带的query参数不会自动添加，需要调用方合并到该参数中
+     * @return 展开后的URL
+     */
+    public String expand(Map<String, String> pathParams, Map<String, String> queryParams) {
+        StringBuilder sb = BUILDER.get();
+        sb.setLength(0);
+        appendTo(sb, pathParams, queryParams);
+        String url = sb.toString();
+        if (sb.capacity() > MAX_REUSE_CAPACITY) {
+            BUILDER.remove();
+        }
+        return url;
+    }
+
+    /**
+     * 展开模板到指定StringBuilder
+     *
+     * @param sb
+     *            StringBuilder
+     * @param pathParams
+     *            path变量，没有对应值的变量将原样保留，可以为null
+     * @param queryParams
+     *            query参数，可以为null
+     */
+    public void appendTo(StringBuilder sb, Map<String, String> pathParams, Map<String, String> queryParams) {
+        sb.append(literals[0]);
+        for (int i = 0; i < variables.length; i++) {
+            String value = pathParams == null ? null : pathParams.get(variables[i]);
+            if (value == null) {
+                sb.append('{').append(variables[i]).append('}');
+            } else {
+                encode(value, PATH_SAFE, sb);
+            }
+            sb.append(literals[i + 1]);
+        }
+
+        if (queryParams != null && !queryParams.isEmpty()) {
+            char separator = '?';
+            for (Map.Entry<String, String> entry : queryParams.entrySet()) {
+                sb.append(separator);
+                encode(entry.getKey(), QUERY_SAFE, sb);
+                sb.append('=');
+                if (entry.getValue() != null) {
+                    encode(entry.getValue(), QUERY_SAFE, sb);
+                }
+                separator = '&';
+            }
+        }
+    }
+
+    /**
+     * 按照path段的规则编码
+     *
+     * @param value
+     *            要编码的值
+     * @return 编码后的值
+     */
+    public static String encodePath(String value) {
+        return encode(value, PATH_SAFE);
+    }
+
+    /**
+     * 按照query参数的规则编码
+     *
+     * @param value
+     *            要编码的值
+     * @return 编码后的值
+     */
+    public static String encodeQuery(String value) {
+        return encode(value, QUERY_SAFE);
+    }
+
+    /**
+     * 模板字符串
+     *
+     * @return 模板字符串
+     */
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * 模板中'?'之前的部分
+     *
+     * @return 模板中'?'之前的部分
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * 模板中自带的query参数，已经解码，不可修改
+     *
+     * @return query参数
+     */
+    public Map<String, String> getQueryParams() {
+        return queryParams;
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+
+    private static String encode(String value, boolean[] safe) {
+        if (isSafe(value, safe)) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length() + 16);
+        appendEncoded(value, safe, sb);
+        return sb.toString();
+    }
+
+    private static boolean isSafe(String value, boolean[] safe) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 128 || !safe[c]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void encode(String value, boolean[] safe, StringBuilder sb) {
+        if (isSafe(value, safe)) {
+            sb.append(value);
+        } else {
+            appendEncoded(value, safe, sb);
+        }
+    }
+
+    private static void appendEncoded(String value, boolean[] safe, StringBuilder sb) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 128) {
+                if (safe[c]) {
+                    sb.append(c);
+                } else {
+                    appendByte(sb, c);
+                }
+            } else if (c < 0x800) {
+                appendByte(sb, 0xC0 | (c >> 6));
+                appendByte(sb, 0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                appendByte(sb, 0xF0 | (codePoint >> 18));
+                appendByte(sb, 0x80 | ((codePoint >> 12) & 0x3F));
+                appendByte(sb, 0x80 | ((codePoint >> 6) & 0x3F));
+                appendByte(sb, 0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // 不成对的代理字符与JDK的UTF-8编码器一样替换为'?'
+                appendByte(sb, '?');
+            } else {
+                appendByte(sb, 0xE0 | (c >> 12));
+                appendByte(sb, 0x80 | ((c >> 6) & 0x3F));
+                appendByte(sb, 0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private static void appendByte(StringBuilder sb, int b) {
+        sb.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+    }
+
+    /**
+     * 解析query，参数名和参数值都会解码
+     *
+     * @param query
+     *            query字符串，不包含'?'
+     * @return 参数
+     */
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new LinkedHashMap<>();
+        int start = 0;
+        while (start <= query.length()) {
+            int end = query.indexOf('&', start);
+            if (end < 0) {
+                end = query.length();
+            }
+            if (end > start) {
+                int eq = query.indexOf('=', start);
+                if (eq < 0 || eq > end) {
+                    params.put(decode(query, start, end), "");
+                } else {
+                    params.put(decode(query, start, eq), decode(query, eq + 1, end));
+                }
+            }
+            start = end + 1;
+        }
+        return params;
+    }
+
+    /**
+     * 百分号解码（UTF-8），'+'解码为空格，非法的百分号编码原样保留
+     */
+    private static String decode(String value, int start, int end) {
+        boolean plain = true;
+        for (int i = start; i < end && plain; i++) {
+            char c = value.charAt(i);
+            plain = c != '%' && c != '+';
+        }
+        if (plain) {
+            return value.substring(start, end);
+        }
+
+        StringBuilder sb = new StringBuilder(end - start);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            int high = c == '%' && i + 2 < end ? Character.digit(value.charAt(i + 1), 16) : -1;
+            int low = high < 0 ? -1 : Character.digit(value.charAt(i + 2), 16);
+            if (low >= 0) {
+                bytes.write(high << 4 | low);
+                i += 2;
+                continue;
+            }
+            if (bytes.size() > 0) {
+                sb.append(new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+                bytes.reset();
+            }
+            sb.append(c == '+' ? ' ' : c);
+        }
+        if (bytes.size() > 0) {
+            sb.append(new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+        }
+        return sb.toString();
+    }
+}
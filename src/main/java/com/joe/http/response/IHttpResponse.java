@@ -1,23 +1,24 @@
 package com.joe.http.response;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Type;
 import java.nio.charset.Charset;
-import java.nio.charset.UnsupportedCharsetException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import org.apache.http.Header;
-import org.apache.http.HeaderElement;
 import org.apache.http.HttpEntity;
-import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.HttpResponse;
+import org.apache.http.protocol.HTTP;
 import org.apache.http.util.EntityUtils;
 
-import com.joe.http.config.HeaderEnum;
+import com.joe.http.client.IHttpTiming;
 import com.joe.http.exception.NetException;
 import com.joe.http.exception.ServerException;
 import com.joe.utils.common.string.StringUtils;
@@ -41,15 +42,26 @@ public class IHttpResponse implements Closeable {
      */
     private static final JsonParser JSON_PARSER = JsonParser.getInstance();
 
+    /**
+     * 流式读取响应时默认的预读缓冲大小
+     */
+    public static final int DEFAULT_STREAM_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * 关闭响应时最多读取的剩余数据大小，剩余数据不超过该值时读取完毕，连接释放回连接池复用；超过该值时直接关闭连接，避免提前
+     * 关闭大响应或者无限流时阻塞
+     */
+    private static final int MAX_DRAIN_SIZE = 8 * 1024;
+
     /**
      * 请求状态
      */
     private int status;
 
     /**
-     * 请求响应
+     * 请求响应，同步请求时为CloseableHttpResponse，异步请求时为已经读取完body的HttpResponse
      */
-    private CloseableHttpResponse closeableHttpResponse;
+    private HttpResponse httpResponse;
 
     /**
      * 当前是否关闭
@@ -76,21 +88,30 @@ public class IHttpResponse implements Closeable {
      */
     private String charset;
 
-    public IHttpResponse(CloseableHttpResponse closeableHttpResponse) {
-        this.closeableHttpResponse = closeableHttpResponse;
-        this.status = closeableHttpResponse.getStatusLine().getStatusCode();
-        this.headers = Arrays.asList(closeableHttpResponse.getAllHeaders());
+    /**
+     * 请求各个阶段的耗时
+     */
+    private final IHttpTiming timing;
+
+    public IHttpResponse(HttpResponse httpResponse) {
+        this(httpResponse, null);
+    }
+
+    public IHttpResponse(HttpResponse httpResponse, IHttpTiming timing) {
+        this.httpResponse = httpResponse;
+        this.timing = timing;
+        this.status = httpResponse.getStatusLine().getStatusCode();
+        this.headers = Arrays.asList(httpResponse.getAllHeaders());
         // 从请求头中解析字符集
         for (Header header : headers) {
-            if (header.getName().equalsIgnoreCase(HeaderEnum.CONTENT_TYPE.getHeader())) {
-                HeaderElement element = header.getElements()[0];
-                String[] values = element.getValue().trim().split(";");
-                if (values.length >= 2) {
+            if (header.getName().equalsIgnoreCase(HTTP.CONTENT_TYPE)) {
+                String value = header.getValue();
+                String charsetName = parseCharset(value);
+                if (charsetName != null) {
                     try {
-                        this.charset = Charset.forName(values[1]).name();
-                    } catch (UnsupportedCharsetException e) {
-                        log.warn("服务器响应content_type为：[{}]，解析的编码字符集为：[{}]，该字符集不存在", element.getValue().trim(),
-                            values[1]);
+                        this.charset = Charset.forName(charsetName).name();
+                    } catch (IllegalArgumentException e) {
+                        log.warn("服务器响应content_type为：[{}]，解析的编码字符集为：[{}]，该字符集不存在", value, charsetName);
                     }
                 }
                 break;
@@ -98,6 +119,38 @@ public class IHttpResponse implements Closeable {
         }
     }
 
+    /**
+     * 从content-type中解析字符集，直接在字符串上查找，不需要解析整个请求头
+     *
+     * @param contentType
+     *            content-type
+     * @return 字符集，不存在时返回null
+     */
+    private static String parseCharset(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        int length = contentType.length();
+        for (int i = contentType.indexOf(';'); i >= 0 && i < length; i = contentType.indexOf(';', i + 1)) {
+            int start = i + 1;
+            while (start < length && contentType.charAt(start) == ' ') {
+                start++;
+            }
+            if (!contentType.regionMatches(true, start, "charset=", 0, 8)) {
+                continue;
+            }
+            start += 8;
+            int end = contentType.indexOf(';', start);
+            end = end < 0 ? length : end;
+            String charset = contentType.substring(start, end).trim();
+            if (charset.length() >= 2 && charset.charAt(0) == '"' && charset.charAt(charset.length() - 1) == '"') {
+                charset = charset.substring(1, charset.length() - 1);
+            }
+            return charset.isEmpty() ? null : charset;
+        }
+        return null;
+    }
+
     /**
      * 获取请求头
      *
@@ -109,7 +162,7 @@ public class IHttpResponse implements Closeable {
         if (name == null) {
             return Collections.emptyList();
         }
-        return headers.stream().filter(header -> name.equals(header.getName())).map(IHeader::new)
+        return headers.stream().filter(header -> name.equalsIgnoreCase(header.getName())).map(IHeader::new)
             .collect(Collectors.toList());
     }
 
@@ -171,7 +224,7 @@ public class IHttpResponse implements Closeable {
                 }
             }
 
-            HttpEntity entity = this.closeableHttpResponse.getEntity();
+            HttpEntity entity = this.httpResponse.getEntity();
             this.data = EntityUtils.toString(entity, charset);
 
             if (status >= 400) {
@@ -195,6 +248,76 @@ public class IHttpResponse implements Closeable {
         }
     }
 
+    /**
+     * 将结果直接从响应字节流解析为指定类型的对象（JSON，忽略未知字段），不会先转换为字符串，调用此方法后input流将会关闭
+     *
+     * @param type
+     *            结果类型
+     * @param <T>
+     *            结果实际类型
+     * @return 结果，响应为空时返回null
+     * @throws IOException
+     *             IO异常
+     */
+    public <T> T readResult(Class<T> type) throws IOException {
+        return readResult((Type)type);
+    }
+
+    /**
+     * 将结果直接从响应字节流解析为指定类型的对象（JSON，忽略未知字段），不会先转换为字符串，调用此方法后input流将会关闭
+     *
+     * @param type
+     *            结果类型，可以是泛型类型
+     * @param <T>
+     *            结果实际类型
+     * @return 结果，响应为空时返回null
+     * @throws IOException
+     *             IO异常
+     */
+    public <T> T readResult(Type type) throws IOException {
+        return readResult(type, null);
+    }
+
+    /**
+     * 将结果直接从响应字节流解析为指定类型的对象（JSON，忽略未知字段），不会先转换为字符串，调用此方法后input流将会关闭
+     *
+     * @param type
+     *            结果类型，可以是泛型类型
+     * @param defaultCharset
+     *            服务器没有响应字符集时使用的字符集，为空时自动检测（UTF-8/16/32）
+     * @param <T>
+     *            结果实际类型
+     * @return 结果，响应为空时返回null
+     * @throws IOException
+     *             IO异常
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T readResult(Type type, String defaultCharset) throws IOException {
+        if (this.closed) {
+            throw new NetException("响应已经关闭，无法读取");
+        }
+
+        if (status >= 400) {
+            // 错误响应走字符串解析，该方法将会抛出ServerException
+            getResult(defaultCharset, false);
+        }
+
+        try {
+            HttpEntity entity = this.httpResponse.getEntity();
+            if (entity == null) {
+                return null;
+            }
+
+            String charset = StringUtils.isEmpty(getCharset()) ? defaultCharset : getCharset();
+            try (InputStream inputStream = entity.getContent()) {
+                return (T)JsonResultReader.read(inputStream,
+                    StringUtils.isEmpty(charset) ? null : Charset.forName(charset), type);
+            }
+        } finally {
+            close();
+        }
+    }
+
     /**
      * 以流的形式获取响应
      * 
@@ -203,10 +326,44 @@ public class IHttpResponse implements Closeable {
      *             IOException
      */
     public InputStream getResultAsStream() throws IOException {
-        byte[] data = EntityUtils.toByteArray(this.closeableHttpResponse.getEntity());
+        byte[] data = EntityUtils.toByteArray(this.httpResponse.getEntity());
         return new ByteArrayInputStream(data);
     }
 
+    /**
+     * 以实时流的形式获取响应，与{@link #getResultAsStream()}不同，该方法不会将响应全部读取到内存，而是直接返回底层连接的
+     * 输入流，适合读取大响应；读取到流末尾或者关闭流时底层连接将会释放回连接池，所以使用完毕后必须关闭该流
+     *
+     * @return 响应流
+     * @throws IOException
+     *             IOException
+     */
+    public InputStream openStream() throws IOException {
+        return openStream(DEFAULT_STREAM_BUFFER_SIZE);
+    }
+
+    /**
+     * 以实时流的形式获取响应，读取到流末尾或者关闭流时底层连接将会释放回连接池，所以使用完毕后必须关闭该流
+     *
+     * @param bufferSize
+     *            预读缓冲大小，最多会从底层连接预读该大小的数据
+     * @return 响应流
+     * @throws IOException
+     *             IOException
+     */
+    public InputStream openStream(int bufferSize) throws IOException {
+        if (this.closed) {
+            throw new NetException("响应已经关闭，无法读取");
+        }
+
+        HttpEntity entity = this.httpResponse.getEntity();
+        if (entity == null) {
+            close();
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        return new ResponseInputStream(entity.getContent(), bufferSize);
+    }
+
     /**
      * 获取响应编码字符集
      * 
@@ -216,6 +373,15 @@ public class IHttpResponse implements Closeable {
         return charset;
     }
 
+    /**
+     * 获取请求各个阶段的耗时，body读取完毕或者响应关闭后才有body耗时和总耗时
+     *
+     * @return 耗时记录，没有开启耗时记录或者是异步请求时返回null
+     */
+    public IHttpTiming getTiming() {
+        return timing;
+    }
+
     /**
      * 获取响应HTTP状态
      *
@@ -232,10 +398,105 @@ public class IHttpResponse implements Closeable {
      *             IO异常
      */
     public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        HttpEntity entity = this.httpResponse.getEntity();
+        InputStream content = null;
+        if (entity != null && entity.isStreaming() && this.httpResponse instanceof Closeable) {
+            try {
+                content = entity.getContent();
+            } catch (IOException | RuntimeException e) {
+                log.debug("获取响应流失败，直接关闭连接", e);
+            }
+        }
+        close(content);
+    }
+
+    /**
+     * 关闭响应，剩余数据较少时读取完毕，连接释放回连接池复用，否则直接关闭连接
+     *
+     * @param content
+     *            响应流，为null时直接关闭
+     * @throws IOException
+     *             IO异常
+     */
+    private void close(InputStream content) throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        log.debug("关闭连接");
+        try {
+            if (content != null && drain(content)) {
+                // 已经读取到流末尾，连接已经释放，关闭流不会再读取数据
+                content.close();
+            }
+        } finally {
+            // 没有读取完时关闭响应将关闭连接而不是继续读取剩余数据
+            if (this.httpResponse instanceof Closeable) {
+                ((Closeable)this.httpResponse).close();
+            }
+        }
+    }
+
+    /**
+     * 读取剩余数据，最多读取{@link #MAX_DRAIN_SIZE}
+     *
+     * @param content
+     *            响应流
+     * @return 读取到流末尾时返回true
+     */
+    private static boolean drain(InputStream content) {
+        try {
+            // 大多数情况下body已经读取完毕，不需要分配缓冲
+            if (content.read() < 0) {
+                return true;
+            }
+            byte[] buffer = new byte[1024];
+            long total = 1;
+            int len;
+            while ((len = content.read(buffer)) >= 0) {
+                total += len;
+                if (total > MAX_DRAIN_SIZE) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            // 流已经关闭或者连接异常
+            return false;
+        }
+    }
+
+    /**
+     * 中止响应，与{@link #close()}不同，不会读取剩余数据而是直接关闭底层连接，适合放弃读取大响应的场景
+     *
+     * @throws IOException
+     *             IO异常
+     */
+    public void abort() throws IOException {
         if (!this.closed) {
-            log.debug("关闭连接");
-            this.closeableHttpResponse.close();
             this.closed = true;
+            if (this.httpResponse instanceof Closeable) {
+                ((Closeable)this.httpResponse).close();
+            }
+        }
+    }
+
+    /**
+     * 响应实时流，关闭时同时关闭响应
+     */
+    private final class ResponseInputStream extends BufferedInputStream {
+
+        ResponseInputStream(InputStream in, int size) {
+            super(in, size);
+        }
+
+        @Override
+        public void close() throws IOException {
+            // 不能直接关闭底层流，底层流关闭时会将剩余数据全部读取完毕
+            IHttpResponse.this.close(in);
         }
     }
 
@@ -0,0 +1,67 @@
+package com.joe.http.response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 流式JSON读取，直接从响应字节流解析出对象，不会先把响应转换为字符串
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 11:30 JoeKerouac Exp $
+ */
+final class JsonResultReader {
+
+    /**
+     * 流式解析专用的mapper，配置固定：忽略未知字段，其他使用jackson默认配置
+     */
+    private static final ObjectMapper MAPPER =
+        new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private JsonResultReader() {}
+
+    /**
+     * 从流中读取对象，读取完毕后不会关闭流
+     *
+     * @param in
+     *            输入流
+     * @param charset
+     *            流的字符集，为null时自动检测（UTF-8/16/32）
+     * @param type
+     *            对象类型
+     * @param <T>
+     *            对象实际类型
+     * @return 对象，流为空时返回null
+     * @throws IOException
+     *             IO异常
+     */
+    static <T> T read(InputStream in, Charset charset, Type type) throws IOException {
+        JavaType javaType = MAPPER.getTypeFactory().constructType(type);
+        // jackson只能自动识别unicode编码，其他编码需要通过reader解码（仍然是流式的）
+        JsonParser parser = charset == null || isUnicode(charset) ? MAPPER.getFactory().createParser(in)
+            : MAPPER.getFactory().createParser(new InputStreamReader(in, charset));
+        parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        try {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                return null;
+            }
+            return MAPPER.readValue(parser, javaType);
+        } finally {
+            parser.close();
+        }
+    }
+
+    private static boolean isUnicode(Charset charset) {
+        return charset.equals(StandardCharsets.UTF_8) || charset.name().startsWith("UTF-");
+    }
+}
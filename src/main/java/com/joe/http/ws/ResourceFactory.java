@@ -1,5 +1,6 @@
 package com.joe.http.ws;
 
+import com.joe.http.client.IHttpClient;
 import com.joe.http.ws.core.HTTPProxy;
 import com.joe.http.ws.core.ResourceType;
 import com.joe.http.ws.exception.NotResourceException;
@@ -23,6 +24,11 @@ public class ResourceFactory {
 
     private final ProxyClient client;
 
+    /**
+     * 所有resource代理共用的http客户端，为null时每个代理使用自己的客户端
+     */
+    private final IHttpClient httpClient;
+
     /**
      * 构造器
      * 
@@ -36,6 +42,27 @@ public class ResourceFactory {
         Assert.notNull(resourceType, "resourceType不能为null");
         this.baseUrl = baseUrl;
         this.resourceType = resourceType;
+        this.httpClient = null;
+        this.client = ProxyClient.getInstance(ProxyClient.ClientType.CGLIB);
+    }
+
+    /**
+     * 构造器
+     *
+     * @param baseUrl
+     *            基础URL，例如http://localhost:8080
+     * @param resourceType
+     *            代理的resource类型
+     * @param httpClient
+     *            所有resource代理共用的http客户端，客户端的关闭由调用方负责
+     */
+    public ResourceFactory(String baseUrl, ResourceType resourceType, IHttpClient httpClient) {
+        Assert.notNull(baseUrl, "baseUrl不能为null");
+        Assert.notNull(resourceType, "resourceType不能为null");
+        Assert.notNull(httpClient, "httpClient不能为null");
+        this.baseUrl = baseUrl;
+        this.resourceType = resourceType;
+        this.httpClient = httpClient;
         this.client = ProxyClient.getInstance(ProxyClient.ClientType.CGLIB);
     }
 
@@ -87,6 +114,8 @@ public class ResourceFactory {
      *             如果class对象不是一个resource那么抛出该异常
      */
     public <T> T build(Class<T> t, String requestCharset, String responseCharset) throws NotResourceException {
-        return client.create(t, new HTTPProxy(baseUrl, resourceType, responseCharset, requestCharset));
+        HTTPProxy proxy = httpClient == null ? new HTTPProxy(baseUrl, resourceType, responseCharset, requestCharset)
+            : new HTTPProxy(baseUrl, resourceType, responseCharset, requestCharset, httpClient);
+        return client.create(t, proxy);
     }
 }
@@ -7,12 +7,14 @@ import java.lang.reflect.Method;
 import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.joe.http.client.IHttpClient;
 import com.joe.http.exception.NetException;
 import com.joe.http.request.IHttpGet;
 import com.joe.http.request.IHttpPost;
 import com.joe.http.request.IHttpRequestBase;
+import com.joe.http.request.UrlTemplate;
 import com.joe.http.response.IHttpResponse;
 import com.joe.http.ws.exception.NotResourceException;
 import com.joe.http.ws.exception.WsException;
@@ -53,6 +55,11 @@ public class HTTPProxy implements Interception {
      */
     private Constructor<? extends ResourceAnalyze> constructor;
 
+    /**
+     * 每个资源方法的URL模板
+     */
+    private final Map<Method, UrlTemplate> templates = new ConcurrentHashMap<>();
+
     /**
      * http客户端
      */
@@ -81,8 +88,28 @@ public class HTTPProxy implements Interception {
      *            请求服务器使用的字符集，请求服务器时使用该字符集
      */
     public HTTPProxy(String baseUrl, ResourceType resourceType, String responseCharset, String requestCharset) {
+        this(baseUrl, resourceType, responseCharset, requestCharset, IHttpClient.builder().build());
+    }
+
+    /**
+     * 构造器
+     *
+     * @param baseUrl
+     *            服务器根URL
+     * @param resourceType
+     *            资源类型
+     * @param responseCharset
+     *            接收响应的默认编码集，如果响应指定的有编码集那么将优先使用服务器响应的编码集
+     * @param requestCharset
+     *            请求服务器使用的字符集，请求服务器时使用该字符集
+     * @param client
+     *            http客户端，多个代理可以共用同一个客户端（连接池）
+     */
+    public HTTPProxy(String baseUrl, ResourceType resourceType, String responseCharset, String requestCharset,
+        IHttpClient client) {
         Assert.notNull(baseUrl, "baseUrl不能为null");
         Assert.notNull(resourceType, "resourceType不能为null");
+        Assert.notNull(client, "client不能为null");
 
         try {
             this.constructor = resourceType.getResourceAnalyzeClass().getDeclaredConstructor(Class.class, Method.class,
@@ -93,7 +120,7 @@ public class HTTPProxy implements Interception {
         }
 
         this.baseUrl = baseUrl;
-        this.client = IHttpClient.builder().build();
+        this.client = client;
         this.responseCharset = StringUtils.isEmpty(responseCharset) ? Charset.defaultCharset().name() : responseCharset;
         this.requestCharset = StringUtils.isEmpty(requestCharset) ? Charset.defaultCharset().name() : requestCharset;
     }
@@ -106,18 +133,46 @@ public class HTTPProxy implements Interception {
             log.error("方法{}不是资源方法，不能调用", method);
             throw new NotResourceException(method);
         }
-        IHttpRequestBase request = build();
+        IHttpRequestBase request = build(method);
 
         log.debug("请求是：{}", request);
 
         IHttpResponse response = client.execute(request);
         log.debug("HTTP请求发送完成，HTTP请求状态码为：{}", response.getStatus());
+
+        if (isJsonResponse(method.getReturnType())) {
+            // JSON响应直接从字节流解析，不需要先转换为字符串
+            return response.readResult(method.getGenericReturnType(), responseCharset);
+        }
+
         String result = response.getResult(responseCharset, false);
 
         log.debug("HTTP请求结果为：{}", result);
         return parseResponse(result, method.getReturnType());
     }
 
+    /**
+     * 判断响应是否可以直接按照JSON从字节流解析
+     *
+     * @param returnType
+     *            响应类型
+     * @return 返回true表示响应是JSON并且需要解析为对象
+     */
+    private boolean isJsonResponse(Class<?> returnType) {
+        // 简单类型服务端可能直接返回文本，仍然走原有的解析逻辑
+        if (returnType.isPrimitive() || returnType == Void.class || returnType.isEnum()
+            || CharSequence.class.isAssignableFrom(returnType) || Number.class.isAssignableFrom(returnType)
+            || returnType == Boolean.class || returnType == Character.class) {
+            return false;
+        }
+        String[] responseContentTypes = analyze.getResponseContentTypes();
+        if (responseContentTypes == null || responseContentTypes.length == 0) {
+            return true;
+        }
+        return responseContentTypes.length == 1
+            && responseContentTypes[0].startsWith(IHttpRequestBase.CONTENT_TYPE_JSON);
+    }
+
     /**
      * 解析响应
      * 
@@ -151,23 +206,15 @@ public class HTTPProxy implements Interception {
     /**
      * 构建http请求
      * 
+     * @param resourceMethod
+     *            资源方法
      * @return http请求
      */
-    private IHttpRequestBase build() {
+    private IHttpRequestBase build(Method resourceMethod) {
+        ResourceAnalyze analyze = this.analyze;
         ResourceMethod method = analyze.getResourceMethod();
-        String prefix = analyze.pathPrefix();
-        String name = analyze.pathLast();
-        if (!prefix.startsWith("/")) {
-            prefix = "/" + prefix;
-        }
-        if (!prefix.endsWith("/")) {
-            prefix = prefix + "/";
-        }
-        if (name.startsWith("/")) {
-            name = name.replaceFirst("/", "");
-        }
-
-        String url = baseUrl + prefix + name;
+        // 同一个资源方法的URL是固定的，只需要拼接、编译一次
+        UrlTemplate url = templates.computeIfAbsent(resourceMethod, m -> UrlTemplate.compile(resolveUrl(analyze)));
         IHttpRequestBase.Builder<? extends IHttpRequestBase> requestBuilder;
 
         switch (method) {
@@ -242,4 +289,27 @@ public class HTTPProxy implements Interception {
 
         return requestBuilder.build();
     }
+
+    /**
+     * 拼接资源方法的URL
+     *
+     * @param analyze
+     *            资源分析
+     * @return 资源方法的URL
+     */
+    private String resolveUrl(ResourceAnalyze analyze) {
+        String prefix = analyze.pathPrefix();
+        String name = analyze.pathLast();
+        if (!prefix.startsWith("/")) {
+            prefix = "/" + prefix;
+        }
+        if (!prefix.endsWith("/")) {
+            prefix = prefix + "/";
+        }
+        if (name.startsWith("/")) {
+            name = name.replaceFirst("/", "");
+        }
+
+        return baseUrl + prefix + name;
+    }
 }
@@ -1,20 +1,85 @@
 package com.joe.http;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.joe.http.base.WebBaseTest;
 import com.joe.utils.collection.CollectionUtil;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.entity.StringAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.AsyncResponseBuilder;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.ListenerEndpoint;
+import org.apache.http.impl.cookie.BasicClientCookie;
+import org.apache.http.ssl.SSLContexts;
 import org.junit.Assert;
 import org.junit.Test;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.multipart.MultipartFile;
 
+import com.joe.http.client.ConcurrentCookieStore;
+import com.joe.http.client.IHttpBatchResult;
+import com.joe.http.client.IHttpCacheStats;
 import com.joe.http.client.IHttpClient;
+import com.joe.http.client.IHttpConcurrencyStats;
+import com.joe.http.client.IHttpConnectionPool;
+import com.joe.http.client.IHttpEvent;
+import com.joe.http.client.IHttpHedgeStats;
+import com.joe.http.client.IHttpPoolStats;
+import com.joe.http.client.IHttpRateLimitStats;
+import com.joe.http.client.IHttpSingleFlightStats;
+import com.joe.http.client.IHttpTiming;
+import com.joe.http.config.BatchOrder;
+import com.joe.http.config.HttpTransport;
+import com.joe.http.config.IHttpBatchConfig;
 import com.joe.http.config.IHttpClientConfig;
+import com.joe.http.exception.ConcurrencyLimitException;
+import com.joe.http.exception.NetException;
+import com.joe.http.exception.RateLimitException;
+import com.joe.http.metrics.MetricsSnapshot;
+import com.joe.http.metrics.RequestMetricsSnapshot;
 import com.joe.http.request.IHttpGet;
 import com.joe.http.request.IHttpPost;
 import com.joe.http.request.IHttpRequestBase;
+import com.joe.http.request.UrlTemplate;
 import com.joe.http.response.IHttpResponse;
 
 /**
@@ -39,6 +104,23 @@ public class IHttpClientTest extends WebBaseTest {
         });
     }
 
+    @Test
+    public void reuseRequest() {
+        runCase(() -> {
+            Exception expect = null;
+            // 同一个请求对象重复执行
+            IHttpGet get = IHttpGet.builder(url.get() + "hello").charset("utf8").build();
+            try {
+                for (int i = 0; i < 3; i++) {
+                    doRequest(clientHolder.get(), get, "hello");
+                }
+            } catch (Exception e) {
+                expect = e;
+            }
+            Assert.assertNull("请求异常", expect);
+        });
+    }
+
     @Test
     public void executePost() {
         runCase(() -> {
@@ -52,6 +134,706 @@ public class IHttpClientTest extends WebBaseTest {
         });
     }
 
+    @Test
+    public void executeGetAsync() {
+        runCase(() -> {
+            IHttpGet get = IHttpGet.builder(url.get() + "hello").charset("utf8").build();
+            try {
+                IHttpResponse response = clientHolder.get().executeAsync(get).get();
+                Assert.assertEquals("请求异常，请求状态码错误", 200, response.getStatus());
+                Assert.assertEquals("请求异常，预期结果与实际不符", "hello", response.getResult());
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            }
+        });
+    }
+
+    @Test
+    public void executeAll() {
+        runCase(() -> {
+            try {
+                List<IHttpRequestBase> requests = new ArrayList<>();
+                for (int i = 0; i < 10; i++) {
+                    requests.add(IHttpGet.builder(url.get() + "hello").build());
+                }
+                IHttpBatchConfig config = new IHttpBatchConfig();
+                config.setMaxConcurrency(3);
+                config.setOrder(BatchOrder.SUBMISSION);
+                int index = 0;
+                for (IHttpBatchResult result : clientHolder.get().executeAll(requests, config)) {
+                    Assert.assertEquals("结果顺序错误", index++, result.getIndex());
+                    Assert.assertTrue("请求异常", result.isSuccess());
+                    Assert.assertEquals("请求异常，预期结果与实际不符", "hello", result.getResponse().getResult());
+                }
+                Assert.assertEquals("结果数量错误", 10, index);
+
+                // 截止时间到达后，未完成和未提交的请求都以超时结束
+                requests.clear();
+                for (int i = 0; i < 4; i++) {
+                    requests.add(IHttpGet.builder(url.get() + "slow").build());
+                }
+                config = new IHttpBatchConfig();
+                config.setMaxConcurrency(2);
+                config.setDeadline(200);
+                List<IHttpBatchResult> results = clientHolder.get().executeAll(requests, config).await();
+                Assert.assertEquals("结果数量错误", 4, results.size());
+                for (IHttpBatchResult result : results) {
+                    Assert.assertTrue("截止时间没有生效", result.getError() instanceof TimeoutException);
+                }
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            }
+        });
+    }
+
+    @Test
+    public void executeGetAsStream() {
+        runCase(() -> {
+            IHttpGet get = IHttpGet.builder(url.get() + "hello").charset("utf8").build();
+            try (InputStream inputStream = clientHolder.get().execute(get).openStream()) {
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                byte[] buffer = new byte[16];
+                int len;
+                while ((len = inputStream.read(buffer)) > 0) {
+                    outputStream.write(buffer, 0, len);
+                }
+                Assert.assertEquals("请求异常，预期结果与实际不符", "hello", new String(outputStream.toByteArray()));
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            }
+        });
+    }
+
+    @Test
+    public void executePostBinary() {
+        runCase(() -> {
+            IHttpPost post = IHttpPost.builder(url.get() + "length").entity(new byte[1024]).build();
+            try {
+                doRequest(clientHolder.get(), post, "1024");
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            }
+        });
+    }
+
+    @Test
+    public void executeGetAsObject() {
+        runCase(() -> {
+            IHttpGet get = IHttpGet.builder(url.get() + "json").build();
+            try {
+                Map<?, ?> result = clientHolder.get().execute(get).readResult(Map.class);
+                Assert.assertEquals("请求异常，预期结果与实际不符", "joe", result.get("name"));
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            }
+        });
+    }
+
+    @Test
+    public void poolStats() {
+        runCase(() -> {
+            IHttpGet get = IHttpGet.builder(url.get() + "hello").build();
+            try {
+                doRequest(clientHolder.get(), get, "hello");
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            }
+            IHttpPoolStats stats = clientHolder.get().getPoolStats();
+            Assert.assertEquals("连接未释放", 0, stats.getLeased());
+            Assert.assertEquals("连接池统计异常", 1, stats.getRoutes().size());
+            Assert.assertTrue("等待耗时统计异常", stats.getLeaseWait().getCount() >= 1);
+        });
+    }
+
+    @Test
+    public void sharedConnectionPool() {
+        runCase(() -> {
+            IHttpClientConfig poolConfig = new IHttpClientConfig();
+            poolConfig.setMaxTotal(4);
+            try (IHttpConnectionPool pool = new IHttpConnectionPool(poolConfig)) {
+                IHttpClient first = IHttpClient.builder().connectionPool(pool).build();
+                IHttpClient second = IHttpClient.builder().connectionPool(pool).build();
+                doRequest(first, IHttpGet.builder(url.get() + "hello").client(first).build(), "hello");
+                doRequest(second, IHttpGet.builder(url.get() + "hello").client(second).build(), "hello");
+
+                // 两个client复用同一个连接
+                IHttpPoolStats stats = pool.getPoolStats();
+                Assert.assertEquals("连接没有复用", 1, stats.getAvailable());
+                Assert.assertEquals("连接池最大连接数错误", 4, stats.getMax());
+
+                // 关闭client不会关闭共享连接池
+                first.close();
+                doRequest(second, IHttpGet.builder(url.get() + "hello").client(second).build(), "hello");
+                second.close();
+
+                // client指定的sslcontext与共享连接池的不一致时不能创建
+                try {
+                    IHttpClient.builder().connectionPool(pool).sslcontext(SSLContexts.createDefault()).build();
+                    Assert.fail("sslcontext冲突没有检查");
+                } catch (NetException e) {
+                    // 预期异常
+                }
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            }
+        });
+    }
+
+    @Test
+    public void closeResponse() {
+        runCase(() -> {
+            try (IHttpClient client = IHttpClient.builder().build()) {
+                // 剩余数据较少时读取完毕，连接释放回连接池
+                client.execute(IHttpGet.builder(url.get() + "hello").client(client).build()).close();
+                Assert.assertEquals("连接没有释放回连接池", 1, client.getPoolStats().getAvailable());
+
+                // 剩余数据较多时直接关闭连接，不读取剩余数据
+                client.execute(IHttpGet.builder(url.get() + "large").client(client).build()).close();
+                Assert.assertEquals("连接未释放", 0, client.getPoolStats().getLeased());
+                Assert.assertEquals("连接没有关闭", 0, client.getPoolStats().getAvailable());
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            }
+        });
+    }
+
+    @Test
+    public void keepAliveEviction() {
+        runCase(() -> {
+            // 内置的web服务会覆盖Keep-Alive响应头，这里单独启动一个服务，指定1秒的保活时间并响应连接的客户端端口
+            HttpServer server;
+            try {
+                server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            server.createContext("/keepAlive", exchange -> {
+                byte[] body = String.valueOf(exchange.getRemoteAddress().getPort()).getBytes();
+                exchange.getResponseHeaders().add("Keep-Alive", "timeout=1");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+                exchange.close();
+            });
+            server.start();
+
+            IHttpClientConfig config = new IHttpClientConfig();
+            config.setEvictionInterval(100);
+            String keepAliveUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/keepAlive";
+            try (IHttpClient client = IHttpClient.builder().config(config).build()) {
+                String first = client.execute(IHttpGet.builder(keepAliveUrl).client(client).build()).getResult();
+                // 保活时间内复用连接
+                Assert.assertEquals("保活时间内连接没有复用", first,
+                    client.execute(IHttpGet.builder(keepAliveUrl).client(client).build()).getResult());
+                Assert.assertEquals("连接没有释放回连接池", 1, client.getPoolStats().getAvailable());
+
+                // 超过服务器指定的保活时间（小于maxIdleTime）后连接被后台清理，不会再复用
+                Thread.sleep(1500);
+                Assert.assertEquals("超过保活时间的连接没有清理", 0, client.getPoolStats().getAvailable());
+                Assert.assertNotEquals("超过保活时间的连接被复用", first,
+                    client.execute(IHttpGet.builder(keepAliveUrl).client(client).build()).getResult());
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            } finally {
+                server.stop(0);
+            }
+        });
+    }
+
+    @Test
+    public void responseCharset() {
+        runCase(() -> {
+            try {
+                // 带引号、不是第一个参数的charset都能解析
+                for (String contentType : Arrays.asList("text/plain;charset=GBK", "text/plain; charset=\"GBK\"",
+                    "text/plain; format=flowed; CHARSET=gbk")) {
+                    IHttpResponse response = clientHolder.get()
+                        .execute(IHttpGet.builder(url.get() + "charset").queryParam("contentType", contentType).build());
+                    Assert.assertEquals("响应字符集解析错误", "GBK", response.getCharset());
+                    Assert.assertEquals("响应字符集解码错误", "中文", response.getResult(null, false));
+                }
+
+                IHttpResponse response = clientHolder.get()
+                    .execute(IHttpGet.builder(url.get() + "charset").queryParam("contentType", "text/plain").build());
+                Assert.assertNull("没有charset时不应该解析出字符集", response.getCharset());
+                response.close();
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            }
+        });
+    }
+
+    @Test
+    public void maxPerRoute() {
+        runCase(() -> {
+            IHttpClientConfig config = new IHttpClientConfig();
+            config.getMaxPerRoute().put("127.0.0.1", 3);
+            try (IHttpClient client = IHttpClient.builder().config(config).build()) {
+                IHttpGet get = IHttpGet.builder(url.get() + "hello").client(client).build();
+                doRequest(client, get, "hello");
+                IHttpPoolStats.RouteStats stats = client.getPoolStats().getRoutes().values().iterator().next();
+                Assert.assertEquals("单独配置的最大连接数未生效", 3, stats.getMax());
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            }
+        });
+    }
+
+    @Test
+    public void timing() {
+        runCase(() -> {
+            List<IHttpEvent> events = Collections.synchronizedList(new ArrayList<>());
+            try (IHttpClient client = IHttpClient.builder().eventListener((event, timing) -> events.add(event)).build()) {
+                IHttpResponse response = client.execute(IHttpGet.builder(url.get() + "hello").client(client).build());
+                Assert.assertEquals("请求异常，预期结果与实际不符", "hello", response.getResult());
+                Assert.assertEquals("事件顺序错误",
+                    Arrays.asList(IHttpEvent.CALL_START, IHttpEvent.LEASE_START, IHttpEvent.LEASE_END,
+                        IHttpEvent.DNS_START, IHttpEvent.DNS_END, IHttpEvent.CONNECT_START, IHttpEvent.CONNECT_END,
+                        IHttpEvent.REQUEST_START, IHttpEvent.REQUEST_END, IHttpEvent.RESPONSE_HEADERS,
+                        IHttpEvent.RESPONSE_END),
+                    events);
+                IHttpTiming timing = response.getTiming();
+                Assert.assertFalse("第一次请求不应该复用连接", timing.isConnectionReused());
+                Assert.assertTrue("首字节耗时错误", timing.getTimeToFirstByteNanos() > 0);
+                Assert.assertTrue("总耗时错误", timing.getTotalNanos() >= timing.getTimeToFirstByteNanos());
+
+                // 第二次请求复用连接
+                response = client.execute(IHttpGet.builder(url.get() + "hello").client(client).build());
+                response.close();
+                Assert.assertTrue("第二次请求应该复用连接", response.getTiming().isConnectionReused());
+                Assert.assertEquals("复用连接时不应该有连接耗时", -1, response.getTiming().getConnectNanos());
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            }
+        });
+    }
+
+    @Test
+    public void metrics() {
+        runCase(() -> {
+            List<MetricsSnapshot> exported = new ArrayList<>();
+            try {
+                IHttpClient client =
+                    IHttpClient.builder().metricsExporter((id, snapshot) -> exported.add(snapshot)).build();
+                doRequest(client, IHttpGet.builder(url.get() + "hello").client(client).build(), "hello");
+                doRequest(client, IHttpGet.builder(url.get() + "hello").client(client).build(), "hello");
+                client.execute(IHttpGet.builder(url.get() + "notFound").client(client).build()).close();
+                try {
+                    client.execute(IHttpGet.builder("http://127.0.0.1:1/").client(client).build());
+                } catch (IOException e) {
+                    // 预期的连接异常
+                }
+
+                RequestMetricsSnapshot total = client.getMetrics().getTotal();
+                Assert.assertEquals("请求数错误", 4, total.getRequests());
+                Assert.assertEquals("错误数错误", 2, total.getErrors());
+                Assert.assertEquals("状态码统计错误", Long.valueOf(2), total.getStatuses().get(200));
+                Assert.assertEquals("状态码统计错误", Long.valueOf(1), total.getStatuses().get(404));
+                Assert.assertEquals("异常统计错误", 1, total.getExceptions().size());
+                Assert.assertEquals("耗时统计错误", 4, total.getLatency().getCount());
+
+                RequestMetricsSnapshot route = client.getMetrics().getRoutes().get("http://127.0.0.1:" + getPort());
+                Assert.assertEquals("route请求数错误", 3, route.getRequests());
+                Assert.assertTrue("发送字节数错误", route.getBytesOut() > 0);
+                Assert.assertTrue("接收字节数错误", route.getBytesIn() > 0);
+
+                client.close();
+                Assert.assertEquals("关闭时没有导出统计", 1, exported.size());
+                Assert.assertEquals("导出的统计错误", 4, exported.get(0).getTotal().getRequests());
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            }
+        });
+    }
+
+    @Test
+    public void hostOverrides() {
+        runCase(() -> {
+            IHttpClientConfig config = new IHttpClientConfig();
+            config.getHostOverrides().put("joe.test", Collections.singletonList("127.0.0.1"));
+            try (IHttpClient client = IHttpClient.builder().config(config).build()) {
+                String overrideUrl = url.get().replace("127.0.0.1", "joe.test");
+                doRequest(client, IHttpGet.builder(overrideUrl + "hello").client(client).build(), "hello");
+                doRequest(client, IHttpGet.builder(url.get() + "hello").client(client).build(), "hello");
+                Assert.assertNotNull("DNS缓存未开启", client.getDnsStats());
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            }
+        });
+    }
+
+    @Test
+    public void responseCache() {
+        runCase(() -> {
+            File dir = null;
+            try {
+                dir = Files.createTempDirectory("ihttp-cache").toFile();
+                IHttpClientConfig config = new IHttpClientConfig();
+                config.setResponseCacheEnabled(true);
+                config.setCacheMemoryThreshold(1024);
+                config.setCacheDiskDirectory(dir.getAbsolutePath());
+                config.setCacheDiskSegmentSize(4 * 1024 * 1024);
+                try (IHttpClient client = IHttpClient.builder().config(config).build()) {
+                    // 第二次直接命中缓存
+                    doRequest(client, IHttpGet.builder(url.get() + "cache").client(client).build(), "cache");
+                    doRequest(client, IHttpGet.builder(url.get() + "cache").client(client).build(), "cache");
+                    IHttpCacheStats stats = client.getCacheStats();
+                    Assert.assertEquals("缓存命中次数错误", 1, stats.getHits());
+                    Assert.assertEquals("缓存未命中次数错误", 1, stats.getMisses());
+
+                    // 第二次向服务器校验
+                    doRequest(client, IHttpGet.builder(url.get() + "revalidate").client(client).build(), "revalidate");
+                    doRequest(client, IHttpGet.builder(url.get() + "revalidate").client(client).build(), "revalidate");
+                    Assert.assertEquals("缓存校验次数错误", 1, client.getCacheStats().getValidated());
+
+                    // 大响应存放在磁盘缓存中
+                    String large = SpringApi.largeBody();
+                    doRequest(client, IHttpGet.builder(url.get() + "large").client(client).build(), large);
+                    doRequest(client, IHttpGet.builder(url.get() + "large").client(client).build(), large);
+                    Assert.assertEquals("缓存命中次数错误", 2, client.getCacheStats().getHits());
+                    Assert.assertEquals("缓存命中率错误", 0.5, client.getCacheStats().getHitRatio(), 0.001);
+                }
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            } finally {
+                if (dir != null) {
+                    Assert.assertEquals("磁盘缓存文件未删除", 0, dir.list().length);
+                    dir.delete();
+                }
+            }
+        });
+    }
+
+    @Test
+    public void singleFlight() {
+        runCase(() -> {
+            IHttpClientConfig config = new IHttpClientConfig();
+            config.setSingleFlightEnabled(true);
+            config.setSingleFlightIgnoredHeaders(Collections.singletonList("X-Request-Id"));
+            try (IHttpClient client = IHttpClient.builder().config(config).build()) {
+                List<CompletableFuture<String>> futures = new ArrayList<>();
+                for (int i = 0; i < 10; i++) {
+                    futures.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return client.execute(IHttpGet.builder(url.get() + "slow").client(client).build())
+                                .getResult();
+                        } catch (Exception e) {
+                            throw new RuntimeException(e);
+                        }
+                    }));
+                }
+                for (CompletableFuture<String> future : futures) {
+                    Assert.assertEquals("请求异常，预期结果与实际不符", "slow", future.get());
+                }
+                IHttpSingleFlightStats stats = client.getSingleFlightStats();
+                Assert.assertEquals("请求数错误", 10, stats.getExecutions() + stats.getCollapsed());
+                Assert.assertTrue("请求没有合并", stats.getCollapsed() > 0);
+
+                // 凭证不同的请求不能合并，每个请求都必须拿到自己的响应
+                futures.clear();
+                for (int i = 0; i < 10; i++) {
+                    String token = "token" + (i % 2);
+                    futures.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return client.execute(IHttpGet.builder(url.get() + "slowAuth").client(client)
+                                .header("Authorization", token).build()).getResult();
+                        } catch (Exception e) {
+                            throw new RuntimeException(e);
+                        }
+                    }));
+                }
+                for (int i = 0; i < futures.size(); i++) {
+                    Assert.assertEquals("不同凭证的请求被合并", "token" + (i % 2), futures.get(i).get());
+                }
+
+                // 忽略的请求头不同的请求仍然可以合并
+                long collapsed = client.getSingleFlightStats().getCollapsed();
+                futures.clear();
+                for (int i = 0; i < 10; i++) {
+                    String requestId = String.valueOf(i);
+                    futures.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return client.execute(IHttpGet.builder(url.get() + "slowAuth").client(client)
+                                .header("Authorization", "token").header("x-request-id", requestId).build())
+                                .getResult();
+                        } catch (Exception e) {
+                            throw new RuntimeException(e);
+                        }
+                    }));
+                }
+                for (CompletableFuture<String> future : futures) {
+                    Assert.assertEquals("请求异常，预期结果与实际不符", "token", future.get());
+                }
+                Assert.assertTrue("忽略的请求头不同的请求没有合并", client.getSingleFlightStats().getCollapsed() > collapsed);
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            }
+        });
+    }
+
+    @Test
+    public void hedge() {
+        runCase(() -> {
+            IHttpClientConfig config = new IHttpClientConfig();
+            config.setHedgeDelay(100);
+            try (IHttpClient client = IHttpClient.builder().config(config).build()) {
+                // 第一个请求很慢，对冲请求很快
+                SpringApi.HEDGE_COUNTER.set(0);
+                long start = System.currentTimeMillis();
+                doRequest(client, IHttpGet.builder(url.get() + "hedge").client(client).build(), "hedge");
+                Assert.assertTrue("对冲请求没有生效", System.currentTimeMillis() - start < 2000);
+                IHttpHedgeStats stats = client.getHedgeStats();
+                Assert.assertEquals("对冲请求数错误", 1, stats.getSent());
+                Assert.assertEquals("对冲请求被跳过", 0, stats.getSkipped());
+                Assert.assertEquals("对冲请求胜出数错误", 1, stats.getWon());
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            }
+        });
+    }
+
+    @Test
+    public void concurrencyLimit() {
+        runCase(() -> {
+            IHttpClientConfig config = new IHttpClientConfig();
+            config.setConcurrencyLimitEnabled(true);
+            config.setConcurrencyInitialLimit(2);
+            config.setConcurrencyMaxLimit(2);
+            try (IHttpClient client = IHttpClient.builder().config(config).build()) {
+                List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+                for (int i = 0; i < 6; i++) {
+                    futures.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            client.execute(IHttpGet.builder(url.get() + "slow").client(client).build()).getResult();
+                            return true;
+                        } catch (ConcurrencyLimitException e) {
+                            return false;
+                        } catch (Exception e) {
+                            throw new RuntimeException(e);
+                        }
+                    }));
+                }
+                int rejected = 0;
+                for (CompletableFuture<Boolean> future : futures) {
+                    rejected += future.get() ? 0 : 1;
+                }
+                IHttpConcurrencyStats.HostStats stats =
+                    client.getConcurrencyStats().getHosts().values().iterator().next();
+                Assert.assertTrue("请求没有被拒绝", rejected > 0);
+                Assert.assertEquals("拒绝数错误", rejected, stats.getRejected());
+                Assert.assertEquals("并发数错误", 0, stats.getInFlight());
+
+                // 响应body读取完毕或者关闭之前一直占用许可
+                IHttpResponse response = client.execute(IHttpGet.builder(url.get() + "large").client(client).build());
+                stats = client.getConcurrencyStats().getHosts().values().iterator().next();
+                Assert.assertEquals("读取body时许可被释放", 1, stats.getInFlight());
+                response.close();
+                stats = client.getConcurrencyStats().getHosts().values().iterator().next();
+                Assert.assertEquals("响应关闭后许可没有释放", 0, stats.getInFlight());
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            }
+        });
+    }
+
+    @Test
+    public void rateLimit() {
+        runCase(() -> {
+            IHttpClientConfig config = new IHttpClientConfig();
+            config.setRateLimitEnabled(true);
+            config.setRateLimitPermitsPerSecond(10);
+            config.setRateLimitBurst(2);
+            try (IHttpClient client = IHttpClient.builder().config(config).build()) {
+                // 突发的2个请求直接通过，第3个请求令牌不足并且不等待，直接拒绝
+                doRequest(client, IHttpGet.builder(url.get() + "hello").client(client).build(), "hello");
+                doRequest(client, IHttpGet.builder(url.get() + "hello").client(client).build(), "hello");
+                try {
+                    client.execute(IHttpGet.builder(url.get() + "hello").client(client).build());
+                    Assert.fail("请求没有被限速");
+                } catch (RateLimitException e) {
+                    // 预期的限速异常
+                }
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            }
+
+            // 令牌不足时等待
+            config.setRateLimitTimeout(1000);
+            try (IHttpClient client = IHttpClient.builder().config(config).build()) {
+                long start = System.nanoTime();
+                for (int i = 0; i < 4; i++) {
+                    doRequest(client, IHttpGet.builder(url.get() + "hello").client(client).build(), "hello");
+                }
+                Assert.assertTrue("限速没有生效", System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(190));
+                IHttpRateLimitStats.HostStats stats = client.getRateLimitStats().getHosts().values().iterator().next();
+                Assert.assertEquals("直接通过的请求数错误", 2, stats.getAcquired());
+                Assert.assertEquals("等待的请求数错误", 2, stats.getThrottled());
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            }
+        });
+    }
+
+    @Test
+    public void multipart() {
+        runCase(() -> {
+            File file = null;
+            try {
+                file = File.createTempFile("ihttp-multipart", ".txt");
+                byte[] data = new byte[1024 * 1024];
+                Files.write(file.toPath(), data);
+                IHttpPost post = IHttpPost.builder(url.get() + "multipart").part("name", "joe")
+                    .part("file", file, "a.txt", "text/plain")
+                    .part("stream", new ByteArrayInputStream(new byte[100]), -1, "b.bin", null)
+                    .client(clientHolder.get()).build();
+                doRequest(clientHolder.get(), post, "joe|a.txt|1048576|b.bin|100");
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            } finally {
+                if (file != null) {
+                    file.delete();
+                }
+            }
+        });
+    }
+
+    @Test
+    public void compression() {
+        runCase(() -> {
+            IHttpClientConfig config = new IHttpClientConfig();
+            config.setRequestCompressionThreshold(16);
+            try (IHttpClient client = IHttpClient.builder().config(config).build()) {
+                // 超过阈值的请求body压缩发送
+                StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < 100; i++) {
+                    sb.append("joe");
+                }
+                IHttpPost post = IHttpPost.builder(url.get() + "encoding").entity(sb.toString()).client(client).build();
+                doRequest(client, post, "gzip,deflate|gzip");
+
+                // 压缩的响应自动解压
+                doRequest(client, IHttpGet.builder(url.get() + "gzip").client(client).build(), "gzip");
+                IHttpResponse response =
+                    client.executeAsync(IHttpGet.builder(url.get() + "gzip").client(client).build()).get();
+                Assert.assertEquals("请求异常，预期结果与实际不符", "gzip", response.getResult());
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            }
+        });
+    }
+
+    @Test
+    public void cookieStore() {
+        runCase(() -> {
+            ConcurrentCookieStore store = new ConcurrentCookieStore();
+            BasicClientCookie session = new BasicClientCookie("session", "1");
+            session.setDomain(".example.com");
+            session.setPath("/");
+            store.addCookie(session);
+            BasicClientCookie other = new BasicClientCookie("token", "2");
+            other.setDomain("api.other.com");
+            store.addCookie(other);
+            BasicClientCookie expired = new BasicClientCookie("old", "3");
+            expired.setDomain("example.com");
+            expired.setExpiryDate(new Date(System.currentTimeMillis() + 50));
+            store.addCookie(expired);
+
+            // 相同标识的cookie替换旧值
+            BasicClientCookie replace = new BasicClientCookie("session", "4");
+            replace.setDomain("EXAMPLE.com");
+            replace.setPath("/");
+            store.addCookie(replace);
+            Assert.assertEquals("cookie数量错误", 3, store.size());
+            Assert.assertEquals("cookie值错误", "4", store.getCookie("session").getValue());
+            Assert.assertNull("cookie不应该存在", store.getCookie("none"));
+            Assert.assertEquals("domain索引错误", 2, store.getCookies("www.example.com").size());
+            Assert.assertEquals("domain索引错误", 1, store.getCookies("api.other.com").size());
+            Assert.assertEquals("domain索引错误", 0, store.getCookies("other.com").size());
+
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Assert.assertTrue("过期cookie没有清理", store.clearExpired(new Date()));
+            Assert.assertNull("过期cookie没有清理", store.getCookie("old"));
+            Assert.assertEquals("cookie数量错误", 2, store.getCookies().size());
+
+            try (IHttpClient client = IHttpClient.builder().build()) {
+                Assert.assertTrue("默认CookieStore错误", client.getCookieManager() instanceof ConcurrentCookieStore);
+                client.addCookie(session);
+                Assert.assertEquals("cookie值错误", "1", client.getCookie("session").getValue());
+            } catch (IOException e) {
+                Assert.assertNull("请求异常", e);
+            }
+        });
+    }
+
+    @Test
+    public void urlTemplate() {
+        runCase(() -> {
+            UrlTemplate template = UrlTemplate.compile("http://127.0.0.1/user/{id}?q=a+b%20c&e");
+            Assert.assertSame("模板没有缓存", UrlTemplate.compile("http://127.0.0.1/user/{id}"),
+                UrlTemplate.compile("http://127.0.0.1/user/{id}"));
+            Assert.assertEquals("query解析错误", "a b c", template.getQueryParams().get("q"));
+
+            IHttpGet get = IHttpGet.builder(template).pathVariable("id", "a/b 中").queryParam("x&y", "1=2+3").build();
+            Assert.assertEquals("URL编码错误", "http://127.0.0.1/user/a%2Fb%20%E4%B8%AD?q=a%20b%20c&e=&x%26y=1%3D2%2B3",
+                get.buildUrl());
+            Assert.assertEquals("URL错误", "http://127.0.0.1/user/a%2Fb%20%E4%B8%AD", get.getUrl());
+            Assert.assertSame("模板错误", template, get.getTemplate());
+
+            // getter返回的map可以修改，修改后生效
+            get.getQueryParams().remove("e");
+            get.getPathParams().put("id", "b");
+            get.getHeaders().put("X-Test", "1");
+            Assert.assertEquals("URL错误", "http://127.0.0.1/user/b?q=a%20b%20c&x%26y=1%3D2%2B3", get.buildUrl());
+            Assert.assertEquals("请求头错误", "1", get.getHeaders().get("X-Test"));
+        });
+    }
+
+    @Test
+    public void http2() {
+        runCase(() -> {
+            // 内置的web服务不支持h2c，这里单独启动一个只支持HTTP/2的服务，响应请求的协议版本、方法和body
+            HttpAsyncServer server = H2ServerBootstrap.bootstrap().setVersionPolicy(HttpVersionPolicy.FORCE_HTTP_2)
+                .register("*", new AsyncServerRequestHandler<Message<HttpRequest, String>>() {
+                    @Override
+                    public AsyncRequestConsumer<Message<HttpRequest, String>> prepare(HttpRequest request,
+                        EntityDetails entityDetails, HttpContext context) {
+                        return new BasicRequestConsumer<>(
+                            entityDetails == null ? null : new StringAsyncEntityConsumer());
+                    }
+
+                    @Override
+                    public void handle(Message<HttpRequest, String> message, ResponseTrigger trigger,
+                        HttpContext context) throws HttpException, IOException {
+                        String result = context.getProtocolVersion() + "|" + message.getHead().getMethod() + "|"
+                            + message.getBody();
+                        trigger.submitResponse(
+                            AsyncResponseBuilder.create(200).setEntity(result, ContentType.TEXT_PLAIN).build(),
+                            context);
+                    }
+                }).create();
+            server.start();
+            IHttpClientConfig config = new IHttpClientConfig();
+            config.setTransport(HttpTransport.HTTP_2);
+            try (IHttpClient client = IHttpClient.builder().config(config).build()) {
+                ListenerEndpoint endpoint = server.listen(new InetSocketAddress("127.0.0.1", 0)).get();
+                String h2url =
+                    "http://127.0.0.1:" + ((InetSocketAddress)endpoint.getAddress()).getPort() + "/http2";
+                doRequest(client, IHttpGet.builder(h2url).client(client).build(), "HTTP/2.0|GET|null");
+                doRequest(client, IHttpPost.builder(h2url).entity("joe").client(client).build(),
+                    "HTTP/2.0|POST|joe");
+                IHttpResponse response = client.executeAsync(IHttpGet.builder(h2url).client(client).build()).get();
+                Assert.assertEquals("请求异常，预期结果与实际不符", "HTTP/2.0|GET|null", response.getResult());
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            } finally {
+                server.close(CloseMode.IMMEDIATE);
+            }
+        });
+    }
+
     private void doRequest(IHttpClient client, IHttpRequestBase request, String result) throws Exception {
         IHttpResponse response = client.execute(request);
         String realResult = response.getResult();
@@ -90,6 +872,8 @@ public class IHttpClientTest extends WebBaseTest {
     @Controller
     @RequestMapping("test")
     public static class SpringApi {
+        private static final AtomicInteger HEDGE_COUNTER = new AtomicInteger();
+
         @RequestMapping(value = "helloName")
         @ResponseBody
         public String helloName(String name) {
@@ -101,5 +885,103 @@ public class IHttpClientTest extends WebBaseTest {
         public String hello() {
             return "hello";
         }
+
+        @RequestMapping(value = "json")
+        @ResponseBody
+        public Map<String, Object> json() {
+            return Collections.singletonMap("name", "joe");
+        }
+
+        @RequestMapping(value = "cache")
+        @ResponseBody
+        public ResponseEntity<String> cache() {
+            return ResponseEntity.ok().cacheControl(CacheControl.maxAge(60, TimeUnit.SECONDS)).eTag("\"v1\"")
+                .body("cache");
+        }
+
+        @RequestMapping(value = "revalidate")
+        @ResponseBody
+        public ResponseEntity<String> revalidate(@RequestHeader(value = "If-None-Match", required = false) String tag) {
+            if ("\"v1\"".equals(tag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag("\"v1\"").build();
+            }
+            return ResponseEntity.ok().cacheControl(CacheControl.maxAge(0, TimeUnit.SECONDS).mustRevalidate())
+                .eTag("\"v1\"").body("revalidate");
+        }
+
+        @RequestMapping(value = "large")
+        @ResponseBody
+        public ResponseEntity<String> large() {
+            return ResponseEntity.ok().cacheControl(CacheControl.maxAge(60, TimeUnit.SECONDS)).body(largeBody());
+        }
+
+        static String largeBody() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 20000; i++) {
+                sb.append(i % 10);
+            }
+            return sb.toString();
+        }
+
+        @RequestMapping(value = "slow")
+        @ResponseBody
+        public String slow() throws InterruptedException {
+            Thread.sleep(500);
+            return "slow";
+        }
+
+        @RequestMapping(value = "slowAuth")
+        @ResponseBody
+        public String slowAuth(@RequestHeader("Authorization") String authorization) throws InterruptedException {
+            Thread.sleep(500);
+            return authorization;
+        }
+
+        @RequestMapping(value = "hedge")
+        @ResponseBody
+        public String hedge() throws InterruptedException {
+            if (HEDGE_COUNTER.getAndIncrement() == 0) {
+                Thread.sleep(3000);
+            }
+            return "hedge";
+        }
+
+        @RequestMapping(value = "charset")
+        @ResponseBody
+        public ResponseEntity<byte[]> charset(@RequestParam("contentType") String contentType) {
+            return ResponseEntity.ok().header(HttpHeaders.CONTENT_TYPE, contentType)
+                .body("中文".getBytes(Charset.forName("GBK")));
+        }
+
+        @RequestMapping(value = "encoding")
+        @ResponseBody
+        public String encoding(@RequestHeader(value = "Accept-Encoding", required = false) String acceptEncoding,
+            @RequestHeader(value = "Content-Encoding", required = false) String contentEncoding) {
+            return acceptEncoding + "|" + contentEncoding;
+        }
+
+        @RequestMapping(value = "gzip")
+        @ResponseBody
+        public ResponseEntity<byte[]> gzip() throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write("gzip".getBytes());
+            }
+            return ResponseEntity.ok().header(HttpHeaders.CONTENT_ENCODING, "gzip").body(out.toByteArray());
+        }
+
+        @RequestMapping(value = "multipart")
+        @ResponseBody
+        public String multipart(@RequestParam("name") String name, @RequestParam("file") MultipartFile file,
+            @RequestParam("stream") MultipartFile stream) {
+            return name + "|" + file.getOriginalFilename() + "|" + file.getSize() + "|" + stream.getOriginalFilename()
+                + "|" + stream.getSize();
+        }
+
+        @RequestMapping(value = "length")
+        @ResponseBody
+        public String length(@RequestBody byte[] data) {
+            return String.valueOf(data.length);
+        }
     }
 }
@@ -1,12 +1,27 @@
 package com.joe.http;
 
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
 import com.joe.http.base.WebBaseTest;
 import org.junit.Assert;
 import org.junit.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import com.joe.http.client.RangeDownloader;
+import com.joe.http.exception.NetException;
 import com.joe.http.request.IHttpRequestBase;
 import com.joe.utils.collection.CollectionUtil;
 
@@ -15,6 +30,19 @@ import com.joe.utils.collection.CollectionUtil;
  * @version 2018.04.28 15:48
  */
 public class IHttpClientUtilTest extends WebBaseTest {
+    private static final byte[] DOWNLOAD_DATA = new byte[3 * 1024 * 1024 + 123];
+
+    private static final long DOWNLOAD_LAST_MODIFIED = System.currentTimeMillis();
+
+    /**
+     * rangeDownload接口返回的body字节数
+     */
+    private static final AtomicLong RANGE_SERVED = new AtomicLong();
+
+    static {
+        new Random(1).nextBytes(DOWNLOAD_DATA);
+    }
+
     private ThreadLocal<IHttpClientUtil> clientHolder = new ThreadLocal<>();
     private ThreadLocal<String> url = new ThreadLocal<>();
 
@@ -30,6 +58,18 @@ public class IHttpClientUtilTest extends WebBaseTest {
         });
     }
 
+    @Test
+    public void executeGetAsync() {
+        runCase(() -> {
+            try {
+                String result = clientHolder.get().executeGetAsync(url.get() + "hello").get();
+                Assert.assertEquals("hello", result);
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            }
+        });
+    }
+
     @Test
     public void executePost() {
         runCase(() -> {
@@ -43,6 +83,107 @@ public class IHttpClientUtilTest extends WebBaseTest {
         });
     }
 
+    @Test
+    public void download() {
+        runCase(() -> {
+            File file = null;
+            try {
+                file = File.createTempFile("ihttp-download", ".bin");
+                Assert.assertEquals(DOWNLOAD_DATA.length, clientHolder.get().download(url.get() + "download", file));
+                Assert.assertArrayEquals(DOWNLOAD_DATA, Files.readAllBytes(file.toPath()));
+                Assert.assertFalse(new File(file.getPath() + RangeDownloader.PROGRESS_SUFFIX).exists());
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            } finally {
+                if (file != null) {
+                    file.delete();
+                }
+            }
+        });
+    }
+
+    @Test
+    public void downloadResume() {
+        runCase(() -> {
+            File file = null;
+            try {
+                file = File.createTempFile("ihttp-download", ".bin");
+                File progressFile = new File(file.getPath() + RangeDownloader.PROGRESS_SUFFIX);
+                // 第二段失败，下载中断后保留进度文件
+                try {
+                    clientHolder.get().download(url.get() + "rangeDownload?mode=fail", file);
+                    Assert.fail("分段失败时下载没有失败");
+                } catch (NetException e) {
+                    Assert.assertTrue("下载中断后进度文件不存在", progressFile.exists());
+                }
+
+                // 从进度文件继续下载，第一段已经下载的部分不会重新下载
+                RANGE_SERVED.set(0);
+                Assert.assertEquals(DOWNLOAD_DATA.length,
+                    clientHolder.get().download(url.get() + "rangeDownload", file));
+                Assert.assertArrayEquals(DOWNLOAD_DATA, Files.readAllBytes(file.toPath()));
+                Assert.assertTrue("没有从进度文件继续下载", RANGE_SERVED.get() < DOWNLOAD_DATA.length);
+                Assert.assertFalse(progressFile.exists());
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            } finally {
+                if (file != null) {
+                    new File(file.getPath() + RangeDownloader.PROGRESS_SUFFIX).delete();
+                    file.delete();
+                }
+            }
+        });
+    }
+
+    @Test
+    public void downloadFallback() {
+        runCase(() -> {
+            File file = null;
+            try {
+                file = File.createTempFile("ihttp-download", ".bin");
+                File progressFile = new File(file.getPath() + RangeDownloader.PROGRESS_SUFFIX);
+                Files.write(progressFile.toPath(), new byte[] {1, 2, 3});
+                // 服务端不支持范围请求，返回200时退化为顺序下载，旧的进度文件被删除
+                Assert.assertEquals(DOWNLOAD_DATA.length,
+                    clientHolder.get().download(url.get() + "rangeDownload?mode=full", file));
+                Assert.assertArrayEquals(DOWNLOAD_DATA, Files.readAllBytes(file.toPath()));
+                Assert.assertFalse(progressFile.exists());
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            } finally {
+                if (file != null) {
+                    new File(file.getPath() + RangeDownloader.PROGRESS_SUFFIX).delete();
+                    file.delete();
+                }
+            }
+        });
+    }
+
+    @Test
+    public void downloadValidatorChanged() {
+        runCase(() -> {
+            File file = null;
+            try {
+                file = File.createTempFile("ihttp-download", ".bin");
+                File progressFile = new File(file.getPath() + RangeDownloader.PROGRESS_SUFFIX);
+                // 探测之后资源发生了变化，If-Range校验失败，服务端返回200，下载失败并删除进度文件
+                try {
+                    clientHolder.get().download(url.get() + "rangeDownload?mode=change", file);
+                    Assert.fail("资源变化后下载没有失败");
+                } catch (NetException e) {
+                    Assert.assertFalse("资源变化后进度文件没有删除", progressFile.exists());
+                }
+            } catch (Exception e) {
+                Assert.assertNull("请求异常", e);
+            } finally {
+                if (file != null) {
+                    new File(file.getPath() + RangeDownloader.PROGRESS_SUFFIX).delete();
+                    file.delete();
+                }
+            }
+        });
+    }
+
     @Override
     protected void init() {
         super.init();
@@ -71,6 +212,45 @@ public class IHttpClientUtilTest extends WebBaseTest {
             return "hello : " + name;
         }
 
+        @RequestMapping(value = "download")
+        public ResponseEntity<Resource> download() {
+            return ResponseEntity.ok().lastModified(DOWNLOAD_LAST_MODIFIED)
+                .body(new ByteArrayResource(DOWNLOAD_DATA));
+        }
+
+        /**
+         * 手动处理范围请求，mode为full时不支持范围请求；为fail时第二段之后的范围请求失败；为change时探测之后资源的ETag发生变化
+         */
+        @RequestMapping(value = "rangeDownload")
+        public ResponseEntity<byte[]> rangeDownload(@RequestParam(value = "mode", defaultValue = "") String mode,
+            @RequestHeader(value = "Range", required = false) String range,
+            @RequestHeader(value = "If-Range", required = false) String ifRange,
+            @RequestHeader(value = "Accept-Encoding", required = false) String acceptEncoding)
+            throws InterruptedException {
+            // 范围请求必须要求服务端不编码
+            if (range != null && !"identity".equals(acceptEncoding)) {
+                return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).build();
+            }
+            String etag = "change".equals(mode) && ifRange != null ? "\"v2\"" : "\"v1\"";
+            if ("full".equals(mode) || range == null || (ifRange != null && !ifRange.equals(etag))) {
+                RANGE_SERVED.addAndGet(DOWNLOAD_DATA.length);
+                return ResponseEntity.ok().eTag(etag).body(DOWNLOAD_DATA);
+            }
+
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            int start = Integer.parseInt(bounds[0]);
+            int end = Math.min(Integer.parseInt(bounds[1]), DOWNLOAD_DATA.length - 1);
+            if ("fail".equals(mode) && start > 0) {
+                // 等第一段下载一部分之后再失败
+                Thread.sleep(300);
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            }
+            RANGE_SERVED.addAndGet(end - start + 1);
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).eTag(etag)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + DOWNLOAD_DATA.length)
+                .body(Arrays.copyOfRange(DOWNLOAD_DATA, start, end + 1));
+        }
+
         @RequestMapping(value = "hello")
         @ResponseBody
         public String hello() {
@@ -0,0 +1,127 @@
+package com.joe.http.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.joe.http.client.IHttpClient;
+import com.joe.http.config.IHttpClientConfig;
+import com.joe.http.request.IHttpGet;
+import com.joe.http.request.IHttpPost;
+import com.joe.http.request.IHttpRequestBase;
+import com.joe.http.response.IHttpResponse;
+
+/**
+ * {@link IHttpClient#execute(IHttpRequestBase)}端到端的吞吐和延迟，服务端为本地的{@link LoopbackServer}；覆盖GET/POST、不同
+ * 的body大小（POST请求body和响应body都是该大小）、不同的连接池大小以及不同的并发线程数
+ *
+ * 通过main方法运行，每个线程数单独运行一轮，可以通过参数指定线程数，例如：1 8 32；吞吐看thrpt，延迟分布看sample模式的p0.50和
+ * p0.99，内存分配看gc.alloc.rate和gc.alloc.rate.norm
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 20:10 JoeKerouac Exp $
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientBenchmark {
+
+    /**
+     * 默认的并发线程数
+     */
+    private static final int[] DEFAULT_THREADS = {1, 8, 32};
+
+    /**
+     * 请求方法
+     */
+    @Param({"GET", "POST"})
+    public String method;
+
+    /**
+     * body大小，单位byte
+     */
+    @Param({"64", "4096", "65536"})
+    public int payloadSize;
+
+    /**
+     * 连接池每个站点的最大连接数
+     */
+    @Param({"4", "64"})
+    public int poolSize;
+
+    private LoopbackServer server;
+
+    private IHttpClient client;
+
+    private IHttpRequestBase request;
+
+    @Setup
+    public void setup() throws IOException {
+        server = new LoopbackServer(payloadSize);
+        IHttpClientConfig config = new IHttpClientConfig();
+        config.setMaxTotal(poolSize);
+        config.setDefaultMaxPerRoute(poolSize);
+        client = IHttpClient.builder().config(config).build();
+
+        String url = server.getUrl() + "benchmark";
+        if ("GET".equals(method)) {
+            request = IHttpGet.builder(url).client(client).build();
+        } else {
+            byte[] body = new byte[payloadSize];
+            Arrays.fill(body, (byte)'a');
+            request = IHttpPost.builder(url).entity(body).client(client).build();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    /**
+     * 读取响应body的缓冲区，每个线程一个，避免缓冲区的分配计入请求的内存分配
+     */
+    @State(Scope.Thread)
+    public static class ReadBuffer {
+        final byte[] data = new byte[8 * 1024];
+    }
+
+    @Benchmark
+    public int execute(ReadBuffer buffer, Blackhole blackhole) throws IOException {
+        IHttpResponse response = client.execute(request);
+        try {
+            // 必须完整读取body，否则body较大时关闭响应会直接关闭连接，测试结果将变成每次新建连接的耗时
+            try (InputStream in = response.openStream()) {
+                int len;
+                while ((len = in.read(buffer.data)) != -1) {
+                    blackhole.consume(len);
+                }
+            }
+            return response.getStatus();
+        } finally {
+            response.close();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        int[] threads = args.length == 0 ? DEFAULT_THREADS : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+        for (int thread : threads) {
+            ChainedOptionsBuilder options = new OptionsBuilder().include(ClientBenchmark.class.getSimpleName())
+                .threads(thread).addProfiler(GCProfiler.class);
+            new Runner(options.build()).run();
+        }
+    }
+}
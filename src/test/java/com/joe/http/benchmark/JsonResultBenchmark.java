@@ -0,0 +1,94 @@
+package com.joe.http.benchmark;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpResponse;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.joe.http.response.IHttpResponse;
+
+import lombok.Data;
+
+/**
+ * 对比1MB JSON响应先转换为字符串再解析与直接从字节流解析的耗时和内存分配，通过main方法运行，内存分配看gc.alloc.rate.norm
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 11:45 JoeKerouac Exp $
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonResultBenchmark {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final Type TYPE = new TypeReference<List<Item>>() {}.getType();
+
+    /**
+     * 1MB左右的JSON数据
+     */
+    private byte[] data;
+
+    @Setup
+    public void setup() throws IOException {
+        List<Item> items = new ArrayList<>();
+        int size = 0;
+        for (int i = 0; size < 1024 * 1024; i++) {
+            Item item = new Item();
+            item.setId(i);
+            item.setName("item-" + i);
+            item.setDescription("description of item " + i + "，用于测试JSON解析");
+            item.setPrice(i * 0.01);
+            items.add(item);
+            size += 100;
+        }
+        data = MAPPER.writeValueAsBytes(items);
+    }
+
+    @Benchmark
+    public List<Item> viaString() throws IOException {
+        String result = newResponse().getResult(StandardCharsets.UTF_8.name());
+        return MAPPER.readValue(result, MAPPER.getTypeFactory().constructType(TYPE));
+    }
+
+    @Benchmark
+    public List<Item> viaStream() throws IOException {
+        return newResponse().readResult(TYPE);
+    }
+
+    private IHttpResponse newResponse() {
+        BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setEntity(new ByteArrayEntity(data, ContentType.APPLICATION_JSON));
+        return new IHttpResponse(response);
+    }
+
+    @Data
+    public static class Item {
+        private long id;
+        private String name;
+        private String description;
+        private double price;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JsonResultBenchmark.class.getSimpleName()).addProfiler(GCProfiler.class)
+            .build()).run();
+    }
+}
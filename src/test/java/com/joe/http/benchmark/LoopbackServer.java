@@ -0,0 +1,180 @@
+package com.joe.http.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 基准测试使用的本地HTTP/1.1服务，基于阻塞socket，每个连接一个线程，支持keep-alive；响应是预先构建好的固定字节，请求处理过程中
+ * 几乎不分配对象，所以基准测试中的内存分配基本都来自客户端
+ *
+ * PS:只支持Content-Length和chunked两种请求body
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 19:50 JoeKerouac Exp $
+ */
+public class LoopbackServer implements Closeable {
+
+    private final ServerSocket serverSocket;
+
+    private final byte[] response;
+
+    private volatile boolean closed;
+
+    /**
+     * 启动服务
+     *
+     * @param responseSize
+     *            响应body大小，单位byte
+     * @throws IOException
+     *             IO异常
+     */
+    public LoopbackServer(int responseSize) throws IOException {
+        byte[] body = new byte[responseSize];
+        Arrays.fill(body, (byte)'a');
+        byte[] head = ("HTTP/1.1 200 OK\r\nContent-Type: text/plain; charset=UTF-8\r\nContent-Length: " + responseSize
+            + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        this.response = new byte[head.length + body.length];
+        System.arraycopy(head, 0, response, 0, head.length);
+        System.arraycopy(body, 0, response, head.length, body.length);
+
+        this.serverSocket = new ServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "LoopbackServer-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * 服务地址
+     *
+     * @return 服务地址，以/结尾
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + serverSocket.getLocalPort() + "/";
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+    }
+
+    private void accept() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Thread worker = new Thread(() -> serve(socket), "LoopbackServer-worker");
+                worker.setDaemon(true);
+                worker.start();
+            } catch (IOException e) {
+                // 服务关闭
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        byte[] line = new byte[8192];
+        byte[] skip = new byte[8192];
+        try (Socket s = socket) {
+            InputStream in = new BufferedInputStream(s.getInputStream(), 16384);
+            OutputStream out = s.getOutputStream();
+            while (!closed) {
+                long contentLength = 0;
+                boolean chunked = false;
+                int length;
+                boolean first = true;
+                // 读取请求头
+                while ((length = readLine(in, line)) > 0) {
+                    first = false;
+                    if (startsWithIgnoreCase(line, length, "content-length:")) {
+                        contentLength = parseLong(line, "content-length:".length(), length, 10);
+                    } else if (startsWithIgnoreCase(line, length, "transfer-encoding:")) {
+                        chunked = true;
+                    }
+                }
+                if (length < 0 || first) {
+                    return;
+                }
+                // 读取并丢弃请求body
+                if (chunked) {
+                    long size;
+                    while ((size = parseLong(line, 0, readLine(in, line), 16)) > 0) {
+                        skip(in, size, skip);
+                        readLine(in, line);
+                    }
+                    while (readLine(in, line) > 0) {
+                        // trailer
+                    }
+                } else {
+                    skip(in, contentLength, skip);
+                }
+                out.write(response);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // 连接关闭
+        }
+    }
+
+    /**
+     * 读取一行，不包含\r\n
+     *
+     * @return 行长度，流结束时返回-1
+     */
+    private static int readLine(InputStream in, byte[] line) throws IOException {
+        int length = 0;
+        int b;
+        while ((b = in.read()) >= 0) {
+            if (b == '\n') {
+                return length > 0 && line[length - 1] == '\r' ? length - 1 : length;
+            }
+            if (length < line.length) {
+                line[length++] = (byte)b;
+            }
+        }
+        return -1;
+    }
+
+    private static void skip(InputStream in, long length, byte[] buffer) throws IOException {
+        while (length > 0) {
+            int read = in.read(buffer, 0, (int)Math.min(buffer.length, length));
+            if (read < 0) {
+                throw new IOException("连接已关闭");
+            }
+            length -= read;
+        }
+    }
+
+    private static boolean startsWithIgnoreCase(byte[] line, int length, String prefix) {
+        if (length < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (Character.toLowerCase(line[i]) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseLong(byte[] line, int start, int end, int radix) {
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(line[i], radix);
+            if (digit >= 0) {
+                result = result * radix + digit;
+            } else if (result > 0 || line[i] == ';') {
+                break;
+            }
+        }
+        return result;
+    }
+}
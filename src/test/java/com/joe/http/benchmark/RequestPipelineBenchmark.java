@@ -0,0 +1,84 @@
+package com.joe.http.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.joe.http.client.IHttpClient;
+import com.joe.http.request.IHttpGet;
+import com.joe.http.request.IHttpPost;
+import com.joe.http.request.IHttpRequestBase;
+import com.joe.http.response.IHttpResponse;
+
+/**
+ * 同步请求执行链路每次请求的内存分配，服务端为本地的{@link LoopbackServer}，通过main方法运行，内存分配看gc.alloc.rate.norm；
+ * 分别测试重复执行同一个请求对象以及每次新构建请求对象
+ *
+ * @author JoeKerouac
+ * @version $Id: joe, v 0.1 2026年10月18日 19:50 JoeKerouac Exp $
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestPipelineBenchmark {
+
+    private LoopbackServer server;
+
+    private IHttpClient client;
+
+    private String url;
+
+    private IHttpGet get;
+
+    @Setup
+    public void setup() throws IOException {
+        server = new LoopbackServer(16);
+        client = IHttpClient.builder().build();
+        url = server.getUrl() + "user/{id}";
+        get = IHttpGet.builder(url).pathVariable("id", "1").queryParam("type", "json").client(client).build();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public int reusedGet() throws IOException {
+        return execute(get);
+    }
+
+    @Benchmark
+    public int newGet() throws IOException {
+        return execute(
+            IHttpGet.builder(url).pathVariable("id", "1").queryParam("type", "json").client(client).build());
+    }
+
+    @Benchmark
+    public int newPost() throws IOException {
+        return execute(IHttpPost.builder(url).pathVariable("id", "1").entity("{\"name\":\"joe\"}").client(client).build());
+    }
+
+    private int execute(IHttpRequestBase request) throws IOException {
+        IHttpResponse response = client.execute(request);
+        try {
+            return response.getStatus();
+        } finally {
+            response.close();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RequestPipelineBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class).build()).run();
+    }
+}